@@ -2,8 +2,10 @@ package com.hospital.agendamiento_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AgendamientoServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,153 @@
+package com.hospital.agendamiento_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DataSource de las transacciones de solo lectura: reparte las conexiones entre las réplicas
+ * al día (turno rotatorio) y cae a la primaria cuando ninguna sirve.
+ * - Cada 'sondeo-ms' escribe un latido en la primaria y lee el último visible en cada réplica.
+ *   Una réplica cuyo latido tiene más de 'retraso-maximo-ms' deja de recibir lecturas.
+ * - Lee-tus-escrituras: si el cliente de la solicitud escribió hace poco (LecturaPropiaFilter),
+ *   solo vale una réplica cuyo latido sea posterior a esa escritura; si no hay, va a la primaria.
+ */
+public class EnrutadorReplicas extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrutadorReplicas.class);
+
+    private static final String ACTUALIZAR_LATIDO = "UPDATE latido_replicacion SET instante = ? WHERE id = 1";
+    private static final String INSERTAR_LATIDO = "INSERT INTO latido_replicacion (id, instante) VALUES (1, ?)";
+    private static final String LEER_LATIDO = "SELECT instante FROM latido_replicacion WHERE id = 1";
+
+    private final DataSource primaria;
+    private final List<HikariDataSource> replicas;
+    private final long retrasoMaximoMs;
+
+    /**
+     * Réplica que pasó el último sondeo y el instante hasta el que está al día
+     */
+    private record ReplicaAlDia(HikariDataSource dataSource, LocalDateTime alDiaHasta) {
+    }
+
+    private volatile List<ReplicaAlDia> disponibles = List.of();
+    private final AtomicInteger turno = new AtomicInteger();
+    private final LongAdder lecturasReplica = new LongAdder();
+    private final LongAdder lecturasPrimaria = new LongAdder();
+
+    public EnrutadorReplicas(DataSource primaria, List<HikariDataSource> replicas, long retrasoMaximoMs) {
+        this.primaria = primaria;
+        this.replicas = replicas;
+        this.retrasoMaximoMs = retrasoMaximoMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return elegir().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return elegir().getConnection(username, password);
+    }
+
+    /**
+     * Escribe el latido en la primaria y recalcula qué réplicas están al día
+     */
+    @Scheduled(fixedDelayString = "${agendamiento.replicas.sondeo-ms:500}")
+    public void sondear() {
+        // 1. Latido en la primaria
+        LocalDateTime ahora = LocalDateTime.now();
+        try (Connection conexion = primaria.getConnection()) {
+            if (ejecutar(conexion, ACTUALIZAR_LATIDO, ahora) == 0) {
+                ejecutar(conexion, INSERTAR_LATIDO, ahora);
+            }
+        } catch (SQLException e) {
+            log.warn("No se pudo escribir el latido de replicación: {}", e.getMessage());
+        }
+
+        // 2. Último latido visible en cada réplica
+        List<ReplicaAlDia> alDia = new ArrayList<>(replicas.size());
+        for (HikariDataSource replica : replicas) {
+            LocalDateTime latido = leerLatido(replica);
+            if (latido != null && Duration.between(latido, ahora).toMillis() <= retrasoMaximoMs) {
+                alDia.add(new ReplicaAlDia(replica, latido));
+            }
+        }
+        if (alDia.size() != disponibles.size()) {
+            log.info("Réplicas de lectura al día: {} de {}", alDia.size(), replicas.size());
+        }
+        disponibles = List.copyOf(alDia);
+    }
+
+    /**
+     * Réplicas al día y lecturas servidas por réplicas y por la primaria
+     */
+    public Map<String, Object> estado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("replicas", replicas.size());
+        estado.put("replicasAlDia", disponibles.size());
+        estado.put("lecturasReplica", lecturasReplica.sum());
+        estado.put("lecturasPrimaria", lecturasPrimaria.sum());
+        return estado;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private DataSource elegir() {
+        LocalDateTime escritura = LecturaPropiaFilter.ultimaEscrituraCliente();
+        List<ReplicaAlDia> candidatas = disponibles;
+        int total = candidatas.size();
+        int primera = total == 0 ? 0 : Math.floorMod(turno.getAndIncrement(), total);
+        for (int i = 0; i < total; i++) {
+            ReplicaAlDia replica = candidatas.get((primera + i) % total);
+            if (escritura == null || replica.alDiaHasta().isAfter(escritura)) {
+                lecturasReplica.increment();
+                return replica.dataSource();
+            }
+        }
+        lecturasPrimaria.increment();
+        return primaria;
+    }
+
+    private static int ejecutar(Connection conexion, String sql, LocalDateTime instante) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            sentencia.setTimestamp(1, Timestamp.valueOf(instante));
+            return sentencia.executeUpdate();
+        }
+    }
+
+    private static LocalDateTime leerLatido(HikariDataSource replica) {
+        try (Connection conexion = replica.getConnection();
+             PreparedStatement sentencia = conexion.prepareStatement(LEER_LATIDO);
+             ResultSet fila = sentencia.executeQuery()) {
+            return fila.next() ? fila.getTimestamp(1).toLocalDateTime() : null;
+        } catch (SQLException e) {
+            // Réplica caída o sin esquema: no recibe lecturas hasta el próximo sondeo correcto
+            log.debug("Réplica {} sin latido: {}", replica.getPoolName(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.hospital.agendamiento_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Perfil "virtual" (application-virtual.properties). Sus límites (pool de 16 conexiones, esperas de 2 s,
+ * 20000 conexiones en Tomcat) están pensados para hilos virtuales, que necesitan un JRE 21+. En un JRE
+ * anterior Spring Boot ignora spring.threads.virtual.enabled sin avisar y el servicio arrancaría con
+ * hilos de plataforma y esos límites: se detiene el arranque antes de abrir el puerto.
+ */
+@Configuration
+@Profile("virtual")
+public class HilosVirtualesConfig {
+
+    private static final int VERSION_MINIMA = 21;
+
+    public HilosVirtualesConfig() {
+        int version = Runtime.version().feature();
+        if (version < VERSION_MINIMA) {
+            throw new IllegalStateException("El perfil virtual requiere Java " + VERSION_MINIMA
+                    + " o superior (JRE actual: " + version + "); arranque sin ese perfil o con un JRE más reciente");
+        }
+    }
+}
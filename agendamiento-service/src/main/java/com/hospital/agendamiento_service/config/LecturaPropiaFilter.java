@@ -0,0 +1,70 @@
+package com.hospital.agendamiento_service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Lee-tus-escrituras con réplicas: recuerda cuándo escribió por última vez cada cliente y
+ * deja ese instante al alcance del hilo de la solicitud, para que EnrutadorReplicas solo
+ * mande sus lecturas a una réplica que ya lo haya alcanzado.
+ * El cliente es la IP de origen (la primera del X-Forwarded-For que añade el gateway).
+ */
+public class LecturaPropiaFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LECTURAS = Set.of("GET", "HEAD", "OPTIONS");
+
+    // Última escritura del cliente de la solicitud en curso (null si no escribió hace poco)
+    private static final ThreadLocal<LocalDateTime> ESCRITURA_CLIENTE = new ThreadLocal<>();
+
+    // Pasado el retraso máximo admitido toda réplica en uso ya incluye la escritura: la entrada sobra
+    private final Cache<String, LocalDateTime> ultimasEscrituras;
+
+    public LecturaPropiaFilter(long retrasoMaximoMs, long maximoClientes) {
+        this.ultimasEscrituras = Caffeine.newBuilder()
+                .maximumSize(maximoClientes)
+                .expireAfterWrite(Duration.ofMillis(retrasoMaximoMs))
+                .build();
+    }
+
+    /**
+     * Instante de la última escritura del cliente que hizo la solicitud en curso, o null
+     */
+    public static LocalDateTime ultimaEscrituraCliente() {
+        return ESCRITURA_CLIENTE.get();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cliente = cliente(request);
+        ESCRITURA_CLIENTE.set(ultimasEscrituras.getIfPresent(cliente));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ESCRITURA_CLIENTE.remove();
+            // Se anota después de la respuesta, es decir, después del commit de la escritura
+            if (!LECTURAS.contains(request.getMethod()) && response.getStatus() < 400) {
+                ultimasEscrituras.put(cliente, LocalDateTime.now());
+            }
+        }
+    }
+
+    private static String cliente(HttpServletRequest request) {
+        String reenviado = request.getHeader("X-Forwarded-For");
+        if (reenviado == null || reenviado.isBlank()) {
+            return request.getRemoteAddr();
+        }
+        int coma = reenviado.indexOf(',');
+        return (coma < 0 ? reenviado : reenviado.substring(0, coma)).trim();
+    }
+}
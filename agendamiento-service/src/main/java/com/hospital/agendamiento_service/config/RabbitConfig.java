@@ -77,7 +77,7 @@ public class RabbitConfig {
         return BindingBuilder
                 .bind(medicosQueue())
                 .to(citasExchange())
-                .with("citas.cita-agendada");
+                .with("citas.*");
     }
 
     @Bean
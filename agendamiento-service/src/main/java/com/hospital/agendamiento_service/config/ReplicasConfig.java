@@ -0,0 +1,71 @@
+package com.hospital.agendamiento_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lectura (CQRS): solo se activa con agendamiento.replicas.urls.
+ * El DataSource de la aplicación es un proxy perezoso sobre la primaria que, cuando la transacción
+ * es de solo lectura (@Transactional(readOnly = true), Hibernate marca la conexión), toma la
+ * conexión de EnrutadorReplicas. Las escrituras, Flyway y el esquema siguen en la primaria.
+ */
+@Configuration
+@ConditionalOnProperty("agendamiento.replicas.urls")
+public class ReplicasConfig {
+
+    /**
+     * Pool de la primaria, con la misma configuración spring.datasource.* que sin réplicas
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaria(DataSourceProperties propiedades) {
+        return propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public EnrutadorReplicas enrutadorReplicas(HikariDataSource primaria, DataSourceProperties propiedades,
+                                               @Value("${agendamiento.replicas.urls}") String[] urls,
+                                               @Value("${agendamiento.replicas.conexiones:10}") int conexiones,
+                                               @Value("${agendamiento.replicas.retraso-maximo-ms:5000}") long retrasoMaximoMs) {
+        List<HikariDataSource> replicas = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls[i].trim());
+            replica.setUsername(propiedades.determineUsername());
+            replica.setPassword(propiedades.determinePassword());
+            replica.setMaximumPoolSize(conexiones);
+            replica.setReadOnly(true);
+            // Una réplica caída no debe impedir el arranque: el sondeo la excluye hasta que responda
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new EnrutadorReplicas(primaria, replicas, retrasoMaximoMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaria, EnrutadorReplicas enrutadorReplicas) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaria);
+        proxy.setReadOnlyDataSource(enrutadorReplicas);
+        return proxy;
+    }
+
+    @Bean
+    public LecturaPropiaFilter lecturaPropiaFilter(
+            @Value("${agendamiento.replicas.retraso-maximo-ms:5000}") long retrasoMaximoMs,
+            @Value("${agendamiento.replicas.maximo-clientes:100000}") long maximoClientes) {
+        return new LecturaPropiaFilter(retrasoMaximoMs, maximoClientes);
+    }
+}
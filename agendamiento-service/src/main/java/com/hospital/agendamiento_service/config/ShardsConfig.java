@@ -0,0 +1,74 @@
+package com.hospital.agendamiento_service.config;
+
+import com.hospital.agendamiento_service.service.AnilloShards;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Reparto de médicos entre nodos (shards): solo se activa con agendamiento.shards.nodos.
+ * Cada nodo guarda las citas de los médicos que el anillo le asigna; api-gateway envía allí sus
+ * escrituras. Las reservas de horario de cada paciente viven en el nodo que el anillo da a su ID.
+ */
+@Configuration
+@ConditionalOnProperty("agendamiento.shards.nodos")
+public class ShardsConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardsConfig.class);
+
+    @Bean
+    public AnilloShards anilloShards(@Value("${agendamiento.shards.nodos}") String[] nodos,
+                                     @Value("${agendamiento.shards.id}") int id) {
+        return new AnilloShards(AnilloShards.parsear(nodos), id);
+    }
+
+    /**
+     * Cola propia de cada nodo con todos los eventos de citas: confirman y liberan las reservas
+     * de sus pacientes, vengan del nodo que vengan
+     */
+    @Bean
+    public Queue reservasQueue(AnilloShards anilloShards) {
+        return QueueBuilder.durable("agendamiento.reservas.shard-" + anilloShards.propio()).build();
+    }
+
+    @Bean
+    public Binding bindingReservas(Queue reservasQueue, TopicExchange citasExchange) {
+        return BindingBuilder.bind(reservasQueue).to(citasExchange).with("citas.*");
+    }
+
+    /**
+     * Lleva citas_seq al tramo de IDs del nodo antes de abrir el puerto, para que el ID de una cita
+     * diga en qué shard está (api-gateway enruta por él las modificaciones y anulaciones)
+     */
+    @Bean
+    public SmartInitializingSingleton secuenciaCitasShard(AnilloShards anilloShards, JdbcTemplate jdbcTemplate,
+                                                          EntityManagerFactory entityManagerFactory) {
+        return () -> {
+            Dialect dialecto = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+            Long siguiente = jdbcTemplate.queryForObject(
+                    dialecto.getSequenceSupport().getSequenceNextValString("citas_seq"), Long.class);
+            long primero = AnilloShards.primerIdCita(anilloShards.propio());
+            if (siguiente >= AnilloShards.primerIdCita(anilloShards.propio() + 1)) {
+                throw new IllegalStateException("citas_seq (" + siguiente + ") está fuera del tramo del shard " + anilloShards.propio());
+            }
+            if (siguiente < primero) {
+                // Con el optimizador 'pooled' el valor leído es el último del bloque: el primer ID será primero + 1
+                jdbcTemplate.execute("ALTER SEQUENCE citas_seq RESTART WITH " + (primero + 50));
+                log.info("citas_seq movida al tramo del shard {} (IDs desde {})", anilloShards.propio(), primero + 1);
+            }
+        };
+    }
+}
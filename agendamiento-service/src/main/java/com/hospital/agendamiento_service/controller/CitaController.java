@@ -4,10 +4,14 @@ import com.hospital.agendamiento_service.dto.*;
 import com.hospital.agendamiento_service.service.CitaService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +40,31 @@ public class CitaController {
         }
     }
 
+    /**
+     * Agendar un lote de citas
+     * POST /api/v1/citas/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> agendarCitasLote(@Valid @RequestBody AgendarCitasLoteRequest request) {
+        try {
+            List<ResultadoLoteItem> resultados = citaService.agendarCitasLote(request.getCitas());
+            long exitos = resultados.stream().filter(ResultadoLoteItem::isSuccess).count();
+            // 201 con todo el lote agendado, 207 si solo una parte y 422 si ningún ítem; el detalle va en data
+            if (exitos == resultados.size()) {
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(crearRespuestaExitosa("Lote de citas procesado", resultados));
+            }
+            Map<String, Object> respuesta = crearRespuestaExitosa(exitos > 0
+                    ? "Lote de citas procesado parcialmente" : "Ninguna cita del lote se pudo agendar", resultados);
+            respuesta.put("success", false);
+            return ResponseEntity.status(exitos > 0 ? HttpStatus.MULTI_STATUS : HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(respuesta);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(crearRespuestaError("Error al agendar lote de citas", e.getMessage()));
+        }
+    }
+
     /**
      * Modificar cita existente
      * PUT /api/v1/citas/{id}
@@ -100,6 +129,110 @@ public class CitaController {
         }
     }
 
+    /**
+     * Agenda paginada de un paciente
+     * GET /api/v1/citas/paciente/{idPaciente}/pagina?cursor=&limite=
+     */
+    @GetMapping("/paciente/{idPaciente}/pagina")
+    public ResponseEntity<?> consultarPaginaPorPaciente(@PathVariable Long idPaciente,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "50") int limite) {
+        try {
+            PaginaCitas pagina = citaService.consultarPaginaPorPaciente(idPaciente, cursor, limite);
+            return ResponseEntity.ok(crearRespuestaExitosa("Citas del paciente", pagina));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(crearRespuestaError("Error al consultar citas del paciente", e.getMessage()));
+        }
+    }
+
+    /**
+     * Agenda paginada de un médico
+     * GET /api/v1/citas/medico/{idMedico}/pagina?cursor=&limite=
+     */
+    @GetMapping("/medico/{idMedico}/pagina")
+    public ResponseEntity<?> consultarPaginaPorMedico(@PathVariable Long idMedico,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "50") int limite) {
+        try {
+            PaginaCitas pagina = citaService.consultarPaginaPorMedico(idMedico, cursor, limite);
+            return ResponseEntity.ok(crearRespuestaExitosa("Citas del médico", pagina));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(crearRespuestaError("Error al consultar citas del médico", e.getMessage()));
+        }
+    }
+
+    /**
+     * Agenda paginada de un rango de fechas
+     * GET /api/v1/citas/agenda?desde=&hasta=&cursor=&limite=
+     */
+    @GetMapping("/agenda")
+    public ResponseEntity<?> consultarPaginaPorRango(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        try {
+            PaginaCitas pagina = citaService.consultarPaginaPorRango(desde, hasta, cursor, limite);
+            return ResponseEntity.ok(crearRespuestaExitosa("Agenda del rango", pagina));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(crearRespuestaError("Error al consultar la agenda", e.getMessage()));
+        }
+    }
+
+    /**
+     * Huecos libres de un médico
+     * GET /api/v1/citas/medico/{idMedico}/disponibilidad?desde=&hasta=&duracion=
+     */
+    @GetMapping("/medico/{idMedico}/disponibilidad")
+    public ResponseEntity<?> consultarDisponibilidad(
+            @PathVariable Long idMedico,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "30") int duracion) {
+        try {
+            List<FranjaDisponible> franjas = citaService.consultarDisponibilidad(idMedico, desde, hasta, duracion);
+            return ResponseEntity.ok(crearRespuestaExitosa("Disponibilidad del médico", franjas));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(crearRespuestaError("Error al consultar disponibilidad", e.getMessage()));
+        }
+    }
+
+    /**
+     * Exportar la agenda de un rango de fechas en streaming (NDJSON)
+     * GET /api/v1/citas/export?desde=&hasta=
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarCitas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        StreamingResponseBody cuerpo = salida -> citaService.exportarCitas(desde, hasta, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(cuerpo);
+    }
+
+    /**
+     * Estadísticas de la caché de citas
+     * GET /api/v1/citas/cache/estadisticas
+     */
+    @GetMapping("/cache/estadisticas")
+    public ResponseEntity<?> estadisticasCache() {
+        return ResponseEntity.ok(crearRespuestaExitosa("Estadísticas de la caché de citas", citaService.estadisticasCache()));
+    }
+
+    /**
+     * Latencia por etapa de agendar/modificar/anular (p50/p90/p99/p99.9 en microsegundos)
+     * GET /api/v1/citas/metricas
+     */
+    @GetMapping("/metricas")
+    public ResponseEntity<?> metricasLatencia() {
+        return ResponseEntity.ok(crearRespuestaExitosa("Latencia por etapa", citaService.metricasLatencia()));
+    }
+
     /**
      * Health check del servicio
      * GET /api/v1/citas/health
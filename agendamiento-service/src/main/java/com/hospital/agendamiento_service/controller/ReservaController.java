@@ -0,0 +1,63 @@
+package com.hospital.agendamiento_service.controller;
+
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.SolicitudReserva;
+import com.hospital.agendamiento_service.service.CitaService;
+import com.hospital.agendamiento_service.service.ReservasPaciente;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Protocolo de reserva entre nodos de agendamiento-service. Solo lo llaman otros nodos:
+ * api-gateway no publica /internal/**.
+ */
+@RestController
+@RequestMapping("/internal")
+@ConditionalOnProperty("agendamiento.shards.nodos")
+public class ReservaController {
+
+    @Autowired
+    private ReservasPaciente reservasPaciente;
+
+    @Autowired
+    private CitaService citaService;
+
+    /**
+     * Reservar el horario de un paciente de este nodo
+     * POST /internal/reservas  (409 si choca con otra cita del paciente)
+     */
+    @PostMapping("/reservas")
+    public ResponseEntity<?> reservar(@RequestBody SolicitudReserva solicitud) {
+        if (!reservasPaciente.reservar(solicitud)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "El paciente ya tiene una cita en el horario solicitado"));
+        }
+        return ResponseEntity.ok(Map.of("requestId", solicitud.requestId()));
+    }
+
+    /**
+     * Liberar la reserva de una solicitud que no llegó a guardar su cita
+     * DELETE /internal/reservas/{requestId}
+     */
+    @DeleteMapping("/reservas/{requestId}")
+    public ResponseEntity<?> liberar(@PathVariable String requestId) {
+        reservasPaciente.liberar(requestId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Cita afectada por una solicitud procesada en este nodo
+     * GET /internal/solicitudes/{requestId}
+     */
+    @GetMapping("/solicitudes/{requestId}")
+    public ResponseEntity<CitaResponse> consultarSolicitud(@PathVariable String requestId) {
+        return citaService.consultarSolicitud(requestId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
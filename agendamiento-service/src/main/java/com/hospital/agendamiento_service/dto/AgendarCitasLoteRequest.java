@@ -0,0 +1,19 @@
+package com.hospital.agendamiento_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgendarCitasLoteRequest {
+
+    @NotEmpty(message = "El lote debe contener al menos una cita")
+    @Size(max = 500, message = "El lote no puede superar las 500 citas")
+    private List<@Valid AgendarCitaRequest> citas;
+}
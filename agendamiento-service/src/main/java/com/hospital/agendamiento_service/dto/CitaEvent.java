@@ -0,0 +1,42 @@
+package com.hospital.agendamiento_service.dto;
+
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import java.time.LocalDateTime;
+
+/**
+ * Evento de cita publicado en citas.exchange.
+ * Inmutable y tipado: se serializa directamente a bytes JSON con un ObjectWriter precompilado.
+ */
+public record CitaEvent(
+        String tipo,
+        Long citaId,
+        Long idPaciente,
+        Long idMedico,
+        LocalDateTime inicio,
+        LocalDateTime fin,
+        EstadoCita estado,
+        String motivo,
+        String requestId,
+        LocalDateTime timestamp
+) {
+
+    public static CitaEvent de(Cita cita, String tipo) {
+        return de(cita, tipo, cita.getRequestId());
+    }
+
+    public static CitaEvent de(Cita cita, String tipo, String requestId) {
+        return new CitaEvent(
+                tipo,
+                cita.getId(),
+                cita.getIdPaciente(),
+                cita.getIdMedico(),
+                cita.getInicio(),
+                cita.getFin(),
+                cita.getEstado(),
+                cita.getMotivo(),
+                requestId,
+                LocalDateTime.now()
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package com.hospital.agendamiento_service.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posición (inicio, id) de la última cita devuelta, para paginación por keyset.
+ * Se expone al cliente como texto opaco en Base64 URL-safe.
+ */
+public record CursorCita(LocalDateTime inicio, Long id) {
+
+    // Posición anterior a cualquier cita: primera página
+    public static final CursorCita INICIAL = new CursorCita(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    public String codificar() {
+        String texto = inicio + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorCita decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return INICIAL;
+        }
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = texto.indexOf('|');
+            return new CursorCita(LocalDateTime.parse(texto.substring(0, separador)),
+                    Long.parseLong(texto.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor de paginación inválido");
+        }
+    }
+}
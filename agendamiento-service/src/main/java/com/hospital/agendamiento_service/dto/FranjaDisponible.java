@@ -0,0 +1,14 @@
+package com.hospital.agendamiento_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FranjaDisponible {
+    private LocalDateTime inicio;
+    private LocalDateTime fin;
+}
@@ -0,0 +1,16 @@
+package com.hospital.agendamiento_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCitas {
+    private List<CitaResponse> citas;
+    // Cursor opaco para pedir la página siguiente; null si no hay más
+    private String siguienteCursor;
+    private boolean hayMas;
+}
@@ -0,0 +1,29 @@
+package com.hospital.agendamiento_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLoteItem {
+    private int indice;
+    private String requestId;
+    private boolean success;
+    private CitaResponse cita;
+    private String error;
+
+    public static ResultadoLoteItem exito(int indice, String requestId, CitaResponse cita) {
+        return new ResultadoLoteItem(indice, requestId, true, cita, null);
+    }
+
+    public static ResultadoLoteItem error(int indice, String requestId, String error) {
+        return new ResultadoLoteItem(indice, requestId, false, null, error);
+    }
+
+    // Mismo resultado para otra aparición del requestId dentro del lote
+    public ResultadoLoteItem enPosicion(int otroIndice) {
+        return new ResultadoLoteItem(otroIndice, requestId, success, cita, error);
+    }
+}
@@ -0,0 +1,19 @@
+package com.hospital.agendamiento_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Petición de reserva del horario de un paciente al nodo que guarda sus reservas.
+ * citaExcluida es la cita que se mueve (sus reservas no cuentan como conflicto); null al agendar.
+ * requestIdCita es el requestId con el que se agendó esa cita: su reserva aún puede estar pendiente y sin citaId.
+ */
+public record SolicitudReserva(
+        Long idPaciente,
+        LocalDateTime inicio,
+        LocalDateTime fin,
+        String requestId,
+        Long citaExcluida,
+        String requestIdCita,
+        Integer shardOrigen
+) {
+}
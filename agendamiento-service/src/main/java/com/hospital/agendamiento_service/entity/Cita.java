@@ -11,11 +11,19 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "citas")
+@Table(name = "citas", indexes = {
+        // Rango sobre inicio para las comprobaciones de solapamiento por médico y por paciente
+        @Index(name = "idx_citas_medico_estado_inicio", columnList = "id_medico, estado, inicio"),
+        @Index(name = "idx_citas_paciente_estado_inicio", columnList = "id_paciente, estado, inicio"),
+        // Selección de las citas ya terminadas que el archivador saca de la tabla
+        @Index(name = "idx_citas_fin", columnList = "fin")
+})
 public class Cita {
 
+    // Secuencia con pool de IDs: IDENTITY impide que Hibernate agrupe los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "citas_seq")
+    @SequenceGenerator(name = "citas_seq", sequenceName = "citas_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -41,9 +49,15 @@ public class Cita {
     @Column(name = "motivo")
     private String motivo;
 
+    // requestId con el que se creó la cita; el historial completo está en solicitudes_procesadas
     @Column(name = "request_id", unique = true)
     private String requestId;
 
+    // Control optimista: el UPDATE de una cita leída antes de otro cambio ya confirmado no afecta a ninguna fila
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
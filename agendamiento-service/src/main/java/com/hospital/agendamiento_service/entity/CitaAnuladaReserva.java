@@ -0,0 +1,32 @@
+package com.hospital.agendamiento_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Lápida de una cita anulada en el shard de su paciente. La anulación es definitiva, así que
+ * cualquier evento de la cita que llegue después se descarta en lugar de recrear su reserva.
+ * Se borra con las reservas terminadas, cuando ya no puede ocupar horario.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "citas_anuladas_reserva", indexes = {
+        @Index(name = "idx_citas_anuladas_reserva_fin", columnList = "fin")
+})
+public class CitaAnuladaReserva {
+
+    @Id
+    @Column(name = "cita_id")
+    private Long citaId;
+
+    @Column(name = "fin", nullable = false)
+    private LocalDateTime fin;
+
+    public CitaAnuladaReserva(Long citaId, LocalDateTime fin) {
+        this.citaId = citaId;
+        this.fin = fin;
+    }
+}
@@ -0,0 +1,104 @@
+package com.hospital.agendamiento_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDateTime;
+
+/**
+ * Cita pasada o anulada movida fuera de la tabla caliente por el archivador.
+ * Conserva el ID original: las consultas por id y las respuestas idempotentes la siguen encontrando.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "citas_archivo", indexes = {
+        // Las mismas lecturas que la tabla caliente: agenda por médico, por paciente y por rango de fechas
+        @Index(name = "idx_citas_archivo_medico_estado_inicio", columnList = "id_medico, estado, inicio"),
+        @Index(name = "idx_citas_archivo_paciente_estado_inicio", columnList = "id_paciente, estado, inicio"),
+        @Index(name = "idx_citas_archivo_inicio", columnList = "inicio")
+})
+public class CitaArchivada implements Persistable<Long> {
+
+    @Id
+    private Long id;
+
+    @Column(name = "id_paciente", nullable = false)
+    private Long idPaciente;
+
+    @Column(name = "id_medico", nullable = false)
+    private Long idMedico;
+
+    @Column(name = "inicio", nullable = false)
+    private LocalDateTime inicio;
+
+    @Column(name = "fin", nullable = false)
+    private LocalDateTime fin;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado")
+    private EstadoCita estado;
+
+    @Column(name = "motivo")
+    private String motivo;
+
+    @Column(name = "request_id")
+    private String requestId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archivada_en")
+    private LocalDateTime archivadaEn;
+
+    // ID copiado de la cita: sin esto save() haría un SELECT previo (merge) por cada fila archivada
+    @Transient
+    private boolean nueva = true;
+
+    /**
+     * Copia de una cita de la tabla caliente
+     */
+    public static CitaArchivada de(Cita cita) {
+        CitaArchivada archivada = new CitaArchivada();
+        archivada.id = cita.getId();
+        archivada.idPaciente = cita.getIdPaciente();
+        archivada.idMedico = cita.getIdMedico();
+        archivada.inicio = cita.getInicio();
+        archivada.fin = cita.getFin();
+        archivada.estado = cita.getEstado();
+        archivada.motivo = cita.getMotivo();
+        archivada.requestId = cita.getRequestId();
+        archivada.createdAt = cita.getCreatedAt();
+        archivada.updatedAt = cita.getUpdatedAt();
+        archivada.archivadaEn = LocalDateTime.now();
+        return archivada;
+    }
+
+    /**
+     * Vista como Cita (sin gestionar) para reutilizar las conversiones y la paginación
+     */
+    public Cita aCita() {
+        Cita cita = new Cita(idPaciente, idMedico, inicio, fin, motivo, requestId);
+        cita.setId(id);
+        cita.setEstado(estado);
+        cita.setCreatedAt(createdAt);
+        // Después de setEstado, que marca updatedAt con la hora actual
+        cita.setUpdatedAt(updatedAt);
+        return cita;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nueva;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarPersistida() {
+        this.nueva = false;
+    }
+}
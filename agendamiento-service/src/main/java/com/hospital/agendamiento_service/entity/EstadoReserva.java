@@ -0,0 +1,6 @@
+package com.hospital.agendamiento_service.entity;
+
+public enum EstadoReserva {
+    PENDIENTE,   // El shard de origen aún no ha confirmado la cita
+    CONFIRMADA   // Hay una cita activa con este horario
+}
@@ -0,0 +1,40 @@
+package com.hospital.agendamiento_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Evento pendiente de publicar en RabbitMQ (patrón transactional outbox).
+ * Se escribe en la misma transacción que la cita y lo drena OutboxRelay.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "eventos_outbox")
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eventos_outbox_seq")
+    @SequenceGenerator(name = "eventos_outbox_seq", sequenceName = "eventos_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    // JSON UTF-8 ya serializado; se envía tal cual como application/json
+    @Column(name = "payload", nullable = false, length = 4000)
+    private byte[] payload;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public EventoOutbox(String routingKey, byte[] payload) {
+        this.routingKey = routingKey;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,24 @@
+package com.hospital.agendamiento_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Latido que la instancia escribe en la primaria y lee en cada réplica de lectura: el último
+ * instante visible en una réplica dice hasta cuándo está al día (ver EnrutadorReplicas).
+ * Una sola fila (id = 1); se escribe con JDBC, la entidad solo declara la tabla.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "latido_replicacion")
+public class LatidoReplicacion {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "instante", nullable = false)
+    private LocalDateTime instante;
+}
@@ -0,0 +1,5 @@
+package com.hospital.agendamiento_service.entity;
+
+public enum OperacionCita {
+    AGENDAR, MODIFICAR, ANULAR
+}
@@ -0,0 +1,72 @@
+package com.hospital.agendamiento_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Horario ocupado por un paciente, guardado en el shard del paciente. Con los médicos repartidos entre
+ * nodos, las citas de un paciente pueden estar en cualquiera de ellos: antes de agendar o mover una cita,
+ * el shard del médico reserva aquí el horario, y el evento de la cita confirma o libera la reserva.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "reservas_paciente", indexes = {
+        @Index(name = "idx_reservas_paciente_inicio", columnList = "id_paciente, inicio"),
+        @Index(name = "idx_reservas_cita", columnList = "cita_id"),
+        @Index(name = "idx_reservas_estado_created", columnList = "estado, created_at")
+})
+public class ReservaPaciente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservas_paciente_seq")
+    @SequenceGenerator(name = "reservas_paciente_seq", sequenceName = "reservas_paciente_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "id_paciente", nullable = false)
+    private Long idPaciente;
+
+    @Column(name = "inicio", nullable = false)
+    private LocalDateTime inicio;
+
+    @Column(name = "fin", nullable = false)
+    private LocalDateTime fin;
+
+    // Cita que ocupa el horario; null mientras la reserva está pendiente
+    @Column(name = "cita_id")
+    private Long citaId;
+
+    @Column(name = "shard_origen", nullable = false)
+    private Integer shardOrigen;
+
+    // requestId de la solicitud (agendar o modificar) que pidió la reserva
+    @Column(name = "request_id", nullable = false, unique = true)
+    private String requestId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false)
+    private EstadoReserva estado = EstadoReserva.PENDIENTE;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public ReservaPaciente(Long idPaciente, LocalDateTime inicio, LocalDateTime fin, Long citaId,
+                           Integer shardOrigen, String requestId) {
+        this.idPaciente = idPaciente;
+        this.inicio = inicio;
+        this.fin = fin;
+        this.citaId = citaId;
+        this.shardOrigen = shardOrigen;
+        this.requestId = requestId;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public void confirmar(Long citaId, LocalDateTime inicio, LocalDateTime fin) {
+        this.citaId = citaId;
+        this.inicio = inicio;
+        this.fin = fin;
+        this.estado = EstadoReserva.CONFIRMADA;
+    }
+}
@@ -0,0 +1,61 @@
+package com.hospital.agendamiento_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDateTime;
+
+/**
+ * Registro de cada requestId procesado (agendar, modificar o anular) y la cita afectada.
+ * La clave primaria sobre request_id es la garantía final de idempotencia ante carreras.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "solicitudes_procesadas", indexes = {
+        @Index(name = "idx_solicitudes_cita", columnList = "cita_id")
+})
+public class SolicitudProcesada implements Persistable<String> {
+
+    @Id
+    @Column(name = "request_id")
+    private String requestId;
+
+    @Column(name = "cita_id", nullable = false)
+    private Long citaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operacion", nullable = false)
+    private OperacionCita operacion;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // ID asignado por el cliente: sin esto save() haría un SELECT previo (merge) en cada escritura
+    @Transient
+    private boolean nueva = true;
+
+    public SolicitudProcesada(String requestId, Long citaId, OperacionCita operacion) {
+        this.requestId = requestId;
+        this.citaId = citaId;
+        this.operacion = operacion;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String getId() {
+        return requestId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nueva;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarPersistida() {
+        this.nueva = false;
+    }
+}
@@ -0,0 +1,18 @@
+package com.hospital.agendamiento_service.repository;
+
+import com.hospital.agendamiento_service.entity.CitaAnuladaReserva;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CitaAnuladaReservaRepository extends JpaRepository<CitaAnuladaReserva, Long> {
+
+    @Modifying
+    @Query("DELETE FROM CitaAnuladaReserva a WHERE a.fin < :corte")
+    int deleteTerminadas(@Param("corte") LocalDateTime corte);
+}
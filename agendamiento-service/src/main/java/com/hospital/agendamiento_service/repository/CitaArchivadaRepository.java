@@ -0,0 +1,63 @@
+package com.hospital.agendamiento_service.repository;
+
+import com.hospital.agendamiento_service.entity.CitaArchivada;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Lecturas sobre el archivo de citas; las mismas consultas que CitaRepository para que
+ * el servicio pueda fusionar ambos resultados por (inicio, id)
+ */
+@Repository
+public interface CitaArchivadaRepository extends JpaRepository<CitaArchivada, Long> {
+
+    // Buscar citas archivadas por paciente
+    List<CitaArchivada> findByIdPacienteAndEstadoInOrderByInicioAsc(Long idPaciente, Collection<EstadoCita> estados);
+
+    // ================== PAGINACIÓN POR KEYSET (inicio, id) ==================
+
+    @Query("SELECT c FROM CitaArchivada c WHERE c.idPaciente = :idPaciente AND c.estado IN :estados " +
+            "AND (c.inicio > :inicio OR (c.inicio = :inicio AND c.id > :id)) ORDER BY c.inicio ASC, c.id ASC")
+    List<CitaArchivada> findPaginaPaciente(@Param("idPaciente") Long idPaciente,
+                                           @Param("estados") Collection<EstadoCita> estados,
+                                           @Param("inicio") LocalDateTime inicio,
+                                           @Param("id") Long id,
+                                           Limit limite);
+
+    @Query("SELECT c FROM CitaArchivada c WHERE c.idMedico = :idMedico AND c.estado IN :estados " +
+            "AND (c.inicio > :inicio OR (c.inicio = :inicio AND c.id > :id)) ORDER BY c.inicio ASC, c.id ASC")
+    List<CitaArchivada> findPaginaMedico(@Param("idMedico") Long idMedico,
+                                         @Param("estados") Collection<EstadoCita> estados,
+                                         @Param("inicio") LocalDateTime inicio,
+                                         @Param("id") Long id,
+                                         Limit limite);
+
+    @Query("SELECT c FROM CitaArchivada c WHERE c.inicio >= :desde AND c.inicio < :hasta AND c.estado IN :estados " +
+            "AND (c.inicio > :inicio OR (c.inicio = :inicio AND c.id > :id)) ORDER BY c.inicio ASC, c.id ASC")
+    List<CitaArchivada> findPaginaRango(@Param("desde") LocalDateTime desde,
+                                        @Param("hasta") LocalDateTime hasta,
+                                        @Param("estados") Collection<EstadoCita> estados,
+                                        @Param("inicio") LocalDateTime inicio,
+                                        @Param("id") Long id,
+                                        Limit limite);
+
+    // Exportación: cursor JDBC con fetch size, sin materializar el resultado completo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM CitaArchivada c WHERE c.inicio >= :desde AND c.inicio < :hasta AND c.estado IN :estados " +
+            "ORDER BY c.inicio ASC, c.id ASC")
+    Stream<CitaArchivada> streamCitasByFecha(@Param("desde") LocalDateTime desde,
+                                             @Param("hasta") LocalDateTime hasta,
+                                             @Param("estados") Collection<EstadoCita> estados);
+}
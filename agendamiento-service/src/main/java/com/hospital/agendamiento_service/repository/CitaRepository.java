@@ -2,40 +2,78 @@ package com.hospital.agendamiento_service.repository;
 
 import com.hospital.agendamiento_service.entity.Cita;
 import com.hospital.agendamiento_service.entity.EstadoCita;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CitaRepository extends JpaRepository<Cita, Long> {
 
-    // Buscar por requestId para idempotencia
+    // Buscar por el requestId con el que se creó la cita
     Optional<Cita> findByRequestId(String requestId);
 
-    // Verificar disponibilidad del médico en un horario específico
-    @Query("SELECT COUNT(c) FROM Cita c WHERE c.idMedico = :idMedico " +
-            "AND c.estado IN ('AGENDADA', 'CONFIRMADA') " +
-            "AND ((c.inicio <= :inicio AND c.fin > :inicio) " +
-            "OR (c.inicio < :fin AND c.fin >= :fin) " +
-            "OR (c.inicio >= :inicio AND c.fin <= :fin))")
-    int countCitasConflictivasMedico(@Param("idMedico") Long idMedico,
-                                     @Param("inicio") LocalDateTime inicio,
-                                     @Param("fin") LocalDateTime fin);
+    // Médico y paciente de una cita, sin cargar la entidad (para resolver bloqueos)
+    @Query("SELECT c.idMedico AS idMedico, c.idPaciente AS idPaciente FROM Cita c WHERE c.id = :id")
+    Optional<Participantes> findParticipantesById(@Param("id") Long id);
+
+    // Estados que ocupan el horario del médico y del paciente (una cita modificada sigue ocupándolo)
+    List<EstadoCita> ESTADOS_CONFLICTO = List.of(EstadoCita.AGENDADA, EstadoCita.CONFIRMADA, EstadoCita.MODIFICADA);
+
+    // Verificar disponibilidad del médico en un horario específico.
+    // Solapamiento canónico (inicio < :fin AND fin > :inicio) resuelto como sonda EXISTS (LIMIT 1)
+    default boolean existeConflictoMedico(Long idMedico, LocalDateTime inicio, LocalDateTime fin) {
+        return existsByIdMedicoAndEstadoInAndInicioBeforeAndFinAfter(idMedico, ESTADOS_CONFLICTO, fin, inicio);
+    }
 
     // Verificar disponibilidad del paciente en un horario específico
-    @Query("SELECT COUNT(c) FROM Cita c WHERE c.idPaciente = :idPaciente " +
-            "AND c.estado IN ('AGENDADA', 'CONFIRMADA') " +
-            "AND ((c.inicio <= :inicio AND c.fin > :inicio) " +
-            "OR (c.inicio < :fin AND c.fin >= :fin) " +
-            "OR (c.inicio >= :inicio AND c.fin <= :fin))")
-    int countCitasConflictivasPaciente(@Param("idPaciente") Long idPaciente,
-                                       @Param("inicio") LocalDateTime inicio,
-                                       @Param("fin") LocalDateTime fin);
+    default boolean existeConflictoPaciente(Long idPaciente, LocalDateTime inicio, LocalDateTime fin) {
+        return existsByIdPacienteAndEstadoInAndInicioBeforeAndFinAfter(idPaciente, ESTADOS_CONFLICTO, fin, inicio);
+    }
+
+    // Mismas comprobaciones al mover una cita: se excluye a sí misma para que no choque con su horario anterior
+    default boolean existeConflictoMedico(Long idMedico, LocalDateTime inicio, LocalDateTime fin, Long citaExcluida) {
+        return existsByIdMedicoAndEstadoInAndInicioBeforeAndFinAfterAndIdNot(idMedico, ESTADOS_CONFLICTO, fin, inicio, citaExcluida);
+    }
+
+    default boolean existeConflictoPaciente(Long idPaciente, LocalDateTime inicio, LocalDateTime fin, Long citaExcluida) {
+        return existsByIdPacienteAndEstadoInAndInicioBeforeAndFinAfterAndIdNot(idPaciente, ESTADOS_CONFLICTO, fin, inicio, citaExcluida);
+    }
+
+    boolean existsByIdMedicoAndEstadoInAndInicioBeforeAndFinAfter(Long idMedico, Collection<EstadoCita> estados,
+                                                                  LocalDateTime fin, LocalDateTime inicio);
+
+    boolean existsByIdPacienteAndEstadoInAndInicioBeforeAndFinAfter(Long idPaciente, Collection<EstadoCita> estados,
+                                                                    LocalDateTime fin, LocalDateTime inicio);
+
+    boolean existsByIdMedicoAndEstadoInAndInicioBeforeAndFinAfterAndIdNot(Long idMedico, Collection<EstadoCita> estados,
+                                                                          LocalDateTime fin, LocalDateTime inicio, Long id);
+
+    boolean existsByIdPacienteAndEstadoInAndInicioBeforeAndFinAfterAndIdNot(Long idPaciente, Collection<EstadoCita> estados,
+                                                                            LocalDateTime fin, LocalDateTime inicio, Long id);
+
+    // Médicos y pacientes con citas activas en un rango (precarga del índice de agenda)
+    @Query("SELECT DISTINCT c.idMedico FROM Cita c WHERE c.estado IN :estados AND c.fin > :desde AND c.inicio < :hasta")
+    List<Long> findMedicosConCitasEntre(@Param("estados") Collection<EstadoCita> estados,
+                                        @Param("desde") LocalDateTime desde,
+                                        @Param("hasta") LocalDateTime hasta);
+
+    @Query("SELECT DISTINCT c.idPaciente FROM Cita c WHERE c.estado IN :estados AND c.fin > :desde AND c.inicio < :hasta")
+    List<Long> findPacientesConCitasEntre(@Param("estados") Collection<EstadoCita> estados,
+                                          @Param("desde") LocalDateTime desde,
+                                          @Param("hasta") LocalDateTime hasta);
 
     // Buscar citas por paciente
     List<Cita> findByIdPacienteAndEstadoInOrderByInicioAsc(Long idPaciente, List<EstadoCita> estados);
@@ -53,4 +91,59 @@ public interface CitaRepository extends JpaRepository<Cita, Long> {
     // Buscar citas activas (no anuladas)
     @Query("SELECT c FROM Cita c WHERE c.estado != 'ANULADA' ORDER BY c.inicio ASC")
     List<Cita> findCitasActivas();
+
+    // ================== PAGINACIÓN POR KEYSET (inicio, id) ==================
+
+    @Query("SELECT c FROM Cita c WHERE c.idPaciente = :idPaciente AND c.estado IN :estados " +
+            "AND (c.inicio > :inicio OR (c.inicio = :inicio AND c.id > :id)) ORDER BY c.inicio ASC, c.id ASC")
+    List<Cita> findPaginaPaciente(@Param("idPaciente") Long idPaciente,
+                                  @Param("estados") Collection<EstadoCita> estados,
+                                  @Param("inicio") LocalDateTime inicio,
+                                  @Param("id") Long id,
+                                  Limit limite);
+
+    @Query("SELECT c FROM Cita c WHERE c.idMedico = :idMedico AND c.estado IN :estados " +
+            "AND (c.inicio > :inicio OR (c.inicio = :inicio AND c.id > :id)) ORDER BY c.inicio ASC, c.id ASC")
+    List<Cita> findPaginaMedico(@Param("idMedico") Long idMedico,
+                                @Param("estados") Collection<EstadoCita> estados,
+                                @Param("inicio") LocalDateTime inicio,
+                                @Param("id") Long id,
+                                Limit limite);
+
+    @Query("SELECT c FROM Cita c WHERE c.inicio >= :desde AND c.inicio < :hasta AND c.estado IN :estados " +
+            "AND (c.inicio > :inicio OR (c.inicio = :inicio AND c.id > :id)) ORDER BY c.inicio ASC, c.id ASC")
+    List<Cita> findPaginaRango(@Param("desde") LocalDateTime desde,
+                               @Param("hasta") LocalDateTime hasta,
+                               @Param("estados") Collection<EstadoCita> estados,
+                               @Param("inicio") LocalDateTime inicio,
+                               @Param("id") Long id,
+                               Limit limite);
+
+    // Exportación: cursor JDBC con fetch size, sin materializar el resultado completo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM Cita c WHERE c.inicio >= :desde AND c.inicio < :hasta AND c.estado IN :estados " +
+            "ORDER BY c.inicio ASC, c.id ASC")
+    Stream<Cita> streamCitasByFecha(@Param("desde") LocalDateTime desde,
+                                    @Param("hasta") LocalDateTime hasta,
+                                    @Param("estados") Collection<EstadoCita> estados);
+
+    // Lectura de modificar/anular con agendamiento.concurrencia.bloqueo-fila: la fila queda bloqueada hasta el commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cita c WHERE c.id = :id")
+    Optional<Cita> findByIdParaActualizar(@Param("id") Long id);
+
+    // ================== ARCHIVO (filas que salen de la tabla caliente) ==================
+
+    // Citas terminadas antes del corte; bloqueadas hasta el commit para que nadie las modifique a mitad del traslado
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Cita> findByFinBeforeOrderByFinAsc(LocalDateTime corte, Limit limite);
+
+    // Citas en un estado (las anuladas), con el mismo bloqueo
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Cita> findByEstadoOrderByIdAsc(EstadoCita estado, Limit limite);
+
+    interface Participantes {
+        Long getIdMedico();
+        Long getIdPaciente();
+    }
 }
\ No newline at end of file
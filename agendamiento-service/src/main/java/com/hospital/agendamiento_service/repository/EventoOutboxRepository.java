@@ -0,0 +1,15 @@
+package com.hospital.agendamiento_service.repository;
+
+import com.hospital.agendamiento_service.entity.EventoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    // Siguiente lote de eventos pendientes, en orden de escritura
+    List<EventoOutbox> findAllByOrderByIdAsc(Pageable pageable);
+}
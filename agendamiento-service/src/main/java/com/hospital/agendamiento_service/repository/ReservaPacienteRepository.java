@@ -0,0 +1,52 @@
+package com.hospital.agendamiento_service.repository;
+
+import com.hospital.agendamiento_service.entity.EstadoReserva;
+import com.hospital.agendamiento_service.entity.ReservaPaciente;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReservaPacienteRepository extends JpaRepository<ReservaPaciente, Long> {
+
+    Optional<ReservaPaciente> findByRequestId(String requestId);
+
+    // Reserva solapada del paciente, sin contar las de la cita que se está moviendo (citaExcluida puede ser null):
+    // las confirmadas llevan su citaId; la de agendar, mientras sigue pendiente, solo su requestId
+    @Query("SELECT COUNT(r) > 0 FROM ReservaPaciente r WHERE r.idPaciente = :idPaciente " +
+            "AND r.inicio < :fin AND r.fin > :inicio " +
+            "AND (:citaExcluida IS NULL OR ((r.citaId IS NULL OR r.citaId <> :citaExcluida) " +
+            "AND (:requestIdCita IS NULL OR r.requestId <> :requestIdCita)))")
+    boolean existeSolapada(@Param("idPaciente") Long idPaciente,
+                           @Param("inicio") LocalDateTime inicio,
+                           @Param("fin") LocalDateTime fin,
+                           @Param("citaExcluida") Long citaExcluida,
+                           @Param("requestIdCita") String requestIdCita);
+
+    // Otras reservas de la cita (el horario anterior tras una modificación)
+    @Modifying
+    @Query("DELETE FROM ReservaPaciente r WHERE r.citaId = :citaId AND r.requestId <> :requestId")
+    int deleteOtrasDeCita(@Param("citaId") Long citaId, @Param("requestId") String requestId);
+
+    @Modifying
+    @Query("DELETE FROM ReservaPaciente r WHERE r.citaId = :citaId")
+    int deleteByCita(@Param("citaId") Long citaId);
+
+    @Modifying
+    @Query("DELETE FROM ReservaPaciente r WHERE r.requestId = :requestId")
+    int deleteByRequest(@Param("requestId") String requestId);
+
+    @Modifying
+    @Query("DELETE FROM ReservaPaciente r WHERE r.fin < :corte")
+    int deleteTerminadas(@Param("corte") LocalDateTime corte);
+
+    // Pendientes que el evento de su cita no ha confirmado a tiempo
+    List<ReservaPaciente> findByEstadoAndCreatedAtBeforeOrderByIdAsc(EstadoReserva estado, LocalDateTime corte, Limit limite);
+}
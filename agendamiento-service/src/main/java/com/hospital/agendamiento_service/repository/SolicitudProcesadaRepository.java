@@ -0,0 +1,16 @@
+package com.hospital.agendamiento_service.repository;
+
+import com.hospital.agendamiento_service.entity.SolicitudProcesada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface SolicitudProcesadaRepository extends JpaRepository<SolicitudProcesada, String> {
+
+    // Todos los requestId procesados, para precargar el filtro de Bloom al arrancar
+    @Query("SELECT s.requestId FROM SolicitudProcesada s")
+    Stream<String> streamRequestIds();
+}
@@ -0,0 +1,280 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.FranjaDisponible;
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.repository.CitaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice en memoria de las citas activas por médico y por paciente, ordenado por inicio.
+ * Permite detectar solapamientos en O(log n) sin ir a la base de datos, y mantiene
+ * por médico un mapa de bits de franjas ocupadas para las consultas de disponibilidad.
+ */
+@Component
+public class AgendaIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AgendaIndex.class);
+
+    // Los mismos estados que la comprobación contra la BD: índice y guardia no pueden discrepar
+    public static final List<EstadoCita> ESTADOS_ACTIVOS = CitaRepository.ESTADOS_CONFLICTO;
+
+    private static final int FRANJAS_CARGA = 64;
+
+    private static final Comparator<Intervalo> POR_INICIO =
+            Comparator.comparing(Intervalo::inicio).thenComparing(Intervalo::citaId);
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    // Días por delante cuyas agendas se cargan al arrancar (0: solo carga bajo demanda)
+    @Value("${agendamiento.indice.precarga-dias:7}")
+    private int precargaDias;
+
+    private final ConcurrentMap<Long, NavigableSet<Intervalo>> porMedico = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, NavigableSet<Intervalo>> porPaciente = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Intervalo> porCita = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, BitmapDisponibilidad> ocupacionMedico = new ConcurrentHashMap<>();
+
+    // Serializan la carga de una agenda con los cambios confirmados sobre ella. Son ReentrantLock
+    // y no computeIfAbsent (synchronized) porque la carga hace E/S: no fijan hilos virtuales
+    private final ReentrantLock[] cargasMedico = crearFranjas();
+    private final ReentrantLock[] cargasPaciente = crearFranjas();
+
+    /**
+     * Intervalo [inicio, fin) ocupado por una cita activa
+     */
+    public record Intervalo(Long citaId, Long idMedico, Long idPaciente, LocalDateTime inicio, LocalDateTime fin) {
+
+        static Intervalo de(Cita cita) {
+            return new Intervalo(cita.getId(), cita.getIdMedico(), cita.getIdPaciente(), cita.getInicio(), cita.getFin());
+        }
+
+        // Cota usada para recorrer los intervalos que empiezan antes de 'instante'
+        static Intervalo cota(LocalDateTime instante) {
+            return new Intervalo(Long.MIN_VALUE, null, null, instante, instante);
+        }
+    }
+
+    /**
+     * Carga al arrancar las agendas con citas en los próximos días, para que las primeras solicitudes
+     * no paguen la carga con el bloqueo de agenda tomado. Cada agenda se carga por el camino normal
+     * (su propia consulta con el bloqueo de carga), así que convive con las solicitudes que ya lleguen.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        if (precargaDias <= 0) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime hasta = ahora.plusDays(precargaDias);
+        List<Long> medicos = citaRepository.findMedicosConCitasEntre(ESTADOS_ACTIVOS, ahora, hasta);
+        List<Long> pacientes = citaRepository.findPacientesConCitasEntre(ESTADOS_ACTIVOS, ahora, hasta);
+        medicos.forEach(this::agendaMedico);
+        pacientes.forEach(this::agendaPaciente);
+        log.info("Índice de agenda precargado: {} médicos y {} pacientes", medicos.size(), pacientes.size());
+    }
+
+    /**
+     * Indica si el médico tiene alguna cita activa que se solape con [inicio, fin)
+     */
+    public boolean medicoTieneConflicto(Long idMedico, LocalDateTime inicio, LocalDateTime fin, Long citaExcluida) {
+        return hayConflicto(agendaMedico(idMedico), inicio, fin, citaExcluida);
+    }
+
+    /**
+     * Indica si el paciente tiene alguna cita activa que se solape con [inicio, fin)
+     */
+    public boolean pacienteTieneConflicto(Long idPaciente, LocalDateTime inicio, LocalDateTime fin, Long citaExcluida) {
+        return hayConflicto(agendaPaciente(idPaciente), inicio, fin, citaExcluida);
+    }
+
+    /**
+     * Huecos libres del médico entre 'desde' y 'hasta' de al menos 'duracionMinutos'
+     */
+    public List<FranjaDisponible> franjasLibresMedico(Long idMedico, LocalDateTime desde, LocalDateTime hasta,
+                                                      int duracionMinutos) {
+        agendaMedico(idMedico);
+        return ocupacionMedico.get(idMedico).franjasLibres(desde, hasta, duracionMinutos, LocalDateTime.now());
+    }
+
+    /**
+     * Refleja en el índice el estado actual de la cita. Si hay una transacción en curso
+     * el cambio se aplica tras el commit, para no publicar filas que luego se revierten.
+     */
+    public void sincronizar(Cita cita) {
+        Intervalo intervalo = Intervalo.de(cita);
+        boolean activa = ESTADOS_ACTIVOS.contains(cita.getEstado());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(intervalo, activa);
+                }
+            });
+        } else {
+            aplicar(intervalo, activa);
+        }
+    }
+
+    /**
+     * Vacía el índice; se recarga bajo demanda desde la base de datos
+     */
+    public void limpiar() {
+        porMedico.clear();
+        ocupacionMedico.clear();
+        porPaciente.clear();
+        porCita.clear();
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private NavigableSet<Intervalo> agendaMedico(Long idMedico) {
+        NavigableSet<Intervalo> cargada = porMedico.get(idMedico);
+        if (cargada != null) {
+            return cargada;
+        }
+        ReentrantLock carga = franja(cargasMedico, idMedico);
+        carga.lock();
+        try {
+            cargada = porMedico.get(idMedico);
+            if (cargada != null) {
+                return cargada;
+            }
+            NavigableSet<Intervalo> agenda = cargar(citaRepository.findByIdMedicoAndEstadoInOrderByInicioAsc(idMedico, ESTADOS_ACTIVOS));
+            BitmapDisponibilidad ocupacion = new BitmapDisponibilidad();
+            agenda.stream().map(i -> i.inicio().toLocalDate()).distinct()
+                    .forEach(dia -> ocupacion.recalcularDia(dia, agenda));
+            // El mapa de bits se publica antes que la agenda: quien ve la agenda ve también su ocupación
+            ocupacionMedico.put(idMedico, ocupacion);
+            porMedico.put(idMedico, agenda);
+            return agenda;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private NavigableSet<Intervalo> agendaPaciente(Long idPaciente) {
+        NavigableSet<Intervalo> cargada = porPaciente.get(idPaciente);
+        if (cargada != null) {
+            return cargada;
+        }
+        ReentrantLock carga = franja(cargasPaciente, idPaciente);
+        carga.lock();
+        try {
+            cargada = porPaciente.get(idPaciente);
+            if (cargada != null) {
+                return cargada;
+            }
+            NavigableSet<Intervalo> agenda = cargar(citaRepository.findByIdPacienteAndEstadoInOrderByInicioAsc(idPaciente, ESTADOS_ACTIVOS));
+            porPaciente.put(idPaciente, agenda);
+            return agenda;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    private NavigableSet<Intervalo> cargar(List<Cita> citas) {
+        NavigableSet<Intervalo> agenda = new ConcurrentSkipListSet<>(POR_INICIO);
+        for (Cita cita : citas) {
+            Intervalo intervalo = Intervalo.de(cita);
+            agenda.add(intervalo);
+            porCita.put(intervalo.citaId(), intervalo);
+        }
+        return agenda;
+    }
+
+    private void aplicar(Intervalo intervalo, boolean activa) {
+        Intervalo anterior = activa ? porCita.put(intervalo.citaId(), intervalo) : porCita.remove(intervalo.citaId());
+
+        // Solo se actualizan las agendas ya cargadas; las demás leerán el estado confirmado de la BD.
+        // Si la agenda se está cargando, se espera a que termine para no perder el cambio
+        ReentrantLock cargaMedico = franja(cargasMedico, intervalo.idMedico());
+        cargaMedico.lock();
+        try {
+            actualizarMedico(intervalo, anterior, activa);
+        } finally {
+            cargaMedico.unlock();
+        }
+        ReentrantLock cargaPaciente = franja(cargasPaciente, intervalo.idPaciente());
+        cargaPaciente.lock();
+        try {
+            porPaciente.computeIfPresent(intervalo.idPaciente(), (id, agenda) -> reemplazar(agenda, anterior, intervalo, activa));
+        } finally {
+            cargaPaciente.unlock();
+        }
+    }
+
+    private void actualizarMedico(Intervalo intervalo, Intervalo anterior, boolean activa) {
+        porMedico.computeIfPresent(intervalo.idMedico(), (id, agenda) -> {
+            reemplazar(agenda, anterior, intervalo, activa);
+            // El mapa de bits se actualiza solo en los días tocados por el cambio
+            BitmapDisponibilidad ocupacion = ocupacionMedico.get(id);
+            ocupacion.podar(LocalDate.now());
+            ocupacion.recalcularDia(intervalo.inicio().toLocalDate(), agenda);
+            if (anterior != null) {
+                ocupacion.recalcularDia(anterior.inicio().toLocalDate(), agenda);
+            }
+            return agenda;
+        });
+    }
+
+    private NavigableSet<Intervalo> reemplazar(NavigableSet<Intervalo> agenda, Intervalo anterior,
+                                               Intervalo nuevo, boolean activa) {
+        if (anterior != null) {
+            agenda.remove(anterior);
+        }
+        if (activa) {
+            agenda.add(nuevo);
+        }
+        // Las citas ya terminadas no pueden generar conflictos con citas futuras
+        LocalDateTime ahora = LocalDateTime.now();
+        while (!agenda.isEmpty() && agenda.first().fin().isBefore(ahora)) {
+            porCita.remove(agenda.pollFirst().citaId());
+        }
+        return agenda;
+    }
+
+    private static ReentrantLock[] crearFranjas() {
+        ReentrantLock[] franjas = new ReentrantLock[FRANJAS_CARGA];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        return franjas;
+    }
+
+    private static ReentrantLock franja(ReentrantLock[] franjas, Long id) {
+        return franjas[Math.floorMod(Long.hashCode(id), franjas.length)];
+    }
+
+    private boolean hayConflicto(NavigableSet<Intervalo> agenda, LocalDateTime inicio, LocalDateTime fin, Long citaExcluida) {
+        // Las citas activas de un mismo médico o paciente no se solapan entre sí, así que
+        // también están ordenadas por fin: basta con revisar la última que empieza antes de 'fin'
+        for (Intervalo intervalo : agenda.headSet(Intervalo.cota(fin), false).descendingSet()) {
+            if (intervalo.citaId().equals(citaExcluida)) {
+                continue;
+            }
+            return intervalo.fin().isAfter(inicio);
+        }
+        return false;
+    }
+}
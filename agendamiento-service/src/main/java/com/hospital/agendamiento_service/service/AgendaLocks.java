@@ -0,0 +1,101 @@
+package com.hospital.agendamiento_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bloqueos por franjas (striped locks) sobre médicos y pacientes.
+ * Serializa solo las operaciones que tocan al mismo médico o al mismo paciente;
+ * las agendas de médicos distintos avanzan en paralelo.
+ */
+@Component
+public class AgendaLocks {
+
+    private final ReentrantLock[] franjas;
+    private final long timeoutMs;
+
+    public AgendaLocks(@Value("${agendamiento.locks.franjas:1024}") int numeroFranjas,
+                       @Value("${agendamiento.locks.timeout-ms:5000}") long timeoutMs) {
+        this.franjas = new ReentrantLock[numeroFranjas];
+        for (int i = 0; i < numeroFranjas; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Ejecuta la acción con la agenda del médico y la del paciente bloqueadas.
+     * La acción debe incluir el commit para que la siguiente operación vea sus cambios.
+     */
+    public <T> T conBloqueo(Long idMedico, Long idPaciente, Supplier<T> accion) {
+        int franjaMedico = franja(idMedico, 0x9E3779B9);
+        int franjaPaciente = franja(idPaciente, 0x85EBCA6B);
+
+        // Orden fijo de adquisición para evitar interbloqueos
+        ReentrantLock primero = franjas[Math.min(franjaMedico, franjaPaciente)];
+        ReentrantLock segundo = franjas[Math.max(franjaMedico, franjaPaciente)];
+
+        adquirir(primero);
+        try {
+            adquirir(segundo);
+            try {
+                return accion.get();
+            } finally {
+                segundo.unlock();
+            }
+        } finally {
+            primero.unlock();
+        }
+    }
+
+    /**
+     * Variante para lotes: bloquea las agendas de todos los médicos y pacientes indicados
+     */
+    public <T> T conBloqueo(Collection<Long> idsMedico, Collection<Long> idsPaciente, Supplier<T> accion) {
+        // TreeSet: franjas sin repetir y en orden ascendente, el mismo orden que la variante simple
+        TreeSet<Integer> indices = new TreeSet<>();
+        idsMedico.forEach(id -> indices.add(franja(id, 0x9E3779B9)));
+        idsPaciente.forEach(id -> indices.add(franja(id, 0x85EBCA6B)));
+
+        Deque<ReentrantLock> tomados = new ArrayDeque<>();
+        try {
+            for (int indice : indices) {
+                adquirir(franjas[indice]);
+                tomados.push(franjas[indice]);
+            }
+            return accion.get();
+        } finally {
+            while (!tomados.isEmpty()) {
+                tomados.pop().unlock();
+            }
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private void adquirir(ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("La agenda está ocupada, intente nuevamente");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Operación interrumpida esperando la agenda");
+        }
+    }
+
+    // Médicos y pacientes usan semillas distintas para no compartir franja por tener el mismo ID
+    private int franja(Long id, int semilla) {
+        int h = Long.hashCode(id) * semilla;
+        h ^= (h >>> 16);
+        return Math.floorMod(h, franjas.length);
+    }
+}
@@ -0,0 +1,88 @@
+package com.hospital.agendamiento_service.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Anillo de hash consistente que reparte los médicos entre los nodos de agendamiento-service
+ * (y los pacientes entre los nodos que guardan sus reservas). Cada nodo ocupa VIRTUALES posiciones:
+ * añadir o quitar un nodo solo mueve las claves de sus tramos.
+ * api-gateway tiene la misma clase para enrutar: las dos deben dar el mismo nodo para cada clave.
+ */
+public class AnilloShards {
+
+    // Los IDs de cita llevan el nodo en los bits altos: id = (nodo << 40) + secuencia local
+    public static final int BITS_LOCALES = 40;
+
+    private static final int VIRTUALES = 128;
+
+    private final NavigableMap<Long, Integer> anillo = new TreeMap<>();
+    private final Map<Integer, String> urls;
+    private final int propio;
+
+    public AnilloShards(Map<Integer, String> urls, int propio) {
+        if (!urls.containsKey(propio)) {
+            throw new IllegalArgumentException("El shard " + propio + " no está en la lista de nodos " + urls.keySet());
+        }
+        this.urls = Collections.unmodifiableMap(new LinkedHashMap<>(urls));
+        this.propio = propio;
+        for (int nodo : urls.keySet()) {
+            for (int i = 0; i < VIRTUALES; i++) {
+                anillo.put(mezclar(((long) nodo << 32) | i), nodo);
+            }
+        }
+    }
+
+    /**
+     * Lee la lista "1=http://host-1:8080,2=http://host-2:8080"
+     */
+    public static Map<Integer, String> parsear(String[] nodos) {
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (String nodo : nodos) {
+            int igual = nodo.indexOf('=');
+            if (igual < 1) {
+                throw new IllegalArgumentException("Nodo mal formado (se espera id=url): " + nodo);
+            }
+            urls.put(Integer.parseInt(nodo.substring(0, igual).trim()), nodo.substring(igual + 1).trim());
+        }
+        return urls;
+    }
+
+    /**
+     * Nodo dueño de la clave (ID de médico o de paciente)
+     */
+    public int nodoDe(long clave) {
+        Map.Entry<Long, Integer> tramo = anillo.ceilingEntry(mezclar(clave));
+        return (tramo != null ? tramo : anillo.firstEntry()).getValue();
+    }
+
+    public boolean esPropio(long idMedico) {
+        return nodoDe(idMedico) == propio;
+    }
+
+    public int propio() {
+        return propio;
+    }
+
+    public String url(int nodo) {
+        return urls.get(nodo);
+    }
+
+    public static int nodoDeCita(long idCita) {
+        return (int) (idCita >>> BITS_LOCALES);
+    }
+
+    public static long primerIdCita(int nodo) {
+        return (long) nodo << BITS_LOCALES;
+    }
+
+    // Finalizador de SplitMix64: reparte por todo el anillo claves consecutivas
+    static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,90 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.CitaArchivada;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.repository.CitaArchivadaRepository;
+import com.hospital.agendamiento_service.repository.CitaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene acotada la tabla caliente 'citas': mueve a 'citas_archivo' las citas anuladas y las
+ * terminadas hace más de 'margen-horas', en lotes de una transacción cada uno (copiar + borrar).
+ * Las comprobaciones de conflicto, la carga del índice y la disponibilidad solo leen la tabla
+ * caliente; las consultas de CitaService leen las dos.
+ */
+@Component
+public class ArchivadorCitas {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivadorCitas.class);
+
+    @Autowired
+    private CitaRepository citaRepository;
+
+    @Autowired
+    private CitaArchivadaRepository citaArchivadaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${agendamiento.archivo.tamano-lote:1000}")
+    private int tamanoLote;
+
+    @Value("${agendamiento.archivo.margen-horas:24}")
+    private long margenHoras;
+
+    /**
+     * Archivar en lotes hasta que no quede nada que mover
+     */
+    @Scheduled(fixedDelayString = "${agendamiento.archivo.intervalo-ms:3600000}",
+            initialDelayString = "${agendamiento.archivo.retraso-inicial-ms:60000}")
+    public void archivar() {
+        try {
+            LocalDateTime corte = LocalDateTime.now().minusHours(margenHoras);
+            long terminadas = moverTodas(() -> citaRepository.findByFinBeforeOrderByFinAsc(corte, Limit.of(tamanoLote)));
+            long anuladas = moverTodas(() -> citaRepository.findByEstadoOrderByIdAsc(EstadoCita.ANULADA, Limit.of(tamanoLote)));
+            if (terminadas + anuladas > 0) {
+                log.info("Archivadas {} citas terminadas antes de {} y {} anuladas", terminadas, corte, anuladas);
+            }
+        } catch (Exception e) {
+            // Lo no movido sigue en la tabla caliente y se reintenta en la próxima pasada
+            log.warn("Error al archivar citas: {}", e.getMessage());
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private long moverTodas(Supplier<List<Cita>> siguienteLote) {
+        long total = 0;
+        int movidas;
+        do {
+            movidas = transactionTemplate.execute(status -> mover(siguienteLote.get()));
+            total += movidas;
+        } while (movidas == tamanoLote);
+        return total;
+    }
+
+    // Las filas llegan bloqueadas: una modificación concurrente espera al commit y ya no las encuentra
+    private int mover(List<Cita> lote) {
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        // 1. Copiar al archivo (INSERT en lotes JDBC)
+        citaArchivadaRepository.saveAll(lote.stream().map(CitaArchivada::de).collect(Collectors.toList()));
+        // 2. Borrar de la tabla caliente con un único DELETE ... WHERE id IN
+        citaRepository.deleteAllByIdInBatch(lote.stream().map(Cita::getId).collect(Collectors.toList()));
+        return lote.size();
+    }
+}
@@ -0,0 +1,104 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.FranjaDisponible;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Ocupación de un médico en franjas de 5 minutos dentro del horario laboral, un BitSet por día.
+ * Un bit encendido indica que la franja está (total o parcialmente) ocupada por una cita activa.
+ */
+public class BitmapDisponibilidad {
+
+    public static final int MINUTOS_FRANJA = 5;
+    public static final LocalTime APERTURA = LocalTime.of(8, 0);
+    public static final LocalTime CIERRE = LocalTime.of(18, 0);
+    static final int FRANJAS_DIA = (int) (Duration.between(APERTURA, CIERRE).toMinutes() / MINUTOS_FRANJA);
+
+    // Solo se guardan los días con alguna franja ocupada
+    private final TreeMap<LocalDate, BitSet> dias = new TreeMap<>();
+
+    /**
+     * Recalcula el día a partir de las citas activas del médico (pocas decenas por día)
+     */
+    synchronized void recalcularDia(LocalDate dia, NavigableSet<AgendaIndex.Intervalo> agenda) {
+        LocalDateTime desde = dia.atStartOfDay();
+        LocalDateTime hasta = dia.plusDays(1).atStartOfDay();
+
+        BitSet ocupadas = new BitSet(FRANJAS_DIA);
+        for (AgendaIndex.Intervalo intervalo : agenda.subSet(AgendaIndex.Intervalo.cota(desde), AgendaIndex.Intervalo.cota(hasta))) {
+            int primera = Math.max(0, franja(dia, intervalo.inicio(), false));
+            int ultima = Math.min(FRANJAS_DIA, franja(dia, intervalo.fin(), true));
+            if (primera < ultima) {
+                ocupadas.set(primera, ultima);
+            }
+        }
+
+        if (ocupadas.isEmpty()) {
+            dias.remove(dia);
+        } else {
+            dias.put(dia, ocupadas);
+        }
+    }
+
+    /**
+     * Descarta los días anteriores a 'hoy'
+     */
+    synchronized void podar(LocalDate hoy) {
+        dias.headMap(hoy, false).clear();
+    }
+
+    /**
+     * Huecos libres de al menos 'duracionMinutos' entre 'desde' y 'hasta', sin incluir el pasado
+     */
+    synchronized List<FranjaDisponible> franjasLibres(LocalDateTime desde, LocalDateTime hasta,
+                                                      int duracionMinutos, LocalDateTime ahora) {
+        LocalDateTime inicioEfectivo = desde.isBefore(ahora) ? ahora : desde;
+        int franjasNecesarias = (duracionMinutos + MINUTOS_FRANJA - 1) / MINUTOS_FRANJA;
+        BitSet vacio = new BitSet(FRANJAS_DIA);
+
+        List<FranjaDisponible> libres = new ArrayList<>();
+        for (LocalDate dia = inicioEfectivo.toLocalDate(); dia.atStartOfDay().isBefore(hasta); dia = dia.plusDays(1)) {
+            int primera = Math.max(0, franja(dia, inicioEfectivo, true));
+            int limite = Math.min(FRANJAS_DIA, franja(dia, hasta, false));
+            BitSet ocupadas = dias.getOrDefault(dia, vacio);
+
+            int libre = ocupadas.nextClearBit(primera);
+            while (libre < limite) {
+                int ocupada = ocupadas.nextSetBit(libre);
+                int finLibre = ocupada < 0 ? limite : Math.min(ocupada, limite);
+                if (finLibre - libre >= franjasNecesarias) {
+                    libres.add(new FranjaDisponible(instante(dia, libre), instante(dia, finLibre)));
+                }
+                libre = ocupadas.nextClearBit(finLibre);
+            }
+        }
+        return libres;
+    }
+
+    // Índice de la franja que contiene 'momento' (o la siguiente, si se redondea hacia arriba)
+    private static int franja(LocalDate dia, LocalDateTime momento, boolean redondearArriba) {
+        Duration desdeApertura = Duration.between(dia.atTime(APERTURA), momento);
+        long segundosFranja = MINUTOS_FRANJA * 60L;
+        long segundos = desdeApertura.getSeconds();
+        if (!redondearArriba) {
+            return (int) Math.floorDiv(segundos, segundosFranja);
+        }
+        if (desdeApertura.getNano() > 0) {
+            segundos++;
+        }
+        return (int) Math.floorDiv(segundos + segundosFranja - 1, segundosFranja);
+    }
+
+    private static LocalDateTime instante(LocalDate dia, int franja) {
+        return dia.atTime(APERTURA).plusMinutes((long) franja * MINUTOS_FRANJA);
+    }
+}
@@ -0,0 +1,59 @@
+package com.hospital.agendamiento_service.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom concurrente para cadenas. Sin falsos negativos: si dice que una
+ * cadena no se añadió nunca, es seguro; si dice que sí, puede equivocarse (tasa ~fpp).
+ */
+class BloomFilter {
+
+    private final AtomicLongArray palabras;
+    private final long bits;
+    private final int funciones;
+
+    BloomFilter(long elementosEsperados, double fpp) {
+        long m = (long) Math.ceil(-elementosEsperados * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bits = Math.max(64, m);
+        this.funciones = Math.max(1, (int) Math.round((double) bits / elementosEsperados * Math.log(2)));
+        this.palabras = new AtomicLongArray((int) ((bits + 63) / 64));
+    }
+
+    void agregar(String valor) {
+        long hash = hash64(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            long mascara = 1L << bit;
+            palabras.getAndUpdate((int) (bit >>> 6), palabra -> palabra | mascara);
+        }
+    }
+
+    boolean puedeContener(String valor) {
+        long hash = hash64(valor);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < funciones; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            if ((palabras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a de 64 bits con mezcla final (splitmix64) para repartir bien ambas mitades
+    private static long hash64(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < valor.length(); i++) {
+            h ^= valor.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= (h >>> 30);
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= (h >>> 27);
+        h *= 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,97 @@
+package com.hospital.agendamiento_service.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caché local de CitaResponse por id para las consultas de estado que los clientes repiten.
+ * Caffeine aplica W-TinyLFU: una ráfaga de ids consultados una sola vez no expulsa a los frecuentes.
+ * Las escrituras de CitaService reemplazan la entrada tras el commit, así que una lectura
+ * posterior a una modificación o anulación nunca ve el estado anterior.
+ */
+@Component
+public class CitaCache {
+
+    // Caché asíncrona: el mapa guarda futuros y la carga se hace fuera de su bloqueo interno,
+    // en el hilo que la pidió (con hilos virtuales, la E/S no fija el hilo portador)
+    private final AsyncCache<Long, CitaResponse> citas;
+
+    public CitaCache(@Value("${agendamiento.cache.citas.maximo-entradas:50000}") long maximoEntradas,
+                     @Value("${agendamiento.cache.citas.ttl-minutos:10}") long ttlMinutos) {
+        this.citas = Caffeine.newBuilder()
+                .maximumSize(maximoEntradas)
+                // Cota de seguridad para escrituras hechas por otras instancias del servicio
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutos))
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Devuelve la cita en caché o la carga; la carga es única por id aunque haya lecturas concurrentes
+     */
+    public CitaResponse obtener(Long id, Function<Long, CitaResponse> cargador) {
+        CompletableFuture<CitaResponse> propio = new CompletableFuture<>();
+        CompletableFuture<CitaResponse> actual = citas.get(id, (clave, executor) -> propio);
+        if (actual == propio) {
+            // Este hilo ganó la carga; un null o un error retiran la entrada automáticamente
+            try {
+                propio.complete(cargador.apply(id));
+            } catch (RuntimeException e) {
+                propio.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return actual.join();
+    }
+
+    /**
+     * Reemplaza la entrada con el nuevo estado de la cita. Si hay una transacción en curso
+     * se aplica tras el commit; si se revierte, la entrada anterior sigue siendo válida.
+     */
+    public void actualizar(CitaResponse cita) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    citas.put(cita.getId(), CompletableFuture.completedFuture(cita));
+                }
+            });
+        } else {
+            citas.put(cita.getId(), CompletableFuture.completedFuture(cita));
+        }
+    }
+
+    /**
+     * Vacía la caché
+     */
+    public void limpiar() {
+        citas.synchronous().invalidateAll();
+    }
+
+    /**
+     * Aciertos, fallos y expulsiones acumulados desde el arranque
+     */
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = citas.synchronous().stats();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("entradas", citas.synchronous().estimatedSize());
+        resultado.put("aciertos", stats.hitCount());
+        resultado.put("fallos", stats.missCount());
+        resultado.put("tasaAciertos", stats.hitRate());
+        resultado.put("expulsiones", stats.evictionCount());
+        resultado.put("tiempoMedioCargaMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return resultado;
+    }
+}
@@ -1,17 +1,51 @@
 package com.hospital.agendamiento_service.service;
 
+import com.hospital.agendamiento_service.config.EnrutadorReplicas;
 import com.hospital.agendamiento_service.dto.*;
 import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.CitaArchivada;
 import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.entity.OperacionCita;
+import com.hospital.agendamiento_service.entity.SolicitudProcesada;
+import com.hospital.agendamiento_service.repository.CitaArchivadaRepository;
 import com.hospital.agendamiento_service.repository.CitaRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -20,29 +54,173 @@ public class CitaService {
     @Autowired
     private CitaRepository citaRepository;
 
+    @Autowired
+    private CitaArchivadaRepository citaArchivadaRepository;
+
     @Autowired
     private EventPublisher eventPublisher;
 
+    @Autowired
+    private AgendaIndex agendaIndex;
+
+    @Autowired
+    private AgendaLocks agendaLocks;
+
+    @Autowired
+    private IdempotenciaCache idempotenciaCache;
+
+    @Autowired
+    private CitaCache citaCache;
+
+    @Autowired
+    private MetricasLatencia metricas;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Solo existe con réplicas de lectura configuradas (ReplicasConfig)
+    @Autowired(required = false)
+    private EnrutadorReplicas enrutadorReplicas;
+
+    // Solo existe con los médicos repartidos entre nodos (ShardsConfig)
+    @Autowired(required = false)
+    private CoordinadorShards coordinadorShards;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final int LIMITE_MAXIMO_PAGINA = 500;
+    private static final int MAXIMO_DIAS_DISPONIBILIDAD = 62;
+
+    // Orden de la paginación por keyset; también el de la fusión de la tabla caliente con el archivo
+    private static final Comparator<Cita> POR_INICIO = Comparator.comparing(Cita::getInicio).thenComparing(Cita::getId);
+    private static final Comparator<CitaResponse> RESPUESTAS_POR_INICIO =
+            Comparator.comparing(CitaResponse::getInicio).thenComparing(CitaResponse::getId);
+
+    // Una cita por línea (NDJSON) para la exportación en streaming
+    private ObjectWriter ndjsonWriter;
+
+    @PostConstruct
+    void init() {
+        ndjsonWriter = objectMapper.writerFor(CitaResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+    }
+
+    // Confirmar contra la BD los huecos que el índice en memoria da por libres
+    @Value("${agendamiento.indice.guardia-bd:true}")
+    private boolean guardiaBd;
+
+    // Reintentos tras un conflicto de versión en modificar/anular
+    @Value("${agendamiento.concurrencia.reintentos:3}")
+    private int reintentosConcurrencia;
+
+    // Alternativa pesimista: modificar/anular leen la cita con SELECT ... FOR UPDATE y no llegan a chocar por versión.
+    // Medido con ContencionCitaBenchmark (1 vCPU, H2): a la tasa de lunes-manana (~6 cambios/s) ambas quedan
+    // dentro del ruido y no hay conflictos de versión; a 10x sobre 10 citas calientes el bloqueo de fila da
+    // mejor p50 y p99 (1,5/9 ms frente a 2,0/15 ms). La versión no es más rápida: se mantiene por defecto porque
+    // modificar ya se serializa con los bloqueos de agenda y así anular no bloquea filas ni espera a nadie.
+    // Si el volumen de cambios sobre las mismas citas crece, conviene activar esta opción y volver a medir.
+    @Value("${agendamiento.concurrencia.bloqueo-fila:false}")
+    private boolean bloqueoFila;
+
+    private final LongAdder conflictosVersion = new LongAdder();
+
     /**
      * Agendar nueva cita - Flujo principal
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CitaResponse agendarCita(AgendarCitaRequest request) {
+        long inicio = metricas.iniciar();
+        try {
+            // El bloqueo envuelve la transacción completa: se libera después del commit
+            return agendaLocks.conBloqueo(request.getIdMedico(), request.getIdPaciente(),
+                    () -> transactionTemplate.execute(status -> agendar(request)));
+        } catch (DataIntegrityViolationException e) {
+            return respuestaTrasCarrera(request.getRequestId(), e);
+        } finally {
+            metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.TOTAL, inicio);
+        }
+    }
+
+    /**
+     * Modificar cita existente
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CitaResponse modificarCita(ModificarCitaRequest request) {
+        long inicio = metricas.iniciar();
+        try {
+            CitaRepository.Participantes participantes = citaRepository.findParticipantesById(request.getIdCita())
+                    .orElseThrow(() -> citaNoEncontrada(request.getIdCita()));
+
+            // Los bloqueos protegen el horario frente a otras citas; la versión, la propia cita frente a una anulación
+            return agendaLocks.conBloqueo(participantes.getIdMedico(), participantes.getIdPaciente(),
+                    () -> conReintentos(() -> transactionTemplate.execute(status -> modificar(request))));
+        } catch (DataIntegrityViolationException e) {
+            return respuestaTrasCarrera(request.getRequestId(), e);
+        } finally {
+            metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.TOTAL, inicio);
+        }
+    }
+
+    /**
+     * Anular cita existente
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CitaResponse anularCita(AnularCitaRequest request) {
+        long inicio = metricas.iniciar();
+        try {
+            // Sin bloqueos: una modificación o anulación concurrente de la misma cita se detecta por la versión
+            return conReintentos(() -> transactionTemplate.execute(status -> anular(request)));
+        } catch (DataIntegrityViolationException e) {
+            return respuestaTrasCarrera(request.getRequestId(), e);
+        } finally {
+            metricas.registrar(OperacionCita.ANULAR, MetricasLatencia.Etapa.TOTAL, inicio);
+        }
+    }
+
+    /**
+     * Agendar un lote de citas (importación de agendas recurrentes).
+     * Todo el lote se valida en memoria y se inserta con lotes JDBC; cada ítem tiene su propio resultado.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ResultadoLoteItem> agendarCitasLote(List<AgendarCitaRequest> requests) {
+        Set<Long> medicos = requests.stream().map(AgendarCitaRequest::getIdMedico).collect(Collectors.toSet());
+        Set<Long> pacientes = requests.stream().map(AgendarCitaRequest::getIdPaciente).collect(Collectors.toSet());
+
+        return agendaLocks.conBloqueo(medicos, pacientes,
+                () -> transactionTemplate.execute(status -> agendarLote(requests)));
+    }
+
+    private CitaResponse agendar(AgendarCitaRequest request) {
         // 1. Verificar idempotencia
-        Optional<Cita> citaExistente = citaRepository.findByRequestId(request.getRequestId());
-        if (citaExistente.isPresent()) {
-            return convertirACitaResponse(citaExistente.get());
+        long etapa = metricas.iniciar();
+        Optional<CitaResponse> respuestaPrevia = respuestaIdempotente(request.getRequestId());
+        etapa = metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.IDEMPOTENCIA, etapa);
+        if (respuestaPrevia.isPresent()) {
+            return respuestaPrevia.get();
         }
 
-        // 2. Validar horarios
+        // 2. Validar horarios (y, con shards, que el médico es de este nodo)
         validarHorarios(request.getInicio(), request.getFin());
+        verificarShardMedico(request.getIdMedico());
+        etapa = metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.VALIDACION, etapa);
 
         // 3. Verificar disponibilidad del médico
-        if (!esMedicoDisponible(request.getIdMedico(), request.getInicio(), request.getFin())) {
+        boolean medicoDisponible = esMedicoDisponible(request.getIdMedico(), request.getInicio(), request.getFin());
+        etapa = metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.CONFLICTO_MEDICO, etapa);
+        if (!medicoDisponible) {
             throw new RuntimeException("El médico no está disponible en el horario solicitado");
         }
 
-        // 4. Verificar disponibilidad del paciente
-        if (!esPacienteDisponible(request.getIdPaciente(), request.getInicio(), request.getFin())) {
+        // 4. Verificar disponibilidad del paciente (con shards, también frente a sus citas en otros nodos)
+        boolean pacienteDisponible = esPacienteDisponible(request.getIdPaciente(), request.getInicio(), request.getFin())
+                && reservarPaciente(request.getIdPaciente(), request.getInicio(), request.getFin(), request.getRequestId(), null, null);
+        etapa = metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.CONFLICTO_PACIENTE, etapa);
+        if (!pacienteDisponible) {
             throw new RuntimeException("El paciente ya tiene una cita en el horario solicitado");
         }
 
@@ -57,26 +235,112 @@ public class CitaService {
         );
 
         Cita citaGuardada = citaRepository.save(nuevaCita);
+        agendaIndex.sincronizar(citaGuardada);
+        idempotenciaCache.registrar(request.getRequestId(), citaGuardada.getId(), OperacionCita.AGENDAR);
+        etapa = metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.GUARDADO, etapa);
 
         // 6. Publicar evento
         eventPublisher.publicarCitaAgendada(citaGuardada);
+        metricas.registrar(OperacionCita.AGENDAR, MetricasLatencia.Etapa.PUBLICACION, etapa);
 
         return convertirACitaResponse(citaGuardada);
     }
 
-    /**
-     * Modificar cita existente
-     */
-    public CitaResponse modificarCita(ModificarCitaRequest request) {
+    private List<ResultadoLoteItem> agendarLote(List<AgendarCitaRequest> requests) {
+        // 1. Verificar idempotencia de todo el lote (como mucho una consulta)
+        List<String> requestIds = requests.stream().map(AgendarCitaRequest::getRequestId).collect(Collectors.toList());
+        Map<String, Long> procesadas = idempotenciaCache.buscarCitas(requestIds);
+        Map<Long, Cita> existentes = procesadas.isEmpty() ? Map.of() : buscarEnAmbas(procesadas.values());
+
+        ResultadoLoteItem[] resultados = new ResultadoLoteItem[requests.size()];
+        List<Cita> nuevas = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        // Posición de la primera aparición de cada requestId: las repeticiones reciben su mismo resultado
+        Map<String, Integer> primeras = new HashMap<>();
+        Map<Integer, Integer> repetidas = new HashMap<>();
+        Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> loteMedicos = new HashMap<>();
+        Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> lotePacientes = new HashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            AgendarCitaRequest request = requests.get(i);
+
+            // Map.of() no admite get(null): solo se busca la cita si el requestId ya se procesó
+            Long citaPrevia = procesadas.get(request.getRequestId());
+            Cita existente = citaPrevia != null ? existentes.get(citaPrevia) : null;
+            if (existente != null) {
+                resultados[i] = ResultadoLoteItem.exito(i, request.getRequestId(), convertirACitaResponse(existente));
+                continue;
+            }
+            Integer primera = primeras.putIfAbsent(request.getRequestId(), i);
+            if (primera != null) {
+                repetidas.put(i, primera);
+                continue;
+            }
+
+            try {
+                // 2. Validar horarios y el nodo del médico
+                validarHorarios(request.getInicio(), request.getFin());
+                verificarShardMedico(request.getIdMedico());
+
+                // 3. Conflictos con las anteriores del mismo lote y con citas ya agendadas (índice y guardia de BD,
+                //    igual que una cita individual)
+                if (chocaEnLote(loteMedicos, request.getIdMedico(), request.getInicio(), request.getFin())
+                        || !esMedicoDisponible(request.getIdMedico(), request.getInicio(), request.getFin())) {
+                    throw new RuntimeException("El médico no está disponible en el horario solicitado");
+                }
+                if (chocaEnLote(lotePacientes, request.getIdPaciente(), request.getInicio(), request.getFin())
+                        || !esPacienteDisponible(request.getIdPaciente(), request.getInicio(), request.getFin())
+                        || !reservarPaciente(request.getIdPaciente(), request.getInicio(), request.getFin(), request.getRequestId(), null, null)) {
+                    throw new RuntimeException("El paciente ya tiene una cita en el horario solicitado");
+                }
+            } catch (RuntimeException e) {
+                resultados[i] = ResultadoLoteItem.error(i, request.getRequestId(), e.getMessage());
+                continue;
+            }
+
+            loteMedicos.computeIfAbsent(request.getIdMedico(), id -> new TreeMap<>()).put(request.getInicio(), request.getFin());
+            lotePacientes.computeIfAbsent(request.getIdPaciente(), id -> new TreeMap<>()).put(request.getInicio(), request.getFin());
+            nuevas.add(new Cita(
+                    request.getIdPaciente(),
+                    request.getIdMedico(),
+                    request.getInicio(),
+                    request.getFin(),
+                    request.getMotivo(),
+                    request.getRequestId()
+            ));
+            posiciones.add(i);
+        }
+
+        // 4. Guardar; los INSERT se envían en lotes JDBC al hacer flush
+        List<Cita> guardadas = citaRepository.saveAll(nuevas);
+        List<SolicitudProcesada> solicitudes = new ArrayList<>(guardadas.size());
+        for (int j = 0; j < guardadas.size(); j++) {
+            Cita cita = guardadas.get(j);
+            agendaIndex.sincronizar(cita);
+            solicitudes.add(new SolicitudProcesada(cita.getRequestId(), cita.getId(), OperacionCita.AGENDAR));
+            int i = posiciones.get(j);
+            resultados[i] = ResultadoLoteItem.exito(i, cita.getRequestId(), convertirACitaResponse(cita));
+        }
+        idempotenciaCache.registrarTodas(solicitudes);
+        repetidas.forEach((i, primera) -> resultados[i] = resultados[primera].enPosicion(i));
+
+        // 5. Publicar eventos en bloque
+        eventPublisher.publicarCitasAgendadas(guardadas);
+
+        return Arrays.asList(resultados);
+    }
+
+    private CitaResponse modificar(ModificarCitaRequest request) {
         // 1. Verificar idempotencia
-        Optional<Cita> citaPorRequest = citaRepository.findByRequestId(request.getRequestId());
-        if (citaPorRequest.isPresent()) {
-            return convertirACitaResponse(citaPorRequest.get());
+        long etapa = metricas.iniciar();
+        Optional<CitaResponse> respuestaPrevia = respuestaIdempotente(request.getRequestId());
+        etapa = metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.IDEMPOTENCIA, etapa);
+        if (respuestaPrevia.isPresent()) {
+            return respuestaPrevia.get();
         }
 
         // 2. Buscar cita existente
-        Cita cita = citaRepository.findById(request.getIdCita())
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+        Cita cita = leerParaActualizar(request.getIdCita());
 
         // 3. Validar que se puede modificar
         if (cita.getEstado() == EstadoCita.ANULADA) {
@@ -88,14 +352,21 @@ public class CitaService {
         LocalDateTime nuevoFin = request.getFin() != null ? request.getFin() : cita.getFin();
 
         validarHorarios(nuevoInicio, nuevoFin);
+        etapa = metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.VALIDACION, etapa);
 
         // 5. Verificar disponibilidad si cambió el horario
         if (!nuevoInicio.equals(cita.getInicio()) || !nuevoFin.equals(cita.getFin())) {
-            if (!esMedicoDisponibleParaModificacion(cita.getIdMedico(), nuevoInicio, nuevoFin, cita.getId())) {
+            boolean medicoDisponible = esMedicoDisponibleParaModificacion(cita.getIdMedico(), nuevoInicio, nuevoFin, cita.getId());
+            etapa = metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.CONFLICTO_MEDICO, etapa);
+            if (!medicoDisponible) {
                 throw new RuntimeException("El médico no está disponible en el nuevo horario");
             }
 
-            if (!esPacienteDisponibleParaModificacion(cita.getIdPaciente(), nuevoInicio, nuevoFin, cita.getId())) {
+            boolean pacienteDisponible = esPacienteDisponibleParaModificacion(cita.getIdPaciente(), nuevoInicio, nuevoFin, cita.getId())
+                    && reservarPaciente(cita.getIdPaciente(), nuevoInicio, nuevoFin, request.getRequestId(), cita.getId(),
+                            cita.getRequestId());
+            etapa = metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.CONFLICTO_PACIENTE, etapa);
+            if (!pacienteDisponible) {
                 throw new RuntimeException("El paciente ya tiene una cita en el nuevo horario");
             }
         }
@@ -107,58 +378,75 @@ public class CitaService {
             cita.setMotivo(request.getMotivo());
         }
         cita.setEstado(EstadoCita.MODIFICADA);
-        cita.setRequestId(request.getRequestId());
 
-        Cita citaActualizada = citaRepository.save(cita);
+        // El flush hace visible aquí un conflicto de versión, antes de tocar índice y cachés
+        Cita citaActualizada = citaRepository.saveAndFlush(cita);
+        agendaIndex.sincronizar(citaActualizada);
+        CitaResponse respuesta = convertirACitaResponse(citaActualizada);
+        citaCache.actualizar(respuesta);
+        idempotenciaCache.registrar(request.getRequestId(), citaActualizada.getId(), OperacionCita.MODIFICAR);
+        etapa = metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.GUARDADO, etapa);
 
         // 7. Publicar evento
-        eventPublisher.publicarCitaModificada(citaActualizada);
+        eventPublisher.publicarCitaModificada(citaActualizada, request.getRequestId());
+        metricas.registrar(OperacionCita.MODIFICAR, MetricasLatencia.Etapa.PUBLICACION, etapa);
 
-        return convertirACitaResponse(citaActualizada);
+        return respuesta;
     }
 
-    /**
-     * Anular cita existente
-     */
-    public CitaResponse anularCita(AnularCitaRequest request) {
+    private CitaResponse anular(AnularCitaRequest request) {
         // 1. Verificar idempotencia
-        Optional<Cita> citaPorRequest = citaRepository.findByRequestId(request.getRequestId());
-        if (citaPorRequest.isPresent()) {
-            return convertirACitaResponse(citaPorRequest.get());
+        long etapa = metricas.iniciar();
+        Optional<CitaResponse> respuestaPrevia = respuestaIdempotente(request.getRequestId());
+        etapa = metricas.registrar(OperacionCita.ANULAR, MetricasLatencia.Etapa.IDEMPOTENCIA, etapa);
+        if (respuestaPrevia.isPresent()) {
+            return respuestaPrevia.get();
         }
 
         // 2. Buscar cita existente
-        Cita cita = citaRepository.findById(request.getIdCita())
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
+        Cita cita = leerParaActualizar(request.getIdCita());
 
         // 3. Validar que se puede anular
         if (cita.getEstado() == EstadoCita.ANULADA) {
             throw new RuntimeException("La cita ya está anulada");
         }
+        etapa = metricas.registrar(OperacionCita.ANULAR, MetricasLatencia.Etapa.VALIDACION, etapa);
 
         // 4. Anular cita
         cita.setEstado(EstadoCita.ANULADA);
         if (request.getMotivo() != null) {
             cita.setMotivo(cita.getMotivo() + " | Anulación: " + request.getMotivo());
         }
-        cita.setRequestId(request.getRequestId());
 
-        Cita citaAnulada = citaRepository.save(cita);
+        Cita citaAnulada = citaRepository.saveAndFlush(cita);
+        agendaIndex.sincronizar(citaAnulada);
+        CitaResponse respuesta = convertirACitaResponse(citaAnulada);
+        citaCache.actualizar(respuesta);
+        idempotenciaCache.registrar(request.getRequestId(), citaAnulada.getId(), OperacionCita.ANULAR);
+        etapa = metricas.registrar(OperacionCita.ANULAR, MetricasLatencia.Etapa.GUARDADO, etapa);
 
         // 5. Publicar evento
-        eventPublisher.publicarCitaAnulada(citaAnulada);
+        eventPublisher.publicarCitaAnulada(citaAnulada, request.getRequestId());
+        metricas.registrar(OperacionCita.ANULAR, MetricasLatencia.Etapa.PUBLICACION, etapa);
 
-        return convertirACitaResponse(citaAnulada);
+        return respuesta;
     }
 
     /**
      * Consultar cita por ID
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CitaResponse consultarCita(Long id) {
-        Cita cita = citaRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Cita no encontrada"));
-        return convertirACitaResponse(cita);
+        // Sin transacción: un acierto de caché no debe tomar una conexión del pool.
+        // El fallo se carga de la primaria (transacción de escritura): lo leído queda en caché
+        // durante minutos y una réplica con retraso dejaría ahí un estado ya superado
+        CitaResponse cita = citaCache.obtener(id, clave -> transactionTemplate.execute(status -> buscarEnAmbas(clave)
+                .map(this::convertirACitaResponse)
+                .orElse(null)));
+        if (cita == null) {
+            throw new RuntimeException("Cita no encontrada");
+        }
+        return cita;
     }
 
     /**
@@ -166,13 +454,225 @@ public class CitaService {
      */
     @Transactional(readOnly = true)
     public List<CitaResponse> consultarCitasPorPaciente(Long idPaciente) {
-        List<EstadoCita> estadosActivos = List.of(EstadoCita.AGENDADA, EstadoCita.CONFIRMADA, EstadoCita.MODIFICADA);
-        List<Cita> citas = citaRepository.findByIdPacienteAndEstadoInOrderByInicioAsc(idPaciente, estadosActivos);
+        List<Cita> citas = fusionar(
+                citaRepository.findByIdPacienteAndEstadoInOrderByInicioAsc(idPaciente, AgendaIndex.ESTADOS_ACTIVOS),
+                citaArchivadaRepository.findByIdPacienteAndEstadoInOrderByInicioAsc(idPaciente, AgendaIndex.ESTADOS_ACTIVOS));
         return citas.stream().map(this::convertirACitaResponse).collect(Collectors.toList());
     }
 
+    /**
+     * Página de la agenda de un paciente (keyset sobre inicio, id)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCitas consultarPaginaPorPaciente(Long idPaciente, String cursor, int limite) {
+        CursorCita desde = CursorCita.decodificar(cursor);
+        int tamano = acotarLimite(limite);
+        return paginar(fusionar(
+                citaRepository.findPaginaPaciente(idPaciente, AgendaIndex.ESTADOS_ACTIVOS,
+                        desde.inicio(), desde.id(), Limit.of(tamano + 1)),
+                citaArchivadaRepository.findPaginaPaciente(idPaciente, AgendaIndex.ESTADOS_ACTIVOS,
+                        desde.inicio(), desde.id(), Limit.of(tamano + 1))), tamano);
+    }
+
+    /**
+     * Página de la agenda de un médico (keyset sobre inicio, id)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCitas consultarPaginaPorMedico(Long idMedico, String cursor, int limite) {
+        CursorCita desde = CursorCita.decodificar(cursor);
+        int tamano = acotarLimite(limite);
+        return paginar(fusionar(
+                citaRepository.findPaginaMedico(idMedico, AgendaIndex.ESTADOS_ACTIVOS,
+                        desde.inicio(), desde.id(), Limit.of(tamano + 1)),
+                citaArchivadaRepository.findPaginaMedico(idMedico, AgendaIndex.ESTADOS_ACTIVOS,
+                        desde.inicio(), desde.id(), Limit.of(tamano + 1))), tamano);
+    }
+
+    /**
+     * Página de la agenda de un rango de fechas (keyset sobre inicio, id)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCitas consultarPaginaPorRango(LocalDateTime inicio, LocalDateTime fin, String cursor, int limite) {
+        CursorCita desde = CursorCita.decodificar(cursor);
+        int tamano = acotarLimite(limite);
+        return paginar(fusionar(
+                citaRepository.findPaginaRango(inicio, fin, AgendaIndex.ESTADOS_ACTIVOS,
+                        desde.inicio(), desde.id(), Limit.of(tamano + 1)),
+                citaArchivadaRepository.findPaginaRango(inicio, fin, AgendaIndex.ESTADOS_ACTIVOS,
+                        desde.inicio(), desde.id(), Limit.of(tamano + 1))), tamano);
+    }
+
+    /**
+     * Huecos libres de un médico, resueltos sobre el mapa de bits de ocupación en memoria
+     */
+    @Transactional(readOnly = true)
+    public List<FranjaDisponible> consultarDisponibilidad(Long idMedico, LocalDateTime desde, LocalDateTime hasta,
+                                                          int duracionMinutos) {
+        if (!desde.isBefore(hasta)) {
+            throw new RuntimeException("La fecha 'desde' debe ser anterior a 'hasta'");
+        }
+        if (desde.plusDays(MAXIMO_DIAS_DISPONIBILIDAD).isBefore(hasta)) {
+            throw new RuntimeException("El rango no puede superar " + MAXIMO_DIAS_DISPONIBILIDAD + " días");
+        }
+        if (duracionMinutos < BitmapDisponibilidad.MINUTOS_FRANJA || duracionMinutos > 600) {
+            throw new RuntimeException("La duración debe estar entre 5 y 600 minutos");
+        }
+        return agendaIndex.franjasLibresMedico(idMedico, desde, hasta, duracionMinutos);
+    }
+
+    /**
+     * Exportar la agenda de un rango de fechas como NDJSON (una cita por línea).
+     * Recorre un cursor sobre la tabla caliente y otro sobre el archivo, los fusiona por (inicio, id)
+     * y suelta cada entidad tras convertirla: memoria constante.
+     */
+    @Transactional(readOnly = true)
+    public long exportarCitas(LocalDateTime inicio, LocalDateTime fin, OutputStream salida) throws IOException {
+        long total = 0;
+        try (Stream<Cita> citas = citaRepository.streamCitasByFecha(inicio, fin, AgendaIndex.ESTADOS_ACTIVOS);
+             Stream<CitaArchivada> archivadas = citaArchivadaRepository.streamCitasByFecha(inicio, fin, AgendaIndex.ESTADOS_ACTIVOS);
+             SequenceWriter escritor = ndjsonWriter.writeValues(salida)) {
+            Iterator<CitaResponse> calientes = citas.map(cita -> {
+                CitaResponse respuesta = convertirACitaResponse(cita);
+                entityManager.detach(cita);
+                return respuesta;
+            }).iterator();
+            Iterator<CitaResponse> frias = archivadas.map(archivada -> {
+                CitaResponse respuesta = convertirACitaResponse(archivada.aCita());
+                entityManager.detach(archivada);
+                return respuesta;
+            }).iterator();
+
+            CitaResponse caliente = calientes.hasNext() ? calientes.next() : null;
+            CitaResponse fria = frias.hasNext() ? frias.next() : null;
+            while (caliente != null || fria != null) {
+                if (fria == null || (caliente != null && RESPUESTAS_POR_INICIO.compare(caliente, fria) <= 0)) {
+                    escritor.write(caliente);
+                    caliente = calientes.hasNext() ? calientes.next() : null;
+                } else {
+                    escritor.write(fria);
+                    fria = frias.hasNext() ? frias.next() : null;
+                }
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estado actual de la cita afectada por un requestId (reconciliación de reservas entre shards).
+     * Se lee de la primaria: una réplica con retraso haría borrar la reserva de una cita recién creada.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<CitaResponse> consultarSolicitud(String requestId) {
+        return transactionTemplate.execute(status -> respuestaIdempotente(requestId));
+    }
+
+    /**
+     * Métricas de aciertos, fallos y expulsiones de la caché de citas
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> estadisticasCache() {
+        return citaCache.estadisticas();
+    }
+
+    /**
+     * Percentiles de latencia por operación y etapa
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> metricasLatencia() {
+        Map<String, Object> resumen = new LinkedHashMap<>(metricas.resumen());
+        resumen.put("conflictosVersion", conflictosVersion.sum());
+        if (enrutadorReplicas != null) {
+            resumen.put("replicas", enrutadorReplicas.estado());
+        }
+        return resumen;
+    }
+
     // ================== MÉTODOS PRIVADOS DE VALIDACIÓN ==================
 
+    private void verificarShardMedico(Long idMedico) {
+        if (coordinadorShards != null) {
+            coordinadorShards.verificarMedico(idMedico);
+        }
+    }
+
+    // Sin shards las citas del paciente están todas en esta BD y basta con la comprobación local
+    private boolean reservarPaciente(Long idPaciente, LocalDateTime inicio, LocalDateTime fin,
+                                     String requestId, Long citaExcluida, String requestIdCita) {
+        return coordinadorShards == null
+                || coordinadorShards.reservarPaciente(idPaciente, inicio, fin, requestId, citaExcluida, requestIdCita);
+    }
+
+    // Otra operación confirmó un cambio en la cita entre la lectura y el UPDATE: la competidora ya hizo
+    // commit, así que se repite enseguida la transacción completa, que relee la cita y vuelve a validar
+    private <T> T conReintentos(Supplier<T> operacion) {
+        for (int intento = 0; ; intento++) {
+            try {
+                return operacion.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflictosVersion.increment();
+                if (intento >= reintentosConcurrencia) {
+                    throw new RuntimeException("La cita fue modificada por otra operación al mismo tiempo, intente nuevamente");
+                }
+            }
+        }
+    }
+
+    private Cita leerParaActualizar(Long id) {
+        Optional<Cita> cita = bloqueoFila ? citaRepository.findByIdParaActualizar(id) : citaRepository.findById(id);
+        return cita.orElseThrow(() -> citaNoEncontrada(id));
+    }
+
+    // El requestId ya se procesó: se devuelve el estado actual de la cita afectada (puede estar archivada)
+    private Optional<CitaResponse> respuestaIdempotente(String requestId) {
+        return idempotenciaCache.buscarCita(requestId)
+                .flatMap(this::buscarEnAmbas)
+                .map(this::convertirACitaResponse);
+    }
+
+    // ================== TABLA CALIENTE + ARCHIVO ==================
+
+    private Optional<Cita> buscarEnAmbas(Long id) {
+        Optional<Cita> caliente = citaRepository.findById(id);
+        return caliente.isPresent() ? caliente : citaArchivadaRepository.findById(id).map(CitaArchivada::aCita);
+    }
+
+    // Solo se consulta el archivo por los IDs que ya no están en la tabla caliente
+    private Map<Long, Cita> buscarEnAmbas(Collection<Long> ids) {
+        Map<Long, Cita> encontradas = citaRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Cita::getId, cita -> cita));
+        List<Long> faltantes = ids.stream().filter(id -> !encontradas.containsKey(id)).distinct().collect(Collectors.toList());
+        if (!faltantes.isEmpty()) {
+            citaArchivadaRepository.findAllById(faltantes).forEach(archivada -> encontradas.put(archivada.getId(), archivada.aCita()));
+        }
+        return encontradas;
+    }
+
+    // Las dos listas vienen ordenadas por (inicio, id) y no comparten citas
+    private List<Cita> fusionar(List<Cita> calientes, List<CitaArchivada> archivadas) {
+        if (archivadas.isEmpty()) {
+            return calientes;
+        }
+        List<Cita> todas = new ArrayList<>(calientes.size() + archivadas.size());
+        todas.addAll(calientes);
+        archivadas.forEach(archivada -> todas.add(archivada.aCita()));
+        todas.sort(POR_INICIO);
+        return todas;
+    }
+
+    // La cita no está en la tabla caliente: puede que ya se archivara (pasada o anulada)
+    private RuntimeException citaNoEncontrada(Long idCita) {
+        return citaArchivadaRepository.existsById(idCita)
+                ? new RuntimeException("La cita está archivada (pasada o anulada) y no admite cambios")
+                : new RuntimeException("Cita no encontrada");
+    }
+
+    // Dos solicitudes con el mismo requestId llegaron a la vez: la clave primaria dejó pasar solo una
+    private CitaResponse respuestaTrasCarrera(String requestId, DataIntegrityViolationException e) {
+        return transactionTemplate.execute(status -> respuestaIdempotente(requestId))
+                .orElseThrow(() -> e);
+    }
+
     private void validarHorarios(LocalDateTime inicio, LocalDateTime fin) {
         if (inicio.isAfter(fin)) {
             throw new RuntimeException("La hora de inicio debe ser anterior a la hora de fin");
@@ -182,30 +682,70 @@ public class CitaService {
             throw new RuntimeException("No se pueden agendar citas en el pasado");
         }
 
-        // Validar que la cita sea en horario laboral (8:00 - 18:00)
-        int horaInicio = inicio.getHour();
-        int horaFin = fin.getHour();
-        if (horaInicio < 8 || horaFin > 18) {
+        // Validar que la cita sea en horario laboral (8:00 - 18:00), dentro de un mismo día
+        if (inicio.toLocalTime().isBefore(BitmapDisponibilidad.APERTURA)
+                || fin.toLocalTime().isAfter(BitmapDisponibilidad.CIERRE)
+                || !fin.toLocalDate().equals(inicio.toLocalDate())) {
             throw new RuntimeException("Las citas deben ser en horario laboral (8:00 - 18:00)");
         }
     }
 
     private boolean esMedicoDisponible(Long idMedico, LocalDateTime inicio, LocalDateTime fin) {
-        return citaRepository.countCitasConflictivasMedico(idMedico, inicio, fin) == 0;
+        if (agendaIndex.medicoTieneConflicto(idMedico, inicio, fin, null)) {
+            return false;
+        }
+        return !guardiaBd || !citaRepository.existeConflictoMedico(idMedico, inicio, fin);
     }
 
     private boolean esPacienteDisponible(Long idPaciente, LocalDateTime inicio, LocalDateTime fin) {
-        return citaRepository.countCitasConflictivasPaciente(idPaciente, inicio, fin) == 0;
+        if (agendaIndex.pacienteTieneConflicto(idPaciente, inicio, fin, null)) {
+            return false;
+        }
+        return !guardiaBd || !citaRepository.existeConflictoPaciente(idPaciente, inicio, fin);
     }
 
     private boolean esMedicoDisponibleParaModificacion(Long idMedico, LocalDateTime inicio, LocalDateTime fin, Long citaId) {
         // Similar a esMedicoDisponible pero excluyendo la cita actual
-        return citaRepository.countCitasConflictivasMedico(idMedico, inicio, fin) == 0;
+        if (agendaIndex.medicoTieneConflicto(idMedico, inicio, fin, citaId)) {
+            return false;
+        }
+        return !guardiaBd || !citaRepository.existeConflictoMedico(idMedico, inicio, fin, citaId);
     }
 
     private boolean esPacienteDisponibleParaModificacion(Long idPaciente, LocalDateTime inicio, LocalDateTime fin, Long citaId) {
         // Similar a esPacienteDisponible pero excluyendo la cita actual
-        return citaRepository.countCitasConflictivasPaciente(idPaciente, inicio, fin) == 0;
+        if (agendaIndex.pacienteTieneConflicto(idPaciente, inicio, fin, citaId)) {
+            return false;
+        }
+        return !guardiaBd || !citaRepository.existeConflictoPaciente(idPaciente, inicio, fin, citaId);
+    }
+
+    private boolean chocaEnLote(Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> lote, Long id,
+                                LocalDateTime inicio, LocalDateTime fin) {
+        NavigableMap<LocalDateTime, LocalDateTime> agenda = lote.get(id);
+        if (agenda == null) {
+            return false;
+        }
+        // Igual que en el índice: las reservas del lote no se solapan, basta con la anterior a 'fin'
+        Map.Entry<LocalDateTime, LocalDateTime> anterior = agenda.lowerEntry(fin);
+        return agenda.containsKey(inicio) || (anterior != null && anterior.getValue().isAfter(inicio));
+    }
+
+    private int acotarLimite(int limite) {
+        return Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+    }
+
+    // Se piden limite + 1 filas: la fila extra solo indica que existe una página siguiente
+    private PaginaCitas paginar(List<Cita> filas, int limite) {
+        boolean hayMas = filas.size() > limite;
+        List<Cita> pagina = hayMas ? filas.subList(0, limite) : filas;
+        String siguiente = null;
+        if (hayMas) {
+            Cita ultima = pagina.get(pagina.size() - 1);
+            siguiente = new CursorCita(ultima.getInicio(), ultima.getId()).codificar();
+        }
+        return new PaginaCitas(pagina.stream().map(this::convertirACitaResponse).collect(Collectors.toList()),
+                siguiente, hayMas);
     }
 
     private CitaResponse convertirACitaResponse(Cita cita) {
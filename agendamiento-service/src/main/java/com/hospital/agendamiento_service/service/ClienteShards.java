@@ -0,0 +1,88 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.SolicitudReserva;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Llamadas internas entre nodos de agendamiento-service (/internal/**), con timeouts cortos:
+ * se hacen con la agenda bloqueada y no deben retenerla más de lo imprescindible.
+ */
+@Component
+@ConditionalOnProperty("agendamiento.shards.nodos")
+public class ClienteShards {
+
+    private final AnilloShards anilloShards;
+    private final RestClient restClient;
+
+    public ClienteShards(AnilloShards anilloShards, RestClient.Builder builder,
+                         @Value("${agendamiento.shards.timeout-ms:2000}") long timeoutMs) {
+        HttpClient cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        JdkClientHttpRequestFactory factoria = new JdkClientHttpRequestFactory(cliente);
+        factoria.setReadTimeout(Duration.ofMillis(timeoutMs));
+        this.anilloShards = anilloShards;
+        this.restClient = builder.requestFactory(factoria).build();
+    }
+
+    /**
+     * Reserva el horario en el nodo del paciente: false si el paciente ya lo tiene ocupado
+     */
+    public boolean reservar(int nodo, SolicitudReserva solicitud) {
+        try {
+            return restClient.post()
+                    .uri(anilloShards.url(nodo) + "/internal/reservas")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(solicitud)
+                    .exchange((peticion, respuesta) -> {
+                        if (respuesta.getStatusCode().is2xxSuccessful()) {
+                            return true;
+                        }
+                        if (respuesta.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+                            return false;
+                        }
+                        throw new RuntimeException("respuesta " + respuesta.getStatusCode().value());
+                    });
+        } catch (RuntimeException e) {
+            throw new RuntimeException("No se pudo reservar el horario del paciente en el shard " + nodo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Libera la reserva de una solicitud; si falla, la reconciliación del otro nodo acabará borrándola
+     */
+    public void liberar(int nodo, String requestId) {
+        restClient.delete()
+                .uri(anilloShards.url(nodo) + "/internal/reservas/{requestId}", requestId)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    /**
+     * Estado actual de la cita creada o modificada por la solicitud en su nodo de origen, o null si no existe
+     */
+    public CitaResponse consultarSolicitud(int nodo, String requestId) {
+        return restClient.get()
+                .uri(anilloShards.url(nodo) + "/internal/solicitudes/{requestId}", requestId)
+                .exchange((peticion, respuesta) -> {
+                    if (respuesta.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return null;
+                    }
+                    if (!respuesta.getStatusCode().is2xxSuccessful()) {
+                        throw new RuntimeException("El shard " + nodo + " respondió " + respuesta.getStatusCode().value());
+                    }
+                    return respuesta.bodyTo(CitaResponse.class);
+                });
+    }
+}
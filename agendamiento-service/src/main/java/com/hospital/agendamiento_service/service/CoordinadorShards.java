@@ -0,0 +1,83 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.SolicitudReserva;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lado del nodo del médico en el reparto por shards: comprueba que el médico es de este nodo y
+ * reserva el horario del paciente en el nodo que guarda sus reservas (local o remoto).
+ */
+@Component
+@ConditionalOnProperty("agendamiento.shards.nodos")
+public class CoordinadorShards {
+
+    private static final Logger log = LoggerFactory.getLogger(CoordinadorShards.class);
+
+    @Autowired
+    private AnilloShards anilloShards;
+
+    @Autowired
+    private ReservasPaciente reservasPaciente;
+
+    @Autowired
+    private ClienteShards clienteShards;
+
+    /**
+     * Rechaza las citas de médicos de otro nodo (el gateway no debería haberlas enviado aquí)
+     */
+    public void verificarMedico(Long idMedico) {
+        int nodo = anilloShards.nodoDe(idMedico);
+        if (nodo != anilloShards.propio()) {
+            throw new RuntimeException("El médico " + idMedico + " pertenece al shard " + nodo
+                    + ", no a este (" + anilloShards.propio() + ")");
+        }
+    }
+
+    /**
+     * Reserva el horario del paciente en su nodo; false si choca con otra cita suya en cualquier shard.
+     * Llamar dentro de la transacción de la cita: si no llega al commit, la reserva se libera.
+     * Al mover una cita, citaExcluida y requestIdCita (el de su alta) identifican sus propias reservas.
+     */
+    public boolean reservarPaciente(Long idPaciente, LocalDateTime inicio, LocalDateTime fin,
+                                    String requestId, Long citaExcluida, String requestIdCita) {
+        int nodo = anilloShards.nodoDe(idPaciente);
+        SolicitudReserva solicitud = new SolicitudReserva(idPaciente, inicio, fin, requestId, citaExcluida,
+                requestIdCita, anilloShards.propio());
+
+        // En este mismo nodo la reserva entra en la transacción de la cita y se revierte con ella
+        if (nodo == anilloShards.propio()) {
+            return reservasPaciente.reservar(solicitud);
+        }
+        if (!clienteShards.reservar(nodo, solicitud)) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        liberar(nodo, requestId);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    private void liberar(int nodo, String requestId) {
+        try {
+            clienteShards.liberar(nodo, requestId);
+        } catch (RuntimeException e) {
+            // La reconciliación del nodo del paciente la borrará al no encontrar la cita
+            log.warn("No se pudo liberar la reserva {} en el shard {}: {}", requestId, nodo, e.getMessage());
+        }
+    }
+}
@@ -1,111 +1,80 @@
 package com.hospital.agendamiento_service.service;
 
+import com.hospital.agendamiento_service.config.RabbitConfig;
+import com.hospital.agendamiento_service.dto.CitaEvent;
 import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.EventoOutbox;
+import com.hospital.agendamiento_service.repository.EventoOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Registra los eventos de citas en la tabla outbox, dentro de la transacción de la cita.
+ * La publicación real en RabbitMQ la hace OutboxRelay en segundo plano.
+ */
 @Component
 public class EventPublisher {
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private EventoOutboxRepository outboxRepository;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    private static final String EXCHANGE = "citas.exchange";
+    // Writer resuelto una sola vez para CitaEvent: sin búsqueda de serializadores por evento
+    private ObjectWriter eventWriter;
+
+    @PostConstruct
+    void init() {
+        eventWriter = objectMapper.writerFor(CitaEvent.class);
+    }
 
     /**
      * Publicar evento cuando se agenda una cita
      */
     public void publicarCitaAgendada(Cita cita) {
-        try {
-            Map<String, Object> evento = crearEventoBase(cita);
-            evento.put("tipo", "CITA_AGENDADA");
-            evento.put("timestamp", LocalDateTime.now().toString());
-
-            String mensaje = objectMapper.writeValueAsString(evento);
-
-            rabbitTemplate.convertAndSend(
-                    EXCHANGE,
-                    "citas.cita-agendada",
-                    mensaje
-            );
-
-            System.out.println("Evento publicado: citas.cita-agendada para cita ID: " + cita.getId());
-
-        } catch (Exception e) {
-            System.err.println("Error al publicar evento cita-agendada: " + e.getMessage());
-        }
+        outboxRepository.save(crearEvento(cita, cita.getRequestId(), "CITA_AGENDADA", RabbitConfig.CITA_AGENDADA_KEY));
     }
 
     /**
      * Publicar evento cuando se modifica una cita
      */
-    public void publicarCitaModificada(Cita cita) {
-        try {
-            Map<String, Object> evento = crearEventoBase(cita);
-            evento.put("tipo", "CITA_MODIFICADA");
-            evento.put("timestamp", LocalDateTime.now().toString());
-
-            String mensaje = objectMapper.writeValueAsString(evento);
-
-            rabbitTemplate.convertAndSend(
-                    EXCHANGE,
-                    "citas.cita-modificada",
-                    mensaje
-            );
-
-            System.out.println("Evento publicado: citas.cita-modificada para cita ID: " + cita.getId());
-
-        } catch (Exception e) {
-            System.err.println("Error al publicar evento cita-modificada: " + e.getMessage());
-        }
+    public void publicarCitaModificada(Cita cita, String requestId) {
+        outboxRepository.save(crearEvento(cita, requestId, "CITA_MODIFICADA", RabbitConfig.CITA_MODIFICADA_KEY));
     }
 
     /**
      * Publicar evento cuando se anula una cita
      */
-    public void publicarCitaAnulada(Cita cita) {
-        try {
-            Map<String, Object> evento = crearEventoBase(cita);
-            evento.put("tipo", "CITA_ANULADA");
-            evento.put("timestamp", LocalDateTime.now().toString());
-
-            String mensaje = objectMapper.writeValueAsString(evento);
-
-            rabbitTemplate.convertAndSend(
-                    EXCHANGE,
-                    "citas.cita-anulada",
-                    mensaje
-            );
-
-            System.out.println("Evento publicado: citas.cita-anulada para cita ID: " + cita.getId());
-
-        } catch (Exception e) {
-            System.err.println("Error al publicar evento cita-anulada: " + e.getMessage());
-        }
+    public void publicarCitaAnulada(Cita cita, String requestId) {
+        outboxRepository.save(crearEvento(cita, requestId, "CITA_ANULADA", RabbitConfig.CITA_ANULADA_KEY));
     }
 
     /**
-     * Crear estructura base del evento
+     * Publicar en bloque los eventos de un lote de citas agendadas
      */
-    private Map<String, Object> crearEventoBase(Cita cita) {
-        Map<String, Object> evento = new HashMap<>();
-        evento.put("citaId", cita.getId());
-        evento.put("idPaciente", cita.getIdPaciente());
-        evento.put("idMedico", cita.getIdMedico());
-        evento.put("inicio", cita.getInicio().toString());
-        evento.put("fin", cita.getFin().toString());
-        evento.put("estado", cita.getEstado().toString());
-        evento.put("motivo", cita.getMotivo());
-        evento.put("requestId", cita.getRequestId());
-        return evento;
+    public void publicarCitasAgendadas(List<Cita> citas) {
+        List<EventoOutbox> eventos = new ArrayList<>(citas.size());
+        for (Cita cita : citas) {
+            eventos.add(crearEvento(cita, cita.getRequestId(), "CITA_AGENDADA", RabbitConfig.CITA_AGENDADA_KEY));
+        }
+        outboxRepository.saveAll(eventos);
+    }
+
+    // requestId de la operación que origina el evento, no el de creación de la cita
+    private EventoOutbox crearEvento(Cita cita, String requestId, String tipo, String routingKey) {
+        try {
+            return new EventoOutbox(routingKey, eventWriter.writeValueAsBytes(CitaEvent.de(cita, tipo, requestId)));
+        } catch (JsonProcessingException e) {
+            // Sin evento no hay cita: se revierte la transacción en lugar de perderlo
+            throw new RuntimeException("Error al serializar evento " + tipo + ": " + e.getMessage(), e);
+        }
     }
-}
\ No newline at end of file
+}
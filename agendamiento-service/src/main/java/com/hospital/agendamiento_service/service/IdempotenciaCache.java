@@ -0,0 +1,177 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.entity.OperacionCita;
+import com.hospital.agendamiento_service.entity.SolicitudProcesada;
+import com.hospital.agendamiento_service.repository.SolicitudProcesadaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Idempotencia por requestId sin ir a la base de datos en el caso común:
+ * - una caché acotada con TTL de los requestId recientes (reintentos) y su cita;
+ * - un filtro de Bloom con todos los requestId procesados: si no lo contiene, la solicitud es nueva.
+ * Solo los posibles duplicados que no están en caché consultan la tabla solicitudes_procesadas,
+ * cuya clave primaria resuelve las carreras entre instancias o antes de la precarga.
+ */
+@Component
+public class IdempotenciaCache {
+
+    @Autowired
+    private SolicitudProcesadaRepository solicitudRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final int maximoEntradas;
+    private final long ttlNanos;
+    private final BloomFilter vistos;
+
+    // Orden de inserción = orden de expiración; se accede siempre con el monitor de la caché
+    private final LinkedHashMap<String, Entrada> recientes = new LinkedHashMap<>();
+
+    // Hasta terminar la precarga el filtro no es fiable para descartar duplicados
+    private volatile boolean precargado = false;
+
+    private record Entrada(Long citaId, long expiraEn) {
+    }
+
+    public IdempotenciaCache(@Value("${agendamiento.idempotencia.maximo-entradas:100000}") int maximoEntradas,
+                             @Value("${agendamiento.idempotencia.ttl-segundos:600}") long ttlSegundos,
+                             @Value("${agendamiento.idempotencia.bloom-esperados:1000000}") long bloomEsperados,
+                             @Value("${agendamiento.idempotencia.bloom-fpp:0.01}") double bloomFpp) {
+        this.maximoEntradas = maximoEntradas;
+        this.ttlNanos = ttlSegundos * 1_000_000_000L;
+        this.vistos = new BloomFilter(bloomEsperados, bloomFpp);
+    }
+
+    /**
+     * Carga en el filtro de Bloom los requestId ya procesados
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        transactionTemplate.execute(status -> {
+            try (Stream<String> ids = solicitudRepository.streamRequestIds()) {
+                ids.forEach(vistos::agregar);
+            }
+            return null;
+        });
+        precargado = true;
+    }
+
+    /**
+     * Cita asociada a un requestId ya procesado, si lo hay
+     */
+    public Optional<Long> buscarCita(String requestId) {
+        Long citaId = enCache(requestId);
+        if (citaId != null) {
+            return Optional.of(citaId);
+        }
+        if (precargado && !vistos.puedeContener(requestId)) {
+            return Optional.empty();
+        }
+        Optional<Long> desdeBd = solicitudRepository.findById(requestId).map(SolicitudProcesada::getCitaId);
+        desdeBd.ifPresent(id -> recordar(requestId, id));
+        return desdeBd;
+    }
+
+    /**
+     * Variante para lotes: una única consulta para los requestId que pudieron verse antes
+     */
+    public Map<String, Long> buscarCitas(Collection<String> requestIds) {
+        Map<String, Long> encontradas = new HashMap<>();
+        List<String> dudosos = new ArrayList<>();
+        for (String requestId : requestIds) {
+            Long citaId = enCache(requestId);
+            if (citaId != null) {
+                encontradas.put(requestId, citaId);
+            } else if (!precargado || vistos.puedeContener(requestId)) {
+                dudosos.add(requestId);
+            }
+        }
+        if (!dudosos.isEmpty()) {
+            for (SolicitudProcesada solicitud : solicitudRepository.findAllById(dudosos)) {
+                encontradas.put(solicitud.getRequestId(), solicitud.getCitaId());
+                recordar(solicitud.getRequestId(), solicitud.getCitaId());
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Registra el requestId dentro de la transacción en curso; la caché se actualiza tras el commit
+     */
+    public void registrar(String requestId, Long citaId, OperacionCita operacion) {
+        registrarTodas(List.of(new SolicitudProcesada(requestId, citaId, operacion)));
+    }
+
+    public void registrarTodas(List<SolicitudProcesada> solicitudes) {
+        if (solicitudes.isEmpty()) {
+            return;
+        }
+        solicitudRepository.saveAll(solicitudes);
+        // Añadir al filtro antes del commit solo puede producir falsos positivos, nunca perder duplicados
+        solicitudes.forEach(s -> vistos.agregar(s.getRequestId()));
+
+        Runnable recordarTodas = () -> solicitudes.forEach(s -> recordar(s.getRequestId(), s.getCitaId()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordarTodas.run();
+                }
+            });
+        } else {
+            recordarTodas.run();
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private Long enCache(String requestId) {
+        synchronized (recientes) {
+            Entrada entrada = recientes.get(requestId);
+            if (entrada == null) {
+                return null;
+            }
+            if (entrada.expiraEn() - System.nanoTime() < 0) {
+                recientes.remove(requestId);
+                return null;
+            }
+            return entrada.citaId();
+        }
+    }
+
+    private void recordar(String requestId, Long citaId) {
+        long ahora = System.nanoTime();
+        synchronized (recientes) {
+            recientes.remove(requestId);
+            recientes.put(requestId, new Entrada(citaId, ahora + ttlNanos));
+
+            // Expulsar las entradas vencidas y, si aún sobra, las más antiguas
+            Iterator<Entrada> it = recientes.values().iterator();
+            while (it.hasNext()) {
+                Entrada primera = it.next();
+                if (recientes.size() <= maximoEntradas && primera.expiraEn() - ahora >= 0) {
+                    break;
+                }
+                it.remove();
+            }
+        }
+    }
+}
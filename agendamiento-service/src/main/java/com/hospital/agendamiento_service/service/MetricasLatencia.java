@@ -0,0 +1,107 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.entity.OperacionCita;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia por etapa de agendar/modificar/anular en histogramas HDR.
+ * El registro es sin bloqueos (Recorder): el camino crítico solo paga un System.nanoTime()
+ * y un incremento atómico por etapa. Los intervalos se acumulan al consultar el resumen.
+ */
+@Component
+public class MetricasLatencia {
+
+    /**
+     * Etapas medidas. TOTAL incluye además la espera del bloqueo de agenda y el commit.
+     */
+    public enum Etapa {
+        IDEMPOTENCIA, VALIDACION, CONFLICTO_MEDICO, CONFLICTO_PACIENTE, GUARDADO, PUBLICACION, TOTAL
+    }
+
+    // Valores por encima de un minuto se registran como un minuto
+    private static final long MAXIMO_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int DIGITOS_SIGNIFICATIVOS = 3;
+
+    private final Recorder[][] registros = new Recorder[OperacionCita.values().length][Etapa.values().length];
+    private final Histogram[][] acumulados = new Histogram[OperacionCita.values().length][Etapa.values().length];
+    private final Histogram[][] intervalos = new Histogram[OperacionCita.values().length][Etapa.values().length];
+
+    public MetricasLatencia() {
+        for (int o = 0; o < registros.length; o++) {
+            for (int e = 0; e < registros[o].length; e++) {
+                registros[o][e] = new Recorder(1, MAXIMO_NANOS, DIGITOS_SIGNIFICATIVOS);
+                acumulados[o][e] = new Histogram(1, MAXIMO_NANOS, DIGITOS_SIGNIFICATIVOS);
+            }
+        }
+    }
+
+    /**
+     * Marca de tiempo inicial para encadenar con registrar
+     */
+    public long iniciar() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra la duración de la etapa desde 'desde' y devuelve el instante actual,
+     * que sirve como inicio de la etapa siguiente
+     */
+    public long registrar(OperacionCita operacion, Etapa etapa, long desde) {
+        long ahora = System.nanoTime();
+        long duracion = Math.max(1, Math.min(ahora - desde, MAXIMO_NANOS));
+        registros[operacion.ordinal()][etapa.ordinal()].recordValue(duracion);
+        return ahora;
+    }
+
+    /**
+     * Percentiles acumulados desde el arranque, en microsegundos, por operación y etapa
+     */
+    public synchronized Map<String, Object> resumen() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        for (OperacionCita operacion : OperacionCita.values()) {
+            Map<String, Object> etapas = new LinkedHashMap<>();
+            for (Etapa etapa : Etapa.values()) {
+                Histogram acumulado = acumular(operacion.ordinal(), etapa.ordinal());
+                if (acumulado.getTotalCount() > 0) {
+                    etapas.put(etapa.name(), describir(acumulado));
+                }
+            }
+            resumen.put(operacion.name(), etapas);
+        }
+        return resumen;
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private Histogram acumular(int operacion, int etapa) {
+        intervalos[operacion][etapa] = registros[operacion][etapa].getIntervalHistogram(intervalos[operacion][etapa]);
+        acumulados[operacion][etapa].add(intervalos[operacion][etapa]);
+        return acumulados[operacion][etapa];
+    }
+
+    private static Map<String, Object> describir(Histogram histograma) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+        valores.put("muestras", histograma.getTotalCount());
+        valores.put("mediaUs", redondear(histograma.getMean() / 1000.0));
+        valores.put("p50Us", micros(histograma.getValueAtPercentile(50)));
+        valores.put("p90Us", micros(histograma.getValueAtPercentile(90)));
+        valores.put("p99Us", micros(histograma.getValueAtPercentile(99)));
+        valores.put("p999Us", micros(histograma.getValueAtPercentile(99.9)));
+        valores.put("maxUs", micros(histograma.getMaxValue()));
+        return valores;
+    }
+
+    private static double micros(long nanos) {
+        return redondear(nanos / 1000.0);
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 10) / 10.0;
+    }
+}
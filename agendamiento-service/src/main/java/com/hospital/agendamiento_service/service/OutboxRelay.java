@@ -0,0 +1,85 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.config.RabbitConfig;
+import com.hospital.agendamiento_service.entity.EventoOutbox;
+import com.hospital.agendamiento_service.repository.EventoOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Drena la tabla outbox hacia RabbitMQ en lotes, con confirmaciones del broker.
+ * Un evento solo se borra cuando el broker confirmó su lote: entrega al menos una vez.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Autowired
+    private EventoOutboxRepository outboxRepository;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Value("${agendamiento.outbox.tamano-lote:200}")
+    private int tamanoLote;
+
+    @Value("${agendamiento.outbox.timeout-confirmacion-ms:5000}")
+    private long timeoutConfirmacionMs;
+
+    /**
+     * Publicar los eventos pendientes hasta vaciar la tabla
+     */
+    @Scheduled(fixedDelayString = "${agendamiento.outbox.intervalo-ms:200}")
+    public void drenar() {
+        try {
+            List<EventoOutbox> pendientes;
+            do {
+                pendientes = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, tamanoLote));
+                if (pendientes.isEmpty()) {
+                    return;
+                }
+                publicarLote(pendientes);
+                log.debug("Publicados {} eventos del outbox", pendientes.size());
+                outboxRepository.deleteAllByIdInBatch(
+                        pendientes.stream().map(EventoOutbox::getId).collect(Collectors.toList()));
+            } while (pendientes.size() == tamanoLote);
+
+        } catch (Exception e) {
+            // Los eventos siguen en la tabla y se reintentan en la próxima pasada
+            log.warn("Error al drenar outbox de eventos: {}", e.getMessage());
+        }
+    }
+
+    private void publicarLote(List<EventoOutbox> lote) {
+        rabbitTemplate.invoke(operaciones -> {
+            for (EventoOutbox evento : lote) {
+                // Bytes JSON tal cual, sin pasar por el MessageConverter (evita doble codificación)
+                operaciones.send(RabbitConfig.CITAS_EXCHANGE, evento.getRoutingKey(),
+                        new Message(evento.getPayload(), propiedadesJson()));
+            }
+            // El cliente AMQP espera la confirmación dentro de un synchronized: con hilos virtuales
+            // fija el hilo portador mientras dura, lo que se acepta porque el relay es un único hilo
+            operaciones.waitForConfirmsOrDie(timeoutConfirmacionMs);
+            return null;
+        });
+    }
+
+    private MessageProperties propiedadesJson() {
+        MessageProperties propiedades = new MessageProperties();
+        propiedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        propiedades.setContentEncoding("UTF-8");
+        return propiedades;
+    }
+}
@@ -0,0 +1,190 @@
+package com.hospital.agendamiento_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hospital.agendamiento_service.dto.CitaEvent;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.SolicitudReserva;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.entity.CitaAnuladaReserva;
+import com.hospital.agendamiento_service.entity.EstadoReserva;
+import com.hospital.agendamiento_service.entity.ReservaPaciente;
+import com.hospital.agendamiento_service.repository.CitaAnuladaReservaRepository;
+import com.hospital.agendamiento_service.repository.ReservaPacienteRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reservas de horario de los pacientes que el anillo asigna a este nodo (protocolo de reserva entre shards).
+ * 1. El nodo del médico reserva el horario aquí antes de guardar la cita; un solapamiento la rechaza.
+ * 2. El evento de la cita (RabbitMQ) confirma la reserva o la libera si la cita se anula; la anulación deja
+ *    una lápida para que un evento anterior entregado tarde no vuelva a crear la reserva.
+ * 3. Si el evento no llega (la cita se revirtió en su nodo), la reconciliación pregunta por la
+ *    solicitud al nodo de origen y borra las reservas que no acabaron en cita.
+ */
+@Service
+@ConditionalOnProperty("agendamiento.shards.nodos")
+public class ReservasPaciente {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservasPaciente.class);
+
+    private static final int LOTE_RECONCILIACION = 100;
+
+    @Autowired
+    private ReservaPacienteRepository reservaRepository;
+
+    @Autowired
+    private CitaAnuladaReservaRepository anuladaRepository;
+
+    @Autowired
+    private AgendaLocks agendaLocks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AnilloShards anilloShards;
+
+    @Autowired
+    private ClienteShards clienteShards;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Una reserva pendiente más antigua que esto ya debería tener el evento de su cita
+    @Value("${agendamiento.shards.reserva-pendiente-ms:300000}")
+    private long reservaPendienteMs;
+
+    private ObjectReader eventReader;
+
+    @PostConstruct
+    void init() {
+        eventReader = objectMapper.readerFor(CitaEvent.class);
+    }
+
+    /**
+     * Reserva el horario si no se solapa con otra reserva del paciente. Idempotente por requestId.
+     * Con la agenda del paciente bloqueada: dos nodos que reservan a la vez el mismo horario se serializan aquí.
+     */
+    public boolean reservar(SolicitudReserva solicitud) {
+        return agendaLocks.conBloqueo(List.of(), List.of(solicitud.idPaciente()),
+                () -> transactionTemplate.execute(status -> {
+                    if (reservaRepository.findByRequestId(solicitud.requestId()).isPresent()) {
+                        return true;
+                    }
+                    if (reservaRepository.existeSolapada(solicitud.idPaciente(), solicitud.inicio(), solicitud.fin(),
+                            solicitud.citaExcluida(), solicitud.requestIdCita())) {
+                        return false;
+                    }
+                    reservaRepository.save(new ReservaPaciente(solicitud.idPaciente(), solicitud.inicio(), solicitud.fin(),
+                            solicitud.citaExcluida(), solicitud.shardOrigen(), solicitud.requestId()));
+                    return true;
+                }));
+    }
+
+    /**
+     * Libera la reserva de una solicitud que no llegó a guardar su cita
+     */
+    public void liberar(String requestId) {
+        transactionTemplate.executeWithoutResult(status -> reservaRepository.deleteByRequest(requestId));
+    }
+
+    /**
+     * Eventos de citas de todos los nodos: solo interesan los de pacientes de este nodo
+     */
+    @RabbitListener(queues = "#{reservasQueue.name}")
+    public void recibir(Message mensaje) {
+        CitaEvent evento = decodificar(mensaje);
+        if (evento == null || anilloShards.nodoDe(evento.idPaciente()) != anilloShards.propio()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> aplicar(evento));
+    }
+
+    /**
+     * Confirma o borra las pendientes antiguas según lo que diga su nodo de origen, y borra las ya pasadas
+     */
+    @Scheduled(fixedDelayString = "${agendamiento.shards.reconciliacion-ms:60000}")
+    public void reconciliar() {
+        List<ReservaPaciente> pendientes = reservaRepository.findByEstadoAndCreatedAtBeforeOrderByIdAsc(EstadoReserva.PENDIENTE,
+                LocalDateTime.now().minus(Duration.ofMillis(reservaPendienteMs)), Limit.of(LOTE_RECONCILIACION));
+        for (ReservaPaciente reserva : pendientes) {
+            CitaResponse cita;
+            try {
+                cita = clienteShards.consultarSolicitud(reserva.getShardOrigen(), reserva.getRequestId());
+            } catch (RuntimeException e) {
+                // Nodo de origen sin respuesta: la reserva se mantiene (mejor un falso conflicto que una doble cita)
+                log.warn("Reserva {} sin reconciliar: {}", reserva.getRequestId(), e.getMessage());
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                if (cita != null && !EstadoCita.ANULADA.name().equals(cita.getEstado())
+                        && cita.getInicio().equals(reserva.getInicio()) && cita.getFin().equals(reserva.getFin())) {
+                    reservaRepository.findById(reserva.getId())
+                            .ifPresent(vigente -> vigente.confirmar(cita.getId(), cita.getInicio(), cita.getFin()));
+                } else {
+                    reservaRepository.deleteByRequest(reserva.getRequestId());
+                }
+            });
+        }
+        LocalDateTime corte = LocalDateTime.now().minusDays(1);
+        transactionTemplate.executeWithoutResult(status -> {
+            reservaRepository.deleteTerminadas(corte);
+            anuladaRepository.deleteTerminadas(corte);
+        });
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private void aplicar(CitaEvent evento) {
+        if (evento.estado() == EstadoCita.ANULADA) {
+            reservaRepository.deleteByCita(evento.citaId());
+            anuladaRepository.save(new CitaAnuladaReserva(evento.citaId(), evento.fin()));
+            return;
+        }
+
+        // Evento de una cita ya anulada (reentregado o adelantado por la anulación): no ocupa horario
+        if (anuladaRepository.existsById(evento.citaId())) {
+            reservaRepository.deleteByRequest(evento.requestId());
+            return;
+        }
+
+        // Agendada o modificada: la reserva de la solicitud pasa a ser la de la cita y el horario anterior se libera
+        ReservaPaciente reserva = reservaRepository.findByRequestId(evento.requestId())
+                .orElseGet(() -> new ReservaPaciente(evento.idPaciente(), evento.inicio(), evento.fin(), evento.citaId(),
+                        AnilloShards.nodoDeCita(evento.citaId()), evento.requestId()));
+        reserva.confirmar(evento.citaId(), evento.inicio(), evento.fin());
+        reservaRepository.save(reserva);
+        reservaRepository.deleteOtrasDeCita(evento.citaId(), evento.requestId());
+    }
+
+    // Un mensaje ilegible no se puede reintentar con éxito: se registra y se confirma igualmente
+    private CitaEvent decodificar(Message mensaje) {
+        try {
+            CitaEvent evento = eventReader.readValue(mensaje.getBody());
+            if (evento.requestId() == null || evento.citaId() == null || evento.idPaciente() == null) {
+                log.warn("Evento de cita incompleto descartado: {}", evento);
+                return null;
+            }
+            return evento;
+        } catch (IOException e) {
+            log.warn("Evento de cita ilegible descartado: {}", e.getMessage());
+            return null;
+        }
+    }
+}
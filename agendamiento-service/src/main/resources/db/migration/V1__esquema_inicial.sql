@@ -0,0 +1,43 @@
+-- Esquema inicial de agendamiento-service (el mismo que generaba Hibernate con create-drop).
+-- SQL común a H2 (modo PostgreSQL) y PostgreSQL.
+
+-- Secuencias con incremento 50 = allocationSize de las entidades (IDs por bloques, INSERT en lotes)
+CREATE SEQUENCE citas_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE eventos_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE citas (
+    id          BIGINT       NOT NULL,
+    id_paciente BIGINT       NOT NULL,
+    id_medico   BIGINT       NOT NULL,
+    inicio      TIMESTAMP(6) NOT NULL,
+    fin         TIMESTAMP(6) NOT NULL,
+    estado      VARCHAR(20)  CHECK (estado IN ('AGENDADA', 'CONFIRMADA', 'MODIFICADA', 'ANULADA')),
+    motivo      VARCHAR(255),
+    request_id  VARCHAR(255),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6),
+    CONSTRAINT pk_citas PRIMARY KEY (id),
+    CONSTRAINT uk_citas_request_id UNIQUE (request_id)
+);
+
+-- Rango sobre inicio para las comprobaciones de solapamiento y la paginación por médico y por paciente
+CREATE INDEX idx_citas_medico_estado_inicio ON citas (id_medico, estado, inicio);
+CREATE INDEX idx_citas_paciente_estado_inicio ON citas (id_paciente, estado, inicio);
+
+CREATE TABLE eventos_outbox (
+    id          BIGINT       NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    payload     BYTEA        NOT NULL,
+    created_at  TIMESTAMP(6),
+    CONSTRAINT pk_eventos_outbox PRIMARY KEY (id)
+);
+
+CREATE TABLE solicitudes_procesadas (
+    request_id VARCHAR(255) NOT NULL,
+    cita_id    BIGINT       NOT NULL,
+    operacion  VARCHAR(20)  NOT NULL CHECK (operacion IN ('AGENDAR', 'MODIFICAR', 'ANULAR')),
+    created_at TIMESTAMP(6),
+    CONSTRAINT pk_solicitudes_procesadas PRIMARY KEY (request_id)
+);
+
+CREATE INDEX idx_solicitudes_cita ON solicitudes_procesadas (cita_id);
@@ -0,0 +1,24 @@
+-- Archivo de citas: las pasadas y las anuladas salen de 'citas' (tabla caliente) hacia 'citas_archivo'.
+-- Misma forma que 'citas' más la fecha de archivado; el id es el original, sin secuencia propia.
+
+CREATE TABLE citas_archivo (
+    id           BIGINT       NOT NULL,
+    id_paciente  BIGINT       NOT NULL,
+    id_medico    BIGINT       NOT NULL,
+    inicio       TIMESTAMP(6) NOT NULL,
+    fin          TIMESTAMP(6) NOT NULL,
+    estado       VARCHAR(20)  CHECK (estado IN ('AGENDADA', 'CONFIRMADA', 'MODIFICADA', 'ANULADA')),
+    motivo       VARCHAR(255),
+    request_id   VARCHAR(255),
+    created_at   TIMESTAMP(6),
+    updated_at   TIMESTAMP(6),
+    archivada_en TIMESTAMP(6),
+    CONSTRAINT pk_citas_archivo PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_citas_archivo_medico_estado_inicio ON citas_archivo (id_medico, estado, inicio);
+CREATE INDEX idx_citas_archivo_paciente_estado_inicio ON citas_archivo (id_paciente, estado, inicio);
+CREATE INDEX idx_citas_archivo_inicio ON citas_archivo (inicio);
+
+-- Selección de las citas ya terminadas en la tabla caliente
+CREATE INDEX idx_citas_fin ON citas (fin);
@@ -0,0 +1,6 @@
+-- Latido de replicación: la primaria actualiza la fila y cada réplica muestra hasta qué instante está al día
+CREATE TABLE latido_replicacion (
+    id       INTEGER      NOT NULL,
+    instante TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_latido_replicacion PRIMARY KEY (id)
+);
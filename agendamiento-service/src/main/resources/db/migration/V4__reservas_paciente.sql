@@ -0,0 +1,22 @@
+-- Reservas de horario de los pacientes para el reparto de médicos entre shards: cada nodo guarda las
+-- de los pacientes que el anillo le asigna, vengan de la cita de cualquier nodo
+
+CREATE SEQUENCE reservas_paciente_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE reservas_paciente (
+    id           BIGINT       NOT NULL,
+    id_paciente  BIGINT       NOT NULL,
+    inicio       TIMESTAMP(6) NOT NULL,
+    fin          TIMESTAMP(6) NOT NULL,
+    cita_id      BIGINT,
+    shard_origen INTEGER      NOT NULL,
+    request_id   VARCHAR(255) NOT NULL,
+    estado       VARCHAR(20)  NOT NULL CHECK (estado IN ('PENDIENTE', 'CONFIRMADA')),
+    created_at   TIMESTAMP(6),
+    CONSTRAINT pk_reservas_paciente PRIMARY KEY (id),
+    CONSTRAINT uk_reservas_paciente_request UNIQUE (request_id)
+);
+
+CREATE INDEX idx_reservas_paciente_inicio ON reservas_paciente (id_paciente, inicio);
+CREATE INDEX idx_reservas_cita ON reservas_paciente (cita_id);
+CREATE INDEX idx_reservas_estado_created ON reservas_paciente (estado, created_at);
@@ -0,0 +1,2 @@
+-- Versión para el control optimista de concurrencia de modificar y anular; las citas existentes empiezan en 0
+ALTER TABLE citas ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,9 @@
+-- Citas anuladas de los pacientes de este nodo: un evento anterior a la anulación que llegue después
+-- (reentrega o consumidor lento) no debe volver a crear su reserva
+CREATE TABLE citas_anuladas_reserva (
+    cita_id BIGINT       NOT NULL,
+    fin     TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_citas_anuladas_reserva PRIMARY KEY (cita_id)
+);
+
+CREATE INDEX idx_citas_anuladas_reserva_fin ON citas_anuladas_reserva (fin);
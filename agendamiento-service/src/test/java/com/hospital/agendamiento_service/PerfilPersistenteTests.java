@@ -0,0 +1,97 @@
+package com.hospital.agendamiento_service;
+
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.AnularCitaRequest;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.ModificarCitaRequest;
+import com.hospital.agendamiento_service.dto.PaginaCitas;
+import com.hospital.agendamiento_service.dto.ResultadoLoteItem;
+import com.hospital.agendamiento_service.service.ArchivadorCitas;
+import com.hospital.agendamiento_service.service.CitaService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerfilPersistenteTests {
+
+	private static final LocalDateTime INICIO = LocalDateTime.now().plusDays(3).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+	@Test
+	void lasCitasSobrevivenAlReinicio(@TempDir Path directorio) {
+		CitaResponse agendada;
+		List<ResultadoLoteItem> lote;
+		// Primer arranque: Flyway crea el esquema e Hibernate lo valida
+		try (ConfigurableApplicationContext contexto = arrancar(directorio)) {
+			CitaService citaService = contexto.getBean(CitaService.class);
+			agendada = citaService.agendarCita(new AgendarCitaRequest(1L, 1L, INICIO, INICIO.plusMinutes(30),
+					"Control", "persistente-1"));
+			lote = citaService.agendarCitasLote(List.of(new AgendarCitaRequest(2L, 2L, INICIO, INICIO.plusMinutes(30),
+					"Control", "persistente-2")));
+		}
+		assertTrue(lote.get(0).isSuccess());
+
+		// Segundo arranque sobre el mismo fichero: las migraciones ya aplicadas no se repiten
+		try (ConfigurableApplicationContext contexto = arrancar(directorio)) {
+			CitaService citaService = contexto.getBean(CitaService.class);
+			assertEquals(INICIO, citaService.consultarCita(agendada.getId()).getInicio());
+			assertEquals(lote.get(0).getCita().getId(), citaService.consultarCita(lote.get(0).getCita().getId()).getId());
+
+			// El reintento tras el reinicio devuelve la misma cita y el horario sigue ocupado
+			assertEquals(agendada.getId(), citaService.agendarCita(new AgendarCitaRequest(1L, 1L, INICIO,
+					INICIO.plusMinutes(30), "Control", "persistente-1")).getId());
+			RuntimeException conflicto = assertThrows(RuntimeException.class,
+					() -> citaService.agendarCita(new AgendarCitaRequest(3L, 1L, INICIO.plusMinutes(15),
+							INICIO.plusMinutes(45), "Control", "persistente-3")));
+			assertTrue(conflicto.getMessage().contains("médico"));
+		}
+	}
+
+	@Test
+	void lasCitasArchivadasSiguenConsultables(@TempDir Path directorio) {
+		// Corte 100 días en el futuro: las citas recién agendadas cuentan como terminadas
+		try (ConfigurableApplicationContext contexto = arrancar(directorio, "--agendamiento.archivo.margen-horas=-2400")) {
+			CitaService citaService = contexto.getBean(CitaService.class);
+			CitaResponse terminada = citaService.agendarCita(new AgendarCitaRequest(1L, 1L, INICIO, INICIO.plusMinutes(30),
+					"Control", "archivo-1"));
+			CitaResponse anulada = citaService.agendarCita(new AgendarCitaRequest(2L, 1L, INICIO.plusHours(1),
+					INICIO.plusHours(1).plusMinutes(30), "Control", "archivo-2"));
+			citaService.anularCita(new AnularCitaRequest(anulada.getId(), "archivo-3", "Viaje"));
+
+			contexto.getBean(ArchivadorCitas.class).archivar();
+
+			// Consultas por id, agenda paginada y reintentos idempotentes leen también el archivo
+			assertEquals("ANULADA", citaService.consultarCita(anulada.getId()).getEstado());
+			PaginaCitas agenda = citaService.consultarPaginaPorMedico(1L, null, 10);
+			assertEquals(List.of(terminada.getId()), agenda.getCitas().stream().map(CitaResponse::getId).toList());
+			assertEquals(terminada.getId(), citaService.agendarCita(new AgendarCitaRequest(1L, 1L, INICIO,
+					INICIO.plusMinutes(30), "Control", "archivo-1")).getId());
+
+			// Una cita archivada ya no admite cambios
+			RuntimeException archivada = assertThrows(RuntimeException.class,
+					() -> citaService.modificarCita(new ModificarCitaRequest(terminada.getId(), INICIO.plusDays(1),
+							INICIO.plusDays(1).plusMinutes(30), null, "archivo-4")));
+			assertTrue(archivada.getMessage().contains("archivada"));
+		}
+	}
+
+	// Los argumentos tienen prioridad sobre application.properties (las propiedades del builder no)
+	private static ConfigurableApplicationContext arrancar(Path directorio, String... argumentos) {
+		return new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("persistente")
+				.properties("agendamiento.persistencia.directorio=" + directorio)
+				.run(Stream.concat(Stream.of("--agendamiento.outbox.intervalo-ms=3600000",
+						"--agendamiento.archivo.retraso-inicial-ms=3600000"), Stream.of(argumentos)).toArray(String[]::new));
+	}
+}
@@ -0,0 +1,29 @@
+package com.hospital.agendamiento_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.NestedExceptionUtils;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PerfilVirtualTests {
+
+	@Test
+	void sinJava21ElPerfilVirtualNoArranca() {
+		// Con JRE 21+ el perfil es válido: esta comprobación solo aplica a los anteriores
+		assumeTrue(Runtime.version().feature() < 21);
+
+		RuntimeException error = assertThrows(RuntimeException.class, () -> new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+				.web(WebApplicationType.NONE)
+				.profiles("virtual")
+				.run("--spring.datasource.url=jdbc:h2:mem:perfil-virtual", "--logging.level.root=OFF"));
+
+		Throwable causa = NestedExceptionUtils.getMostSpecificCause(error);
+		assertInstanceOf(IllegalStateException.class, causa);
+		assertTrue(causa.getMessage().contains("requiere Java 21"));
+	}
+}
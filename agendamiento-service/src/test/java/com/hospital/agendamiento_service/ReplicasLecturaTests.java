@@ -0,0 +1,108 @@
+package com.hospital.agendamiento_service;
+
+import com.hospital.agendamiento_service.config.EnrutadorReplicas;
+import com.hospital.agendamiento_service.config.LecturaPropiaFilter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Enrutado de lecturas con una primaria y una réplica H2 independientes. La réplica no replica:
+ * tiene una cita que la primaria no tiene (999999) y el latido lo fija la prueba, así que el
+ * resultado de cada lectura dice a qué base fue.
+ */
+class ReplicasLecturaTests {
+
+	private static final String REPLICA = "jdbc:h2:mem:replica-lecturas;DB_CLOSE_DELAY=-1";
+	private static final LocalDateTime INICIO = LocalDateTime.now().plusDays(2).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+	private static ConfigurableApplicationContext contexto;
+	private static MockMvc mockMvc;
+	private static EnrutadorReplicas enrutador;
+
+	@BeforeAll
+	static void arrancar() throws SQLException {
+		Flyway.configure().dataSource(REPLICA, "sa", "").load().migrate();
+		try (Connection replica = DriverManager.getConnection(REPLICA, "sa", "")) {
+			replica.createStatement().executeUpdate("INSERT INTO citas (id, id_paciente, id_medico, inicio, fin, estado, motivo) "
+					+ "VALUES (999999, 7, 70, TIMESTAMP '2030-01-07 09:00:00', TIMESTAMP '2030-01-07 09:30:00', 'AGENDADA', 'Solo en la réplica')");
+			replica.createStatement().executeUpdate("INSERT INTO latido_replicacion (id, instante) VALUES (1, CURRENT_TIMESTAMP)");
+		}
+
+		contexto = new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+				.run("--server.port=0",
+						"--spring.datasource.url=jdbc:h2:mem:primaria-lecturas",
+						"--agendamiento.replicas.urls=" + REPLICA,
+						"--agendamiento.replicas.sondeo-ms=3600000",
+						"--agendamiento.outbox.intervalo-ms=3600000",
+						"--agendamiento.archivo.retraso-inicial-ms=3600000");
+		mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) contexto)
+				.addFilters(contexto.getBean(LecturaPropiaFilter.class))
+				.build();
+		enrutador = contexto.getBean(EnrutadorReplicas.class);
+		// El arranque tarda más que el retraso admitido: el latido se renueva después
+		fijarLatido(LocalDateTime.now());
+	}
+
+	@AfterAll
+	static void parar() {
+		contexto.close();
+	}
+
+	@Test
+	void lasLecturasVanALaReplicaSalvoTrasUnaEscrituraDelMismoCliente() throws Exception {
+		citasPaciente("10.0.0.1").andExpect(jsonPath("$.data[*].id", contains(999999)));
+
+		// El cliente 10.0.0.1 agenda: la réplica no ha llegado a esa escritura y su lectura va a la primaria
+		mockMvc.perform(post("/api/v1/citas").header("X-Forwarded-For", "10.0.0.1")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"idPaciente\":7,\"idMedico\":70,\"inicio\":\"" + INICIO + "\",\"fin\":\""
+								+ INICIO.plusMinutes(30) + "\",\"motivo\":\"Control\",\"requestId\":\"replicas-1\"}"))
+				.andExpect(status().isCreated());
+		citasPaciente("10.0.0.1").andExpect(jsonPath("$.data[*].motivo", contains("Control")));
+		citasPaciente("10.0.0.2").andExpect(jsonPath("$.data[*].id", contains(999999)));
+
+		// La réplica alcanza la escritura: el cliente vuelve a leer de ella
+		fijarLatido(LocalDateTime.now());
+		citasPaciente("10.0.0.1").andExpect(jsonPath("$.data[*].id", contains(999999)));
+
+		// Réplica con más retraso del admitido: nadie lee de ella
+		fijarLatido(LocalDateTime.now().minusHours(1));
+		citasPaciente("10.0.0.2").andExpect(jsonPath("$.data[*].motivo", contains("Control")));
+	}
+
+	private static ResultActions citasPaciente(String cliente) throws Exception {
+		return mockMvc.perform(get("/api/v1/citas/paciente/7").header("X-Forwarded-For", cliente))
+				.andExpect(status().isOk());
+	}
+
+	private static void fijarLatido(LocalDateTime instante) throws SQLException {
+		try (Connection replica = DriverManager.getConnection(REPLICA, "sa", "");
+			 PreparedStatement sentencia = replica.prepareStatement("UPDATE latido_replicacion SET instante = ? WHERE id = 1")) {
+			sentencia.setTimestamp(1, Timestamp.valueOf(instante));
+			sentencia.executeUpdate();
+		}
+		enrutador.sondear();
+	}
+}
@@ -0,0 +1,199 @@
+package com.hospital.agendamiento_service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.AnularCitaRequest;
+import com.hospital.agendamiento_service.dto.CitaEvent;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.SolicitudReserva;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.entity.EstadoReserva;
+import com.hospital.agendamiento_service.entity.ReservaPaciente;
+import com.hospital.agendamiento_service.repository.ReservaPacienteRepository;
+import com.hospital.agendamiento_service.service.AnilloShards;
+import com.hospital.agendamiento_service.service.CitaService;
+import com.hospital.agendamiento_service.service.ReservasPaciente;
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dos nodos de agendamiento-service en el mismo proceso, cada uno con su BD H2, que se reparten los
+ * médicos y se comunican por HTTP (reservas) y por un broker AMQP en memoria (Qpid, en lugar de RabbitMQ).
+ */
+class ShardsMultiInstanciaTests {
+
+	private static final LocalDateTime INICIO = LocalDateTime.now().plusDays(4).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+	private static SystemLauncher broker;
+	private static ConfigurableApplicationContext nodo1;
+	private static ConfigurableApplicationContext nodo2;
+	private static AnilloShards anillo;
+
+	@BeforeAll
+	static void arrancar() throws Exception {
+		int puertoBroker = puertoLibre();
+		int puerto1 = puertoLibre();
+		int puerto2 = puertoLibre();
+		broker = iniciarBroker(puertoBroker);
+
+		String nodos = "1=http://localhost:" + puerto1 + ",2=http://localhost:" + puerto2;
+		nodo1 = arrancarNodo(1, puerto1, puertoBroker, nodos);
+		nodo2 = arrancarNodo(2, puerto2, puertoBroker, nodos);
+		anillo = nodo1.getBean(AnilloShards.class);
+	}
+
+	@AfterAll
+	static void parar() {
+		nodo1.close();
+		nodo2.close();
+		broker.shutdown();
+	}
+
+	@Test
+	void cadaNodoAgendaSusMedicosYElPacienteNoSeDuplicaEntreNodos() throws Exception {
+		long medico1 = primeraClaveDe(1, 100);
+		long medico2 = primeraClaveDe(2, 100);
+		long paciente = primeraClaveDe(2, 5000);
+		CitaService citas1 = nodo1.getBean(CitaService.class);
+		CitaService citas2 = nodo2.getBean(CitaService.class);
+		ReservaPacienteRepository reservas2 = nodo2.getBean(ReservaPacienteRepository.class);
+
+		// El nodo 1 no agenda a un médico del nodo 2
+		RuntimeException ajeno = assertThrows(RuntimeException.class, () -> citas1.agendarCita(
+				new AgendarCitaRequest(paciente, medico2, INICIO, INICIO.plusMinutes(30), "Control", "shards-0")));
+		assertTrue(ajeno.getMessage().contains("shard 2"));
+
+		// Cita en el nodo 1: su ID lleva el shard y el nodo 2 (el del paciente) guarda la reserva
+		CitaResponse cita = citas1.agendarCita(
+				new AgendarCitaRequest(paciente, medico1, INICIO, INICIO.plusMinutes(30), "Control", "shards-1"));
+		assertEquals(1, AnilloShards.nodoDeCita(cita.getId()));
+
+		// El mismo paciente en un médico del nodo 2 a la misma hora: rechazado por la reserva
+		RuntimeException conflicto = assertThrows(RuntimeException.class, () -> citas2.agendarCita(
+				new AgendarCitaRequest(paciente, medico2, INICIO.plusMinutes(15), INICIO.plusMinutes(45), "Control", "shards-2")));
+		assertTrue(conflicto.getMessage().contains("paciente"));
+
+		// El evento de la cita, a través del broker, confirma la reserva
+		ReservaPaciente confirmada = esperar(() -> reservas2.findByRequestId("shards-1")
+				.filter(reserva -> reserva.getEstado() == EstadoReserva.CONFIRMADA));
+		assertEquals(cita.getId(), confirmada.getCitaId());
+
+		// Anulada la cita, su evento libera el horario y el nodo 2 ya puede agendarlo
+		citas1.anularCita(new AnularCitaRequest(cita.getId(), "shards-3", "Viaje"));
+		esperar(() -> reservas2.findByRequestId("shards-1").isEmpty() ? Optional.of(true) : Optional.empty());
+		CitaResponse otra = citas2.agendarCita(
+				new AgendarCitaRequest(paciente, medico2, INICIO.plusMinutes(15), INICIO.plusMinutes(45), "Control", "shards-4"));
+		assertEquals(2, AnilloShards.nodoDeCita(otra.getId()));
+
+		// El alta de la cita reentregada después de la anulación no recrea su reserva
+		ReservasPaciente reservasPaciente2 = nodo2.getBean(ReservasPaciente.class);
+		reservasPaciente2.recibir(mensaje(new CitaEvent("CITA_AGENDADA", cita.getId(), paciente, medico1,
+				INICIO, INICIO.plusMinutes(30), EstadoCita.AGENDADA, "Control", "shards-1", LocalDateTime.now())));
+		assertTrue(reservas2.findByRequestId("shards-1").isEmpty());
+	}
+
+	@Test
+	void laReservaPendienteDeUnaCitaNoChocaConSuPropiaModificacion() {
+		long paciente = primeraClaveDe(2, 6000);
+		ReservasPaciente reservas2 = nodo2.getBean(ReservasPaciente.class);
+		LocalDateTime inicio = INICIO.plusDays(1);
+
+		// Reserva de agendar aún sin confirmar: el evento de la cita no ha llegado y no tiene citaId
+		assertTrue(reservas2.reservar(new SolicitudReserva(paciente, inicio, inicio.plusMinutes(30),
+				"propia-1", null, null, 1)));
+
+		// Moverla 15 min solapa con su propia reserva, que se excluye por el requestId de su alta
+		long citaId = (1L << AnilloShards.BITS_LOCALES) + 999;
+		assertTrue(reservas2.reservar(new SolicitudReserva(paciente, inicio.plusMinutes(15), inicio.plusMinutes(45),
+				"propia-2", citaId, "propia-1", 1)));
+
+		// Otra cita del paciente en ese horario sí choca
+		assertFalse(reservas2.reservar(new SolicitudReserva(paciente, inicio.plusMinutes(20), inicio.plusMinutes(50),
+				"propia-3", citaId + 1, "otra-cita", 1)));
+	}
+
+	private static Message mensaje(CitaEvent evento) throws Exception {
+		return new Message(nodo2.getBean(ObjectMapper.class).writeValueAsBytes(evento));
+	}
+
+	private static long primeraClaveDe(int nodo, long desde) {
+		return LongStream.iterate(desde, id -> id + 1).filter(id -> anillo.nodoDe(id) == nodo).findFirst().getAsLong();
+	}
+
+	private static <T> T esperar(Supplier<Optional<T>> condicion) {
+		long limite = System.currentTimeMillis() + 15_000;
+		while (System.currentTimeMillis() < limite) {
+			Optional<T> resultado = condicion.get();
+			if (resultado.isPresent()) {
+				return resultado.get();
+			}
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		throw new AssertionError("La condición no se cumplió en 15 s");
+	}
+
+	private static ConfigurableApplicationContext arrancarNodo(int id, int puerto, int puertoBroker, String nodos) {
+		return new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+				.run("--server.port=" + puerto,
+						"--spring.datasource.url=jdbc:h2:mem:shard-" + id,
+						"--spring.rabbitmq.port=" + puertoBroker,
+						"--agendamiento.shards.nodos=" + nodos,
+						"--agendamiento.shards.id=" + id,
+						"--agendamiento.archivo.retraso-inicial-ms=3600000",
+						// Qpid registra cada conexión, cola y enlace a nivel INFO
+						"--logging.level.qpid=WARN",
+						"--logging.level.org.apache.qpid=WARN");
+	}
+
+	private static SystemLauncher iniciarBroker(int puerto) throws Exception {
+		((Logger) LoggerFactory.getLogger("qpid")).setLevel(Level.WARN);
+		((Logger) LoggerFactory.getLogger("org.apache.qpid")).setLevel(Level.WARN);
+
+		Map<String, Object> atributos = new HashMap<>();
+		atributos.put(SystemConfig.TYPE, "Memory");
+		atributos.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+				ShardsMultiInstanciaTests.class.getClassLoader().getResource("broker-local.json").toExternalForm());
+		atributos.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+		atributos.put(SystemConfig.CONTEXT, Map.of(
+				"qpid.amqp_port", puerto,
+				"qpid.work_dir", Files.createTempDirectory("broker-shards").toString()));
+		SystemLauncher lanzador = new SystemLauncher();
+		lanzador.startup(atributos);
+		return lanzador;
+	}
+
+	private static int puertoLibre() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.hospital.agendamiento_service.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carga de lazo cerrado contra una instancia en marcha: cada cliente envía la siguiente petición
+ * al recibir la respuesta anterior. Mezcla 80% consultas GET /{id} y 20% agendamientos.
+ * Reporta throughput y p50/p99 por nivel de concurrencia.
+ *
+ * Comparar hilos de plataforma (por defecto) con el perfil 'virtual' (JRE 21+):
+ * <pre>
+ * ./mvnw spring-boot:run                                              # o -Dspring-boot.run.profiles=virtual
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *      com.hospital.agendamiento_service.benchmark.CargaConcurrente http://localhost:8080 1000,2000,5000,10000 30
+ * </pre>
+ */
+public class CargaConcurrente {
+
+    private static final int CITAS_SEMILLA = 200;
+    private static final int MEDICOS = 500;
+    // Latencias en microsegundos; por encima de un minuto se registran como un minuto
+    private static final long MAXIMO_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String base;
+    private final HttpClient http;
+    private final long[] citasSemilla = new long[CITAS_SEMILLA];
+
+    public CargaConcurrente(String base) {
+        this.base = base + "/api/v1/citas";
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int[] niveles = Arrays.stream((args.length > 1 ? args[1] : "1000,2000,5000,10000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        CargaConcurrente carga = new CargaConcurrente(url);
+        carga.sembrar();
+        System.out.println("clientes,peticiones_por_seg,p50_ms,p99_ms,errores");
+        for (int clientes : niveles) {
+            carga.ejecutar(clientes, Duration.ofSeconds(segundos));
+        }
+    }
+
+    // Citas conocidas para las consultas por id; médicos y pacientes nuevos en cada ejecución
+    private void sembrar() throws Exception {
+        LocalDate dia = LocalDate.now().plusDays(1);
+        long ejecucion = System.currentTimeMillis() * 1000;
+        for (int i = 0; i < CITAS_SEMILLA; i++) {
+            LocalDateTime inicio = dia.atTime(8, 0).plusMinutes(30L * (i % 20));
+            HttpResponse<String> respuesta = http.send(agendar(ejecucion + i, ejecucion + i / 20, inicio), HttpResponse.BodyHandlers.ofString());
+            String cuerpo = respuesta.body();
+            if (respuesta.statusCode() != 201) {
+                throw new IllegalStateException("No se pudo sembrar la cita " + i + ": " + cuerpo);
+            }
+            int desde = cuerpo.indexOf("\"id\":") + 5;
+            citasSemilla[i] = Long.parseLong(cuerpo.substring(desde, indiceFinNumero(cuerpo, desde)));
+        }
+    }
+
+    private void ejecutar(int clientes, Duration duracion) throws InterruptedException {
+        long fin = System.nanoTime() + duracion.toNanos();
+        // Un único registro sin bloqueos para todos los clientes: memoria fija y ninguna muestra descartada
+        Recorder latencias = new Recorder(1, MAXIMO_MICROS, 3);
+        AtomicLong errores = new AtomicLong();
+        CountDownLatch terminados = new CountDownLatch(clientes);
+
+        long inicio = System.nanoTime();
+        for (int c = 0; c < clientes; c++) {
+            siguiente(new SplittableRandom(c), fin, latencias, errores, terminados);
+        }
+        terminados.await();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Histogram histograma = latencias.getIntervalHistogram();
+        System.out.printf("%d,%.0f,%.1f,%.1f,%d%n", clientes, histograma.getTotalCount() / segundos,
+                histograma.getValueAtPercentile(50) / 1000.0, histograma.getValueAtPercentile(99) / 1000.0, errores.get());
+    }
+
+    private void siguiente(SplittableRandom random, long fin, Recorder latencias, AtomicLong errores,
+                           CountDownLatch terminados) {
+        if (System.nanoTime() >= fin) {
+            terminados.countDown();
+            return;
+        }
+        HttpRequest peticion = random.nextInt(10) < 8
+                ? HttpRequest.newBuilder(URI.create(base + "/" + citasSemilla[random.nextInt(CITAS_SEMILLA)])).GET().build()
+                : agendar(random.nextInt(1_000_000), random.nextInt(MEDICOS),
+                        LocalDate.now().plusDays(2 + random.nextInt(30)).atTime(8, 0).plusMinutes(15L * random.nextInt(38)));
+
+        long envio = System.nanoTime();
+        http.sendAsync(peticion, HttpResponse.BodyHandlers.discarding()).whenComplete((respuesta, error) -> {
+            // Los 4xx de conflicto son respuestas válidas del servicio; solo cuentan los fallos de transporte y 5xx
+            if (error != null || respuesta.statusCode() >= 500) {
+                errores.incrementAndGet();
+            }
+            latencias.recordValue(Math.max(1, Math.min((System.nanoTime() - envio) / 1000, MAXIMO_MICROS)));
+            siguiente(random, fin, latencias, errores, terminados);
+        });
+    }
+
+    private HttpRequest agendar(long idPaciente, long idMedico, LocalDateTime inicio) {
+        String json = String.format("{\"idPaciente\":%d,\"idMedico\":%d,\"inicio\":\"%s\",\"fin\":\"%s\",\"motivo\":\"Carga\",\"requestId\":\"%s\"}",
+                idPaciente, idMedico, inicio, inicio.plusMinutes(30), UUID.randomUUID());
+        return HttpRequest.newBuilder(URI.create(base))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static int indiceFinNumero(String texto, int desde) {
+        int i = desde;
+        while (i < texto.length() && Character.isDigit(texto.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
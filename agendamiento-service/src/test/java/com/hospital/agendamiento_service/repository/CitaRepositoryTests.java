@@ -0,0 +1,65 @@
+package com.hospital.agendamiento_service.repository;
+
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CitaRepositoryTests {
+
+	private static final LocalDateTime INICIO = LocalDate.now().plusDays(2).atTime(10, 0);
+
+	@Autowired
+	private CitaRepository citaRepository;
+
+	@MockitoBean
+	private RabbitTemplate rabbitTemplate;
+
+	@BeforeEach
+	void limpiar() {
+		citaRepository.deleteAll();
+	}
+
+	@Test
+	void unaCitaModificadaSigueOcupandoSuHorario() {
+		guardar(EstadoCita.MODIFICADA);
+
+		// Antes solo contaban AGENDADA y CONFIRMADA: se podía agendar encima de una cita modificada
+		assertTrue(citaRepository.existeConflictoMedico(1L, INICIO.plusMinutes(15), INICIO.plusMinutes(45)));
+		assertTrue(citaRepository.existeConflictoPaciente(2L, INICIO.plusMinutes(15), INICIO.plusMinutes(45)));
+	}
+
+	@Test
+	void unaCitaAnuladaLiberaSuHorario() {
+		guardar(EstadoCita.ANULADA);
+
+		assertFalse(citaRepository.existeConflictoMedico(1L, INICIO, INICIO.plusMinutes(30)));
+		assertFalse(citaRepository.existeConflictoPaciente(2L, INICIO, INICIO.plusMinutes(30)));
+	}
+
+	@Test
+	void citasContiguasNoSeSolapan() {
+		guardar(EstadoCita.AGENDADA);
+
+		assertFalse(citaRepository.existeConflictoMedico(1L, INICIO.plusMinutes(30), INICIO.plusMinutes(60)));
+		assertFalse(citaRepository.existeConflictoMedico(1L, INICIO.minusMinutes(30), INICIO));
+	}
+
+	private void guardar(EstadoCita estado) {
+		Cita cita = new Cita(2L, 1L, INICIO, INICIO.plusMinutes(30), "Control", UUID.randomUUID().toString());
+		cita.setEstado(estado);
+		citaRepository.save(cita);
+	}
+}
@@ -0,0 +1,44 @@
+package com.hospital.agendamiento_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnilloShardsTests {
+
+	private static final Map<Integer, String> TRES_NODOS = AnilloShards.parsear(
+			new String[]{"1=http://agendamiento-1:8080", "2=http://agendamiento-2:8080", "3=http://agendamiento-3:8080"});
+
+	@Test
+	void asignaLosMismosNodosQueElGateway() {
+		// La misma tabla está en EnrutadorShardsTests de api-gateway: si cambia aquí, debe cambiar allí
+		AnilloShards anillo = new AnilloShards(TRES_NODOS, 1);
+		int[] esperados = {2, 2, 3, 3, 2, 2, 3, 2, 3, 2, 3, 2, 1, 2, 1, 2};
+		assertArrayEquals(esperados, LongStream.rangeClosed(1, 16).mapToInt(anillo::nodoDe).toArray());
+	}
+
+	@Test
+	void unNodoNuevoSoloSeLlevaClavesDeLosDemas() {
+		AnilloShards anillo = new AnilloShards(TRES_NODOS, 1);
+		Map<Integer, String> cuatroNodos = new LinkedHashMap<>(TRES_NODOS);
+		cuatroNodos.put(4, "http://agendamiento-4:8080");
+		AnilloShards ampliado = new AnilloShards(cuatroNodos, 1);
+
+		long[] movidas = LongStream.rangeClosed(1, 100_000).filter(id -> anillo.nodoDe(id) != ampliado.nodoDe(id)).toArray();
+		assertTrue(LongStream.of(movidas).allMatch(id -> ampliado.nodoDe(id) == 4));
+		assertTrue(movidas.length > 15_000 && movidas.length < 35_000, "Claves movidas: " + movidas.length);
+	}
+
+	@Test
+	void elIdDeCitaLlevaSuShard() {
+		long id = AnilloShards.primerIdCita(3) + 12_345;
+		assertEquals(3, AnilloShards.nodoDeCita(id));
+		assertEquals(0, AnilloShards.nodoDeCita(12_345));
+	}
+}
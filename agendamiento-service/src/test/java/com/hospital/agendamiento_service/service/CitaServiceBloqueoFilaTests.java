@@ -0,0 +1,82 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.AnularCitaRequest;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.ModificarCitaRequest;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.repository.CitaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Variante pesimista de modificar/anular (la que compara ContencionCitaBenchmark)
+ */
+@SpringBootTest(properties = {
+		"agendamiento.concurrencia.bloqueo-fila=true",
+		"spring.datasource.url=jdbc:h2:mem:bloqueo-fila"
+})
+class CitaServiceBloqueoFilaTests {
+
+	@Autowired
+	private CitaService citaService;
+
+	@Autowired
+	private CitaRepository citaRepository;
+
+	@MockitoBean
+	private RabbitTemplate rabbitTemplate;
+
+	@Test
+	void conBloqueoDeFilaAnularYModificarSeSerializanSinConflictosDeVersion() throws Exception {
+		LocalDateTime manana = LocalDate.now().plusDays(1).atTime(8, 0);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		for (int i = 0; i < 20; i++) {
+			LocalDateTime inicio = manana.plusMinutes(30L * i);
+			CitaResponse cita = citaService.agendarCita(new AgendarCitaRequest(
+					7L, 7L, inicio, inicio.plusMinutes(30), "Control", UUID.randomUUID().toString()));
+			CountDownLatch salida = new CountDownLatch(1);
+
+			Future<Boolean> anulacion = executor.submit(() -> {
+				salida.await();
+				citaService.anularCita(new AnularCitaRequest(cita.getId(), UUID.randomUUID().toString(), "Viaje"));
+				return true;
+			});
+			Future<Boolean> modificacion = executor.submit(() -> {
+				salida.await();
+				try {
+					citaService.modificarCita(new ModificarCitaRequest(cita.getId(), null, null,
+							"Cambio de motivo", UUID.randomUUID().toString()));
+					return true;
+				} catch (RuntimeException e) {
+					// Rechazo esperado si la anulación llegó antes
+					return false;
+				}
+			});
+
+			salida.countDown();
+			assertTrue(anulacion.get(30, TimeUnit.SECONDS));
+			modificacion.get(30, TimeUnit.SECONDS);
+			assertEquals(EstadoCita.ANULADA, citaRepository.findById(cita.getId()).orElseThrow().getEstado());
+		}
+		executor.shutdown();
+
+		// La segunda transacción espera a la fila en vez de fallar al escribir
+		assertEquals(0L, citaService.metricasLatencia().get("conflictosVersion"));
+	}
+}
@@ -0,0 +1,206 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.AnularCitaRequest;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.ModificarCitaRequest;
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.entity.EstadoCita;
+import com.hospital.agendamiento_service.repository.CitaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CitaServiceConcurrencyTests {
+
+	private static final int HILOS = 200;
+	private static final int SOLICITUDES = 400;
+
+	@Autowired
+	private CitaService citaService;
+
+	@Autowired
+	private CitaRepository citaRepository;
+
+	@Autowired
+	private AgendaIndex agendaIndex;
+
+	@Autowired
+	private AgendaLocks agendaLocks;
+
+	@MockitoBean
+	private RabbitTemplate rabbitTemplate;
+
+	private final LocalDate manana = LocalDate.now().plusDays(1);
+
+	@BeforeEach
+	void limpiar() {
+		citaRepository.deleteAll();
+		agendaIndex.limpiar();
+	}
+
+	@Test
+	void solicitudesConcurrentesNoGeneranCitasSolapadas() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch salida = new CountDownLatch(1);
+		AtomicInteger agendadas = new AtomicInteger();
+		Random random = new Random(42);
+
+		List<Future<?>> futuros = new ArrayList<>();
+		for (int i = 0; i < SOLICITUDES; i++) {
+			// Pocos médicos y pacientes, franjas de 30 min que empiezan cada 15 min: muchos choques
+			long idMedico = 1 + random.nextInt(4);
+			long idPaciente = 100 + random.nextInt(40);
+			LocalDateTime inicio = manana.atTime(LocalTime.of(8, 0)).plusMinutes(15L * random.nextInt(32));
+			AgendarCitaRequest request = new AgendarCitaRequest(idPaciente, idMedico, inicio,
+					inicio.plusMinutes(30), "stress", UUID.randomUUID().toString());
+
+			futuros.add(executor.submit(() -> {
+				salida.await();
+				try {
+					citaService.agendarCita(request);
+					agendadas.incrementAndGet();
+				} catch (RuntimeException e) {
+					// Rechazo esperado por conflicto de horario
+				}
+				return null;
+			}));
+		}
+
+		salida.countDown();
+		for (Future<?> futuro : futuros) {
+			futuro.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		List<Cita> citas = citaRepository.findAll();
+		assertEquals(agendadas.get(), citas.size());
+		assertTrue(citas.size() > 0);
+		assertSinSolapamientos(citas, Cita::getIdMedico);
+		assertSinSolapamientos(citas, Cita::getIdPaciente);
+	}
+
+	@Test
+	void medicosDistintosNoSeBloqueanEntreSi() throws Exception {
+		CountDownLatch bloqueado = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+
+		// Un hilo retiene la agenda del médico 1 / paciente 1
+		Thread retenedor = new Thread(() -> agendaLocks.conBloqueo(1L, 1L, () -> {
+			bloqueado.countDown();
+			try {
+				liberar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}));
+		retenedor.start();
+		assertTrue(bloqueado.await(5, TimeUnit.SECONDS));
+
+		try {
+			ExecutorService executor = Executors.newSingleThreadExecutor();
+			LocalDateTime inicio = manana.atTime(9, 0);
+			Future<?> otroMedico = executor.submit(() -> citaService.agendarCita(new AgendarCitaRequest(
+					2L, 2L, inicio, inicio.plusMinutes(30), "paralelo", UUID.randomUUID().toString())));
+
+			// Debe completarse mientras el médico 1 sigue bloqueado
+			otroMedico.get(5, TimeUnit.SECONDS);
+			executor.shutdown();
+		} finally {
+			liberar.countDown();
+			retenedor.join();
+		}
+	}
+
+	@Test
+	void modificarDentroDeSuPropioHorarioNoChocaConsigoMisma() {
+		LocalDateTime inicio = manana.atTime(10, 0);
+		CitaResponse cita = citaService.agendarCita(new AgendarCitaRequest(
+				5L, 5L, inicio, inicio.plusMinutes(30), "Control", UUID.randomUUID().toString()));
+
+		// Cada cambio se solapa con el horario que la cita tenía: la guardia de BD debe excluirla
+		citaService.modificarCita(new ModificarCitaRequest(cita.getId(), inicio.plusMinutes(15), inicio.plusMinutes(45),
+				null, UUID.randomUUID().toString()));
+		CitaResponse movida = citaService.modificarCita(new ModificarCitaRequest(cita.getId(), inicio.plusMinutes(30),
+				inicio.plusMinutes(60), null, UUID.randomUUID().toString()));
+		assertEquals(inicio.plusMinutes(30), movida.getInicio());
+
+		// Una cita modificada sigue ocupando su horario
+		assertTrue(citaRepository.existeConflictoMedico(5L, inicio.plusMinutes(45), inicio.plusMinutes(75)));
+	}
+
+	@Test
+	void anularYModificarALaVezNoResucitanLaCita() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		for (int i = 0; i < 20; i++) {
+			LocalDateTime inicio = manana.atTime(LocalTime.of(8, 0)).plusMinutes(30L * i);
+			CitaResponse cita = citaService.agendarCita(new AgendarCitaRequest(
+					6L, 6L, inicio, inicio.plusMinutes(30), "Control", UUID.randomUUID().toString()));
+			CountDownLatch salida = new CountDownLatch(1);
+
+			Future<Boolean> anulacion = executor.submit(() -> {
+				salida.await();
+				citaService.anularCita(new AnularCitaRequest(cita.getId(), UUID.randomUUID().toString(), "Viaje"));
+				return true;
+			});
+			Future<Boolean> modificacion = executor.submit(() -> {
+				salida.await();
+				try {
+					citaService.modificarCita(new ModificarCitaRequest(cita.getId(), null, null,
+							"Cambio de motivo", UUID.randomUUID().toString()));
+					return true;
+				} catch (RuntimeException e) {
+					// Rechazo esperado si la anulación llegó antes
+					return false;
+				}
+			});
+
+			salida.countDown();
+			// Sin versión, la modificación leída antes de la anulación la sobrescribía (último en escribir gana)
+			assertTrue(anulacion.get(30, TimeUnit.SECONDS));
+			modificacion.get(30, TimeUnit.SECONDS);
+			assertEquals(EstadoCita.ANULADA, citaRepository.findById(cita.getId()).orElseThrow().getEstado());
+		}
+		executor.shutdown();
+	}
+
+	private void assertSinSolapamientos(List<Cita> citas, Function<Cita, Long> dueno) {
+		Map<Long, List<Cita>> porDueno = citas.stream()
+				.filter(c -> c.getEstado() == EstadoCita.AGENDADA)
+				.collect(Collectors.groupingBy(dueno));
+
+		for (List<Cita> agenda : porDueno.values()) {
+			agenda.sort((a, b) -> a.getInicio().compareTo(b.getInicio()));
+			for (int i = 1; i < agenda.size(); i++) {
+				assertFalse(agenda.get(i).getInicio().isBefore(agenda.get(i - 1).getFin()),
+						"Citas solapadas: " + agenda.get(i - 1).getId() + " y " + agenda.get(i).getId());
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.hospital.agendamiento_service.service;
+
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.ResultadoLoteItem;
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.repository.CitaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CitaServiceLoteTests {
+
+	@Autowired
+	private CitaService citaService;
+
+	@Autowired
+	private CitaRepository citaRepository;
+
+	@Autowired
+	private AgendaIndex agendaIndex;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private RabbitTemplate rabbitTemplate;
+
+	private final LocalDate manana = LocalDate.now().plusDays(1);
+
+	@BeforeEach
+	void limpiar() {
+		citaRepository.deleteAll();
+		agendaIndex.limpiar();
+	}
+
+	@Test
+	void unLoteMezclaRequestIdsNuevosConOtrosYaProcesados() {
+		LocalDateTime inicio = manana.atTime(8, 0);
+		String procesado = UUID.randomUUID().toString();
+
+		// Primer lote: solo requestIds nuevos (no deben buscarse en el mapa vacío de citas existentes)
+		List<ResultadoLoteItem> primero = citaService.agendarCitasLote(List.of(
+				new AgendarCitaRequest(60L, 6L, inicio, inicio.plusMinutes(30), "Control", procesado)));
+		assertTrue(primero.get(0).isSuccess());
+
+		// Segundo lote: el reintento devuelve la misma cita y el nuevo se agenda
+		List<ResultadoLoteItem> segundo = citaService.agendarCitasLote(List.of(
+				new AgendarCitaRequest(60L, 6L, inicio, inicio.plusMinutes(30), "Control", procesado),
+				new AgendarCitaRequest(61L, 6L, inicio.plusMinutes(30), inicio.plusMinutes(60), "Control",
+						UUID.randomUUID().toString())));
+		assertTrue(segundo.get(0).isSuccess());
+		assertEquals(primero.get(0).getCita().getId(), segundo.get(0).getCita().getId());
+		assertTrue(segundo.get(1).isSuccess());
+		assertEquals(2, citaRepository.count());
+	}
+
+	@Test
+	void unRequestIdRepetidoEnElLoteRecibeElResultadoDeSuPrimeraAparicion() {
+		LocalDateTime inicio = manana.atTime(9, 0);
+		String repetido = UUID.randomUUID().toString();
+
+		List<ResultadoLoteItem> resultados = citaService.agendarCitasLote(List.of(
+				new AgendarCitaRequest(70L, 7L, inicio, inicio.plusMinutes(30), "Control", repetido),
+				new AgendarCitaRequest(71L, 7L, inicio, inicio.plusMinutes(30), "Control", UUID.randomUUID().toString()),
+				new AgendarCitaRequest(70L, 7L, inicio, inicio.plusMinutes(30), "Control", repetido)));
+
+		assertTrue(resultados.get(0).isSuccess());
+		assertFalse(resultados.get(1).isSuccess());
+		assertTrue(resultados.get(2).isSuccess());
+		assertEquals(2, resultados.get(2).getIndice());
+		assertEquals(resultados.get(0).getCita().getId(), resultados.get(2).getCita().getId());
+		assertEquals(1, citaRepository.count());
+	}
+
+	@Test
+	void elLoteConsultaLaGuardiaDeBdComoUnaCitaIndividual() {
+		LocalDateTime inicio = manana.atTime(10, 0);
+		// Carga la agenda del médico en el índice y guarda después una cita sin pasar por él
+		assertFalse(agendaIndex.medicoTieneConflicto(8L, inicio, inicio.plusMinutes(30), null));
+		citaRepository.save(new Cita(80L, 8L, inicio, inicio.plusMinutes(30), "Fuera del índice", UUID.randomUUID().toString()));
+
+		List<ResultadoLoteItem> resultados = citaService.agendarCitasLote(List.of(
+				new AgendarCitaRequest(81L, 8L, inicio, inicio.plusMinutes(30), "Control", UUID.randomUUID().toString())));
+
+		assertFalse(resultados.get(0).isSuccess());
+		assertTrue(resultados.get(0).getError().contains("médico"));
+	}
+
+	@Test
+	void elEstadoHttpDelLoteDependeDeCuantosItemsSeAgendan() throws Exception {
+		LocalDateTime inicio = manana.atTime(11, 0);
+		String cita = "{\"idPaciente\":%d,\"idMedico\":9,\"inicio\":\"" + inicio + "\",\"fin\":\"" + inicio.plusMinutes(30)
+				+ "\",\"motivo\":\"Control\",\"requestId\":\"%s\"}";
+
+		// Dos citas en el mismo horario del médico: se agenda solo la primera
+		mockMvc.perform(post("/api/v1/citas/batch").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"citas\":[" + cita.formatted(90, UUID.randomUUID()) + ","
+								+ cita.formatted(91, UUID.randomUUID()) + "]}"))
+				.andExpect(status().isMultiStatus())
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.data[0].success").value(true));
+
+		// El horario ya está ocupado: ningún ítem se agenda
+		mockMvc.perform(post("/api/v1/citas/batch").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"citas\":[" + cita.formatted(92, UUID.randomUUID()) + "]}"))
+				.andExpect(status().isUnprocessableEntity())
+				.andExpect(jsonPath("$.data[0].success").value(false));
+	}
+}
@@ -0,0 +1,101 @@
+package com.hospital.api_gateway.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Cliente HTTP con el que el gateway llama a los servicios (el gateway lo toma de este bean).
+ * - Por defecto: Apache HttpClient 5 con un pool acotado por servicio y keep-alive, para que
+ *   cada solicitud reutilice una conexión abierta en vez de pagar el establecimiento TCP.
+ * - Con gateway.proxy.h2c=true (perfil h2c): cliente del JDK en HTTP/2 sin TLS, que multiplexa
+ *   todas las solicitudes a un servicio sobre una conexión. El servicio necesita
+ *   server.http2.enabled=true; si no lo admite, la negociación vuelve a HTTP/1.1.
+ */
+@Configuration
+public class ClienteProxyConfig {
+
+    @Bean
+    public ClientHttpRequestFactory proxyClientHttpRequestFactory(
+            @Value("${gateway.proxy.h2c:false}") boolean h2c,
+            @Value("${gateway.proxy.conexiones-por-servicio:200}") int conexionesPorServicio,
+            @Value("${gateway.proxy.conexiones-maximas:800}") int conexionesMaximas,
+            @Value("${gateway.proxy.connect-timeout-ms:1000}") long connectTimeoutMs,
+            @Value("${gateway.proxy.read-timeout-ms:10000}") long readTimeoutMs,
+            @Value("${gateway.proxy.espera-conexion-ms:2000}") long esperaConexionMs,
+            @Value("${gateway.proxy.keep-alive-s:15}") long keepAliveSegundos) {
+        if (h2c) {
+            return clienteH2c(connectTimeoutMs, readTimeoutMs);
+        }
+        return clientePool(conexionesPorServicio, conexionesMaximas, connectTimeoutMs, readTimeoutMs,
+                esperaConexionMs, keepAliveSegundos);
+    }
+
+    /**
+     * Apache HttpClient 5 con pool de conexiones persistentes por servicio
+     */
+    public static HttpComponentsClientHttpRequestFactory clientePool(int conexionesPorServicio, int conexionesMaximas,
+                                                                     long connectTimeoutMs, long readTimeoutMs,
+                                                                     long esperaConexionMs, long keepAliveSegundos) {
+        PoolingHttpClientConnectionManager conexiones = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(conexionesPorServicio)
+                .setMaxConnTotal(conexionesMaximas)
+                // LAX: un bloqueo por servicio en vez de uno global para todo el pool
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.LAX)
+                .setDefaultSocketConfig(SocketConfig.custom().setTcpNoDelay(true).build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        // Se revalida una conexión que lleva un rato quieta antes de reutilizarla
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        // Se renuevan de vez en cuando para repartirse entre réplicas tras un escalado
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+
+        CloseableHttpClient cliente = HttpClients.custom()
+                .setConnectionManager(conexiones)
+                // Por debajo del keep-alive de Tomcat (20 s): la conexión se cierra aquí antes que allí
+                .setKeepAliveStrategy((respuesta, contexto) -> TimeValue.ofSeconds(keepAliveSegundos))
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSegundos))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(esperaConexionMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                // Un proxy no guarda cookies de un cliente ni sigue redirecciones por él
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(cliente);
+    }
+
+    /**
+     * Cliente del JDK en HTTP/2 sin TLS (upgrade h2c)
+     */
+    public static JdkClientHttpRequestFactory clienteH2c(long connectTimeoutMs, long readTimeoutMs) {
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        JdkClientHttpRequestFactory factoria = new JdkClientHttpRequestFactory(cliente);
+        factoria.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return factoria;
+    }
+}
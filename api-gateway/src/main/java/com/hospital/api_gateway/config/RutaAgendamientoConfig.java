@@ -0,0 +1,56 @@
+package com.hospital.api_gateway.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.api_gateway.filter.AnilloShards;
+import com.hospital.api_gateway.filter.EnrutadorShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import static org.springframework.cloud.gateway.server.mvc.filter.BeforeFilterFunctions.adaptCachedBody;
+import static org.springframework.cloud.gateway.server.mvc.filter.BeforeFilterFunctions.uri;
+import static org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions.route;
+import static org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions.http;
+import static org.springframework.web.servlet.function.RequestPredicates.path;
+
+/**
+ * Ruta de agendamiento-service. Va en código y no en application.properties porque, con los médicos
+ * repartidos entre nodos (gateway.shards.nodos), el destino depende de cada solicitud (EnrutadorShards).
+ */
+@Configuration
+public class RutaAgendamientoConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> rutaAgendamiento(@Value("${gateway.agendamiento.url}") String url,
+                                                           @Value("${gateway.shards.nodos:}") String[] nodos,
+                                                           ObjectMapper objectMapper,
+                                                           RestClient.Builder restClientBuilder,
+                                                           ClientHttpRequestFactory proxyClientHttpRequestFactory) {
+        if (nodos.length == 0) {
+            return route("agendamiento")
+                    .route(path("/api/v1/citas/**"), http())
+                    .before(uri(url))
+                    .build();
+        }
+
+        EnrutadorShards enrutador = new EnrutadorShards(new AnilloShards(AnilloShards.parsear(nodos)), objectMapper,
+                restClientBuilder.requestFactory(proxyClientHttpRequestFactory).build());
+        return route("agendamiento-paciente")
+                .GET("/api/v1/citas/paciente/{idPaciente:\\d+}", enrutador::citasPaciente)
+                .build()
+                .and(route("agendamiento-lote")
+                        .POST("/api/v1/citas/batch", enrutador::citasLote)
+                        .build())
+                .and(route("agendamiento")
+                        .route(path("/api/v1/citas/**"), http())
+                        .filter(enrutador::exigirShard)
+                        // Primero se elige el nodo (puede leer el cuerpo); después el proxy usa el cuerpo ya leído
+                        .before(enrutador::enrutar)
+                        .before(adaptCachedBody())
+                        .build());
+    }
+}
@@ -0,0 +1,81 @@
+package com.hospital.api_gateway.filter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Anillo de hash consistente con el que agendamiento-service reparte los médicos entre sus nodos.
+ * Es una copia de la clase del servicio (sin el nodo propio): las dos deben dar el mismo nodo
+ * para cada clave, o las escrituras llegarían a un nodo que las rechaza.
+ */
+public class AnilloShards {
+
+    // Los IDs de cita llevan el nodo en los bits altos: id = (nodo << 40) + secuencia local
+    public static final int BITS_LOCALES = 40;
+
+    private static final int VIRTUALES = 128;
+
+    private final NavigableMap<Long, Integer> anillo = new TreeMap<>();
+    private final Map<Integer, String> urls;
+
+    public AnilloShards(Map<Integer, String> urls) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("El anillo necesita al menos un nodo");
+        }
+        this.urls = Collections.unmodifiableMap(new LinkedHashMap<>(urls));
+        for (int nodo : urls.keySet()) {
+            for (int i = 0; i < VIRTUALES; i++) {
+                anillo.put(mezclar(((long) nodo << 32) | i), nodo);
+            }
+        }
+    }
+
+    /**
+     * Lee la lista "1=http://host-1:8080,2=http://host-2:8080"
+     */
+    public static Map<Integer, String> parsear(String[] nodos) {
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (String nodo : nodos) {
+            int igual = nodo.indexOf('=');
+            if (igual < 1) {
+                throw new IllegalArgumentException("Nodo mal formado (se espera id=url): " + nodo);
+            }
+            urls.put(Integer.parseInt(nodo.substring(0, igual).trim()), nodo.substring(igual + 1).trim());
+        }
+        return urls;
+    }
+
+    /**
+     * Nodo dueño de la clave (ID de médico)
+     */
+    public int nodoDe(long clave) {
+        Map.Entry<Long, Integer> tramo = anillo.ceilingEntry(mezclar(clave));
+        return (tramo != null ? tramo : anillo.firstEntry()).getValue();
+    }
+
+    /**
+     * IDs de los nodos en el orden de la configuración; el primero recibe lo que no tiene shard
+     */
+    public Set<Integer> nodos() {
+        return urls.keySet();
+    }
+
+    public String url(int nodo) {
+        return urls.get(nodo);
+    }
+
+    public static int nodoDeCita(long idCita) {
+        return (int) (idCita >>> BITS_LOCALES);
+    }
+
+    // Finalizador de SplitMix64: reparte por todo el anillo claves consecutivas
+    static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
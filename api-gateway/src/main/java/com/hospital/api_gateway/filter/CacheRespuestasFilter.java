@@ -0,0 +1,173 @@
+package com.hospital.api_gateway.filter;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Caché de respuestas de corta duración para los GET idempotentes de las rutas configuradas,
+ * con coalescencia: varias solicitudes idénticas concurrentes esperan a la única que va al
+ * servicio y reciben su respuesta. Solo se guardan los 200 sin no-store/private; un PUT o
+ * DELETE correcto sobre la misma ruta invalida su entrada, el resto caduca con el TTL.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class CacheRespuestasFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA_CACHE = "X-Cache";
+
+    // Cabeceras de la conexión con el servicio que no se deben repetir en otra respuesta
+    private static final Set<String> NO_REPLICABLES = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "content-length", "date");
+
+    private static final Set<String> SIN_EFECTOS = Set.of("HEAD", "OPTIONS", "TRACE");
+
+    private final List<PathPattern> rutasCacheables;
+    private final long esperaMaximaMs;
+
+    // Caché asíncrona: la entrada es un futuro desde que sale la primera solicitud, así que
+    // las idénticas que llegan mientras tanto lo encuentran y esperan en vez de ir al servicio
+    private final AsyncCache<String, RespuestaCacheada> respuestas;
+
+    /**
+     * Respuesta capturada del servicio
+     */
+    public record RespuestaCacheada(int estado, HttpHeaders cabeceras, byte[] cuerpo) {
+
+        boolean reutilizable() {
+            String cacheControl = cabeceras.getCacheControl();
+            return estado == 200 && (cacheControl == null
+                    || !(cacheControl.contains("no-store") || cacheControl.contains("private")));
+        }
+    }
+
+    public CacheRespuestasFilter(@Value("${gateway.cache.rutas}") String[] rutas,
+                                 @Value("${gateway.cache.ttl-ms:2000}") long ttlMs,
+                                 @Value("${gateway.cache.maximo-entradas:10000}") long maximoEntradas,
+                                 @Value("${gateway.cache.espera-maxima-ms:5000}") long esperaMaximaMs) {
+        PathPatternParser parser = new PathPatternParser();
+        this.rutasCacheables = Arrays.stream(rutas).map(String::trim).map(parser::parse).toList();
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.respuestas = Caffeine.newBuilder()
+                .maximumSize(maximoEntradas)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .buildAsync();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        PathContainer ruta = PathContainer.parsePath(request.getRequestURI());
+        return rutasCacheables.stream().noneMatch(patron -> patron.matches(ruta));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"GET".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            if (!SIN_EFECTOS.contains(request.getMethod()) && response.getStatus() < 400) {
+                respuestas.synchronous().invalidate(request.getRequestURI());
+            }
+            return;
+        }
+
+        // 1. Acierto o solicitud idéntica en curso: se espera su respuesta
+        String clave = clave(request);
+        CompletableFuture<RespuestaCacheada> propio = new CompletableFuture<>();
+        CompletableFuture<RespuestaCacheada> actual = respuestas.get(clave, (k, executor) -> propio);
+        if (actual != propio) {
+            String origen = actual.isDone() ? "HIT" : "COALESCED";
+            RespuestaCacheada compartida = esperar(actual);
+            if (compartida != null) {
+                escribir(compartida, response, origen);
+                return;
+            }
+            // La solicitud líder falló o tarda demasiado: esta va directa al servicio
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // 2. Esta solicitud es la líder: va al servicio y comparte lo que reciba
+        ContentCachingResponseWrapper captura = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, captura);
+            RespuestaCacheada respuesta = capturar(captura);
+            propio.complete(respuesta);
+            if (!respuesta.reutilizable()) {
+                // Las que ya esperaban la reciben igualmente; las siguientes irán al servicio
+                respuestas.asMap().remove(clave, propio);
+            }
+            captura.setHeader(CABECERA_CACHE, "MISS");
+            captura.copyBodyToResponse();
+        } catch (IOException | ServletException | RuntimeException e) {
+            // Un futuro fallido sale solo de la caché
+            propio.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private static String clave(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query == null ? request.getRequestURI() : request.getRequestURI() + "?" + query;
+    }
+
+    private RespuestaCacheada esperar(CompletableFuture<RespuestaCacheada> enCurso) {
+        try {
+            return enCurso.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private static RespuestaCacheada capturar(ContentCachingResponseWrapper captura) {
+        HttpHeaders cabeceras = new HttpHeaders();
+        for (String nombre : captura.getHeaderNames()) {
+            if (!NO_REPLICABLES.contains(nombre.toLowerCase())) {
+                cabeceras.put(nombre, new ArrayList<>(captura.getHeaders(nombre)));
+            }
+        }
+        if (captura.getContentType() != null) {
+            cabeceras.set(HttpHeaders.CONTENT_TYPE, captura.getContentType());
+        }
+        return new RespuestaCacheada(captura.getStatus(), HttpHeaders.readOnlyHttpHeaders(cabeceras),
+                captura.getContentAsByteArray());
+    }
+
+    private static void escribir(RespuestaCacheada respuesta, HttpServletResponse response, String origen)
+            throws IOException {
+        response.setStatus(respuesta.estado());
+        respuesta.cabeceras().forEach((nombre, valores) -> valores.forEach(valor -> response.addHeader(nombre, valor)));
+        response.setHeader(CABECERA_CACHE, origen);
+        response.setContentLength(respuesta.cuerpo().length);
+        response.getOutputStream().write(respuesta.cuerpo());
+    }
+}
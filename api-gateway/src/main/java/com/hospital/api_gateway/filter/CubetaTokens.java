@@ -0,0 +1,34 @@
+package com.hospital.api_gateway.filter;
+
+/**
+ * Cubeta de tokens de un cliente: admite ráfagas de hasta 'capacidad' solicitudes y
+ * se recarga de forma continua a 'tokensPorSegundo'. La recarga se calcula al consumir,
+ * así que no hace falta ningún hilo que la mantenga.
+ */
+final class CubetaTokens {
+
+    private final double capacidad;
+    private final double tokensPorNano;
+    private double tokens;
+    private long ultimaRecarga;
+
+    CubetaTokens(double capacidad, double tokensPorSegundo, long ahoraNanos) {
+        this.capacidad = capacidad;
+        this.tokensPorNano = tokensPorSegundo / 1_000_000_000d;
+        this.tokens = capacidad;
+        this.ultimaRecarga = ahoraNanos;
+    }
+
+    /**
+     * Consume un token; devuelve 0 si lo había o los nanosegundos hasta que lo haya
+     */
+    synchronized long consumir(long ahoraNanos) {
+        tokens = Math.min(capacidad, tokens + (ahoraNanos - ultimaRecarga) * tokensPorNano);
+        ultimaRecarga = ahoraNanos;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPorNano);
+    }
+}
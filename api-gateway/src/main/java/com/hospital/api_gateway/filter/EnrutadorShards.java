@@ -0,0 +1,272 @@
+package com.hospital.api_gateway.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.cloud.gateway.server.mvc.common.MvcUtils;
+import org.springframework.cloud.gateway.server.mvc.filter.BeforeFilterFunctions;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Enrutado de /api/v1/citas/** con agendamiento-service repartido por médico entre varios nodos.
+ * - POST /api/v1/citas: al nodo del idMedico del cuerpo.
+ * - POST /api/v1/citas/batch: un sublote por nodo según el médico de cada ítem; los resultados vuelven
+ *   en el orden original, con 201, 207 o 422 como los da un solo nodo.
+ * - /api/v1/citas/{id} (consultar, modificar, anular): al nodo que lleva el ID de la cita en sus bits altos.
+ * - /api/v1/citas/medico/{id}/**: al nodo del médico.
+ * - GET /api/v1/citas/paciente/{id}: a todos los nodos, uniendo las citas por (inicio, id).
+ * - Agenda por fechas, exportación y páginas de paciente: al nodo de ?shard=N. Sin él se rechazan (400):
+ *   la respuesta de un solo nodo parecería la agenda completa.
+ * - El resto (métricas, caché, health, que son de cada nodo): al nodo de ?shard=N o, sin él, al primero.
+ */
+public class EnrutadorShards {
+
+    private static final Pattern CITA = Pattern.compile("^/api/v1/citas/(\\d+)$");
+    private static final Pattern MEDICO = Pattern.compile("^/api/v1/citas/medico/(\\d+)(/.*)?$");
+    // Mismo límite que AgendarCitasLoteRequest: repartido en sublotes, ningún nodo lo vería superado
+    private static final int MAXIMO_LOTE = 500;
+    private static final Pattern LECTURA_REPARTIDA = Pattern.compile("^/api/v1/citas/(paciente/\\d+/pagina|agenda|export)$");
+    private static final Comparator<JsonNode> POR_INICIO = Comparator
+            .comparing((JsonNode cita) -> LocalDateTime.parse(cita.path("inicio").asText()))
+            .thenComparingLong(cita -> cita.path("id").asLong());
+
+    private final AnilloShards anillo;
+    private final ObjectMapper objectMapper;
+    private final RestClient restClient;
+    private final Map<Integer, Function<ServerRequest, ServerRequest>> destinos = new HashMap<>();
+    private final int primerNodo;
+
+    public EnrutadorShards(AnilloShards anillo, ObjectMapper objectMapper, RestClient restClient) {
+        this.anillo = anillo;
+        this.objectMapper = objectMapper;
+        this.restClient = restClient;
+        for (int nodo : anillo.nodos()) {
+            destinos.put(nodo, BeforeFilterFunctions.uri(anillo.url(nodo)));
+        }
+        this.primerNodo = anillo.nodos().iterator().next();
+    }
+
+    /**
+     * Filtro previo: fija como destino del proxy el nodo que corresponde a la solicitud
+     */
+    public ServerRequest enrutar(ServerRequest request) {
+        return destinos.get(nodoDestino(request)).apply(request);
+    }
+
+    /**
+     * Filtro: las lecturas paginadas o en streaming que abarcan todos los shards se piden nodo a nodo
+     */
+    public ServerResponse exigirShard(ServerRequest request, HandlerFunction<ServerResponse> siguiente) throws Exception {
+        if (request.param("shard").isPresent() || !LECTURA_REPARTIDA.matcher(request.path()).matches()) {
+            return siguiente.handle(request);
+        }
+        return ServerResponse.status(HttpStatus.BAD_REQUEST)
+                .body(crearRespuesta(false, "Falta el parámetro shard", "error",
+                        "Con las citas repartidas entre los nodos " + anillo.nodos()
+                                + ", esta consulta se hace en cada uno con ?shard=N"));
+    }
+
+    /**
+     * Citas activas de un paciente: las tiene cualquier nodo que agende a alguno de sus médicos
+     */
+    public ServerResponse citasPaciente(ServerRequest request) {
+        List<JsonNode> citas = new ArrayList<>();
+        for (int nodo : anillo.nodos()) {
+            try {
+                JsonNode respuesta = restClient.get().uri(anillo.url(nodo) + request.path()).retrieve().body(JsonNode.class);
+                respuesta.path("data").forEach(citas::add);
+            } catch (RestClientException e) {
+                // Una lista sin las citas de un nodo parecería completa: mejor un error explícito
+                return ServerResponse.status(HttpStatus.BAD_GATEWAY)
+                        .body(crearRespuesta(false, "Error al consultar citas del paciente", "error",
+                                "El shard " + nodo + " no respondió: " + e.getMessage()));
+            }
+        }
+        citas.sort(POR_INICIO);
+        return ServerResponse.ok().body(crearRespuesta(true, "Citas del paciente", "data", citas));
+    }
+
+    /**
+     * Lote de citas: cada nodo agenda las de sus médicos y el gateway une los resultados por ítem
+     */
+    public ServerResponse citasLote(ServerRequest request) {
+        ByteArrayInputStream entrada = MvcUtils.getOrCacheBody(request);
+        byte[] lote = entrada != null ? entrada.readAllBytes() : new byte[0];
+        JsonNode citas = leerCitas(lote);
+        // Un lote vacío, demasiado grande o mal formado se rechaza entero: lo valida el primer nodo
+        if (!citas.isArray() || citas.isEmpty() || citas.size() > MAXIMO_LOTE) {
+            return reenviar(enviarLote(primerNodo, lote));
+        }
+
+        Map<Integer, List<Integer>> indicesPorNodo = new TreeMap<>();
+        for (int i = 0; i < citas.size(); i++) {
+            JsonNode idMedico = citas.get(i).path("idMedico");
+            int nodo = idMedico.canConvertToLong() ? anillo.nodoDe(idMedico.asLong()) : primerNodo;
+            indicesPorNodo.computeIfAbsent(nodo, n -> new ArrayList<>()).add(i);
+        }
+        if (indicesPorNodo.size() == 1) {
+            return reenviar(enviarLote(indicesPorNodo.keySet().iterator().next(), lote));
+        }
+
+        JsonNode[] resultados = new JsonNode[citas.size()];
+        for (Map.Entry<Integer, List<Integer>> sublote : indicesPorNodo.entrySet()) {
+            int nodo = sublote.getKey();
+            List<Integer> indices = sublote.getValue();
+            ObjectNode cuerpo = objectMapper.createObjectNode();
+            ArrayNode items = cuerpo.putArray("citas");
+            indices.forEach(i -> items.add(citas.get(i)));
+
+            ResponseEntity<JsonNode> respuesta;
+            try {
+                respuesta = enviarLote(nodo, objectMapper.writeValueAsBytes(cuerpo));
+            } catch (IOException | RestClientException e) {
+                respuesta = null;
+            }
+            JsonNode data = respuesta != null && respuesta.getBody() != null ? respuesta.getBody().path("data") : null;
+            for (int j = 0; j < indices.size(); j++) {
+                int indice = indices.get(j);
+                if (data != null && data.path(j).isObject()) {
+                    resultados[indice] = ((ObjectNode) data.get(j).deepCopy()).put("indice", indice);
+                } else {
+                    // El nodo rechazó el sublote entero o no respondió: sus ítems fallan, los demás ya se agendaron
+                    resultados[indice] = errorItem(indice, citas.get(indice), respuesta == null
+                            ? "El shard " + nodo + " no respondió"
+                            : "El shard " + nodo + " rechazó el lote: " + detalle(respuesta.getBody()));
+                }
+            }
+        }
+
+        long exitos = 0;
+        for (JsonNode resultado : resultados) {
+            if (resultado.path("success").asBoolean()) {
+                exitos++;
+            }
+        }
+        if (exitos == resultados.length) {
+            return ServerResponse.status(HttpStatus.CREATED)
+                    .body(crearRespuesta(true, "Lote de citas procesado", "data", List.of(resultados)));
+        }
+        return ServerResponse.status(exitos > 0 ? HttpStatus.MULTI_STATUS : HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(crearRespuesta(false, exitos > 0 ? "Lote de citas procesado parcialmente"
+                        : "Ninguna cita del lote se pudo agendar", "data", List.of(resultados)));
+    }
+
+    int nodoDestino(ServerRequest request) {
+        String path = request.path();
+        Optional<String> shard = request.param("shard");
+        if (shard.isPresent()) {
+            return conocido(parsear(shard.get()));
+        }
+        if (request.method() == HttpMethod.POST && path.equals("/api/v1/citas")) {
+            return nodoDelCuerpo(request);
+        }
+        Matcher cita = CITA.matcher(path);
+        if (cita.matches()) {
+            // Las citas anteriores al reparto (bits altos a 0) siguen en el primer nodo
+            return conocido((int) (Long.parseLong(cita.group(1)) >>> AnilloShards.BITS_LOCALES));
+        }
+        Matcher medico = MEDICO.matcher(path);
+        if (medico.matches()) {
+            return anillo.nodoDe(Long.parseLong(medico.group(1)));
+        }
+        return primerNodo;
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    // El cuerpo se lee una vez y queda en la solicitud para el proxy (adaptCachedBody)
+    private int nodoDelCuerpo(ServerRequest request) {
+        try {
+            JsonNode cuerpo = objectMapper.readTree(MvcUtils.getOrCacheBody(request));
+            JsonNode idMedico = cuerpo.path("idMedico");
+            // Sin médico válido la solicitud no se puede agendar: cualquier nodo devuelve el error de validación
+            return idMedico.canConvertToLong() ? anillo.nodoDe(idMedico.asLong()) : primerNodo;
+        } catch (IOException e) {
+            return primerNodo;
+        }
+    }
+
+    private JsonNode leerCitas(byte[] lote) {
+        try {
+            return objectMapper.readTree(lote).path("citas");
+        } catch (IOException e) {
+            return objectMapper.missingNode();
+        }
+    }
+
+    // Cualquier estado (201, 207, 422, 400) se devuelve tal cual: lo interpreta citasLote
+    private ResponseEntity<JsonNode> enviarLote(int nodo, byte[] cuerpo) {
+        return restClient.post().uri(anillo.url(nodo) + "/api/v1/citas/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuerpo)
+                .exchange((solicitud, respuesta) -> ResponseEntity.status(respuesta.getStatusCode())
+                        .body(respuesta.bodyTo(JsonNode.class)));
+    }
+
+    private static ServerResponse reenviar(ResponseEntity<JsonNode> respuesta) {
+        ServerResponse.BodyBuilder builder = ServerResponse.status(respuesta.getStatusCode());
+        return respuesta.getBody() != null ? builder.body(respuesta.getBody()) : builder.build();
+    }
+
+    private ObjectNode errorItem(int indice, JsonNode cita, String error) {
+        ObjectNode item = objectMapper.createObjectNode();
+        item.put("indice", indice);
+        item.set("requestId", cita.path("requestId"));
+        item.put("success", false);
+        item.putNull("cita");
+        item.put("error", error);
+        return item;
+    }
+
+    private static String detalle(JsonNode cuerpo) {
+        if (cuerpo == null) {
+            return "sin respuesta";
+        }
+        return cuerpo.hasNonNull("error") ? cuerpo.get("error").asText() : cuerpo.path("message").asText();
+    }
+
+    private int conocido(int nodo) {
+        return destinos.containsKey(nodo) ? nodo : primerNodo;
+    }
+
+    private static int parsear(String numero) {
+        try {
+            return Integer.parseInt(numero);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, Object> crearRespuesta(boolean exito, String mensaje, String campo, Object valor) {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("success", exito);
+        respuesta.put("message", mensaje);
+        respuesta.put(campo, valor);
+        respuesta.put("timestamp", LocalDateTime.now());
+        return respuesta;
+    }
+}
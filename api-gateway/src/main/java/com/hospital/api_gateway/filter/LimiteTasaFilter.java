@@ -0,0 +1,83 @@
+package com.hospital.api_gateway.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limita la tasa de solicitudes por cliente con una cubeta de tokens. El cliente es la IP
+ * remota; con server.forward-headers-strategy=native (application.properties), la del
+ * X-Forwarded-For que envía un balanceador de la red interna.
+ * Va antes que la caché: las ráfagas se cortan aunque pudieran servirse desde memoria.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class LimiteTasaFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+    private final double capacidad;
+    private final double tokensPorSegundo;
+
+    // Los clientes inactivos se olvidan: su cubeta estaría llena de nuevo al volver
+    private final Cache<String, CubetaTokens> cubetas;
+
+    public LimiteTasaFilter(ObjectMapper objectMapper,
+                            @Value("${gateway.limite.capacidad:100}") double capacidad,
+                            @Value("${gateway.limite.tokens-por-segundo:50}") double tokensPorSegundo,
+                            @Value("${gateway.limite.maximo-clientes:100000}") long maximoClientes) {
+        this.objectMapper = objectMapper;
+        this.capacidad = capacidad;
+        this.tokensPorSegundo = tokensPorSegundo;
+        this.cubetas = Caffeine.newBuilder()
+                .maximumSize(maximoClientes)
+                .expireAfterAccess(Duration.ofSeconds((long) Math.ceil(capacidad / tokensPorSegundo) + 1))
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long ahora = System.nanoTime();
+        CubetaTokens cubeta = cubetas.get(request.getRemoteAddr(), cliente -> new CubetaTokens(capacidad, tokensPorSegundo, ahora));
+        long esperaNanos = cubeta.consumir(ahora);
+        if (esperaNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long esperaSegundos = Math.max(1, (esperaNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(esperaSegundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), crearRespuestaError("Demasiadas solicitudes",
+                "Límite de " + tokensPorSegundo + " solicitudes por segundo superado; reintente en " + esperaSegundos + " s"));
+    }
+
+    // ================== MÉTODOS AUXILIARES ==================
+
+    private Map<String, Object> crearRespuestaError(String mensaje, String detalle) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("success", false);
+        respuesta.put("message", mensaje);
+        respuesta.put("error", detalle);
+        respuesta.put("timestamp", java.time.LocalDateTime.now());
+        return respuesta;
+    }
+}
@@ -0,0 +1,108 @@
+package com.hospital.api_gateway.benchmark;
+
+import com.hospital.api_gateway.config.ClienteProxyConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente del gateway hacia un servicio, contra un servicio simulado local (HttpServer del JDK
+ * con una respuesta JSON fija y 'latenciaMs' de espera, como una consulta a la base de datos).
+ * 32 hilos hacen GET como lo haría el proxy bajo carga:
+ * - jdkPorDefecto: la factoría que Spring Boot elegía antes (HttpClient del JDK sin ajustes);
+ * - apachePorDefecto: Apache HttpClient 5 tal como lo configura Boot (pool de 5 conexiones por ruta);
+ * - pool: ClienteProxyConfig.clientePool con los valores de application.properties;
+ * - sinKeepAlive: cada solicitud abre y cierra su conexión (Connection: close).
+ * Throughput da solicitudes/s y SampleTime los percentiles p50/p99/p99.9.
+ * <pre>
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ClienteProxyBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(32)
+@Fork(1)
+public class ClienteProxyBenchmark {
+
+    private static final byte[] CUERPO = ("{\"success\":true,\"message\":\"Cita encontrada\",\"data\":{\"id\":987654,"
+            + "\"idPaciente\":1001,\"idMedico\":42,\"inicio\":\"2030-01-07T09:00:00\",\"fin\":\"2030-01-07T09:30:00\","
+            + "\"estado\":\"AGENDADA\",\"motivo\":\"Control general\"}}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"jdkPorDefecto", "apachePorDefecto", "pool", "sinKeepAlive"})
+    public String cliente;
+
+    @Param({"0", "5"})
+    public long latenciaMs;
+
+    private HttpServer servicio;
+    private ExecutorService hilosServicio;
+    private ClientHttpRequestFactory factoria;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void arrancar() throws IOException {
+        // Como Tomcat, el servicio simulado escribe con TCP_NODELAY; sin esto las conexiones
+        // persistentes pagan ~40 ms por respuesta (Nagle + ACK retardado) y la comparación no vale
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        hilosServicio = Executors.newFixedThreadPool(64);
+        servicio = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        servicio.setExecutor(hilosServicio);
+        servicio.createContext("/api/v1/citas", intercambio -> {
+            intercambio.getRequestBody().readAllBytes();
+            if (latenciaMs > 0) {
+                try {
+                    Thread.sleep(latenciaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            intercambio.getResponseHeaders().set("Content-Type", "application/json");
+            intercambio.sendResponseHeaders(200, CUERPO.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(CUERPO);
+            }
+        });
+        servicio.start();
+        uri = URI.create("http://127.0.0.1:" + servicio.getAddress().getPort() + "/api/v1/citas/987654");
+
+        factoria = switch (cliente) {
+            case "jdkPorDefecto" -> ClientHttpRequestFactoryBuilder.jdk().build();
+            case "apachePorDefecto" -> ClientHttpRequestFactoryBuilder.httpComponents().build();
+            case "pool", "sinKeepAlive" -> ClienteProxyConfig.clientePool(200, 800, 1000, 10_000, 2000, 15);
+            default -> throw new IllegalArgumentException(cliente);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() {
+        servicio.stop(0);
+        hilosServicio.shutdownNow();
+    }
+
+    @Benchmark
+    public int get() throws IOException {
+        var request = factoria.createRequest(uri, HttpMethod.GET);
+        if ("sinKeepAlive".equals(cliente)) {
+            request.getHeaders().set("Connection", "close");
+        }
+        try (ClientHttpResponse respuesta = request.execute()) {
+            return respuesta.getBody().readAllBytes().length;
+        }
+    }
+}
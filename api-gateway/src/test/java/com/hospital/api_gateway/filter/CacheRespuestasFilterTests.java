@@ -0,0 +1,109 @@
+package com.hospital.api_gateway.filter;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheRespuestasFilterTests {
+
+	private final AtomicInteger llamadasServicio = new AtomicInteger();
+
+	private final CacheRespuestasFilter filtro = new CacheRespuestasFilter(
+			new String[]{"/api/v1/citas/{id:\\d+}"}, 60_000, 1_000, 5_000);
+
+	@Test
+	void rafagaDeSolicitudesIdenticasHaceUnaSolaLlamada() throws Exception {
+		int clientes = 16;
+		CountDownLatch salida = new CountDownLatch(1);
+		FilterChain servicioLento = (req, res) -> {
+			llamadasServicio.incrementAndGet();
+			sleep(200);
+			res.setContentType("application/json");
+			res.getOutputStream().write("{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+		};
+
+		ExecutorService hilos = Executors.newFixedThreadPool(clientes);
+		try {
+			List<Future<MockHttpServletResponse>> respuestas = new ArrayList<>();
+			for (int i = 0; i < clientes; i++) {
+				respuestas.add(hilos.submit(() -> {
+					salida.await();
+					return ejecutar("GET", "/api/v1/citas/7", servicioLento);
+				}));
+			}
+			salida.countDown();
+			for (Future<MockHttpServletResponse> respuesta : respuestas) {
+				assertEquals("{\"id\":7}", respuesta.get().getContentAsString());
+			}
+		} finally {
+			hilos.shutdown();
+		}
+
+		assertEquals(1, llamadasServicio.get());
+		assertEquals("HIT", ejecutar("GET", "/api/v1/citas/7", servicioLento).getHeader(CacheRespuestasFilter.CABECERA_CACHE));
+		assertEquals(1, llamadasServicio.get());
+	}
+
+	@Test
+	void noGuardaErroresYUnaEscrituraInvalidaLaEntrada() throws Exception {
+		FilterChain falla = (req, res) -> {
+			llamadasServicio.incrementAndGet();
+			((jakarta.servlet.http.HttpServletResponse) res).setStatus(503);
+		};
+		ejecutar("GET", "/api/v1/citas/8", falla);
+		ejecutar("GET", "/api/v1/citas/8", falla);
+		assertEquals(2, llamadasServicio.get());
+
+		FilterChain correcta = (req, res) -> {
+			llamadasServicio.incrementAndGet();
+			res.getOutputStream().write("ok".getBytes(StandardCharsets.UTF_8));
+		};
+		ejecutar("GET", "/api/v1/citas/8", correcta);
+		ejecutar("GET", "/api/v1/citas/8", correcta);
+		assertEquals(3, llamadasServicio.get());
+
+		ejecutar("PUT", "/api/v1/citas/8", correcta);
+		MockHttpServletResponse trasModificar = ejecutar("GET", "/api/v1/citas/8", correcta);
+		assertEquals("MISS", trasModificar.getHeader(CacheRespuestasFilter.CABECERA_CACHE));
+		assertEquals(5, llamadasServicio.get());
+	}
+
+	@Test
+	void cubetaAdmiteLaRafagaYLuegoLaTasaSostenida() {
+		long segundo = 1_000_000_000L;
+		CubetaTokens cubeta = new CubetaTokens(2, 1, 0);
+		assertEquals(0, cubeta.consumir(0));
+		assertEquals(0, cubeta.consumir(0));
+		long espera = cubeta.consumir(0);
+		assertTrue(espera > 0 && espera <= segundo);
+		assertEquals(0, cubeta.consumir(segundo));
+	}
+
+	private MockHttpServletResponse ejecutar(String metodo, String ruta, FilterChain servicio) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(metodo, ruta);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filtro.doFilter(request, response, servicio);
+		return response;
+	}
+
+	private static void sleep(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
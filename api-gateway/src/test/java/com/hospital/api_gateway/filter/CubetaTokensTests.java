@@ -0,0 +1,38 @@
+package com.hospital.api_gateway.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CubetaTokensTests {
+
+	private static final long SEGUNDO = 1_000_000_000L;
+
+	@Test
+	void admiteUnaRafagaDeHastaLaCapacidad() {
+		CubetaTokens cubeta = new CubetaTokens(100, 50, 0);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, cubeta.consumir(0));
+		}
+		// Sin tokens: a 50/s el siguiente llega en 20 ms
+		assertEquals(20_000_000L, cubeta.consumir(0));
+	}
+
+	@Test
+	void seRecargaALaTasaSinPasarDeLaCapacidad() {
+		CubetaTokens cubeta = new CubetaTokens(10, 50, 0);
+		for (int i = 0; i < 10; i++) {
+			cubeta.consumir(0);
+		}
+
+		// Medio segundo a 50/s son 25 tokens, pero la cubeta solo guarda 10
+		long despues = SEGUNDO / 2;
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, cubeta.consumir(despues));
+		}
+		assertEquals(20_000_000L, cubeta.consumir(despues));
+
+		// 20 ms después hay justo un token más
+		assertEquals(0, cubeta.consumir(despues + 20_000_000L));
+	}
+}
@@ -0,0 +1,162 @@
+package com.hospital.api_gateway.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.function.EntityResponse;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+
+class EnrutadorShardsTests {
+
+	private final AnilloShards anillo = new AnilloShards(AnilloShards.parsear(
+			new String[]{"1=http://agendamiento-1:8080", "2=http://agendamiento-2:8080", "3=http://agendamiento-3:8080"}));
+
+	private final EnrutadorShards enrutador = new EnrutadorShards(anillo, new ObjectMapper(), RestClient.create());
+
+	@Test
+	void asignaLosMismosNodosQueAgendamiento() {
+		// La misma tabla está en AnilloShardsTests de agendamiento-service: si cambia aquí, debe cambiar allí
+		int[] esperados = {2, 2, 3, 3, 2, 2, 3, 2, 3, 2, 3, 2, 1, 2, 1, 2};
+		assertArrayEquals(esperados, LongStream.rangeClosed(1, 16).mapToInt(anillo::nodoDe).toArray());
+	}
+
+	@Test
+	void escriturasAlNodoDelMedicoOAlDelIdDeLaCita() {
+		// Médico 3 -> nodo 3; médico 13 -> nodo 1 (tabla anterior)
+		assertEquals(3, nodo("POST", "/api/v1/citas", "{\"idPaciente\":1,\"idMedico\":3}"));
+		assertEquals(2, nodo("PUT", "/api/v1/citas/" + ((2L << AnilloShards.BITS_LOCALES) + 77), "{}"));
+		assertEquals(3, nodo("DELETE", "/api/v1/citas/" + ((3L << AnilloShards.BITS_LOCALES) + 5), "{}"));
+		assertEquals(3, nodo("GET", "/api/v1/citas/medico/3/disponibilidad", null));
+
+		// Citas anteriores al reparto, cuerpos sin médico y lecturas sin clave: primer nodo o ?shard=N
+		assertEquals(1, nodo("DELETE", "/api/v1/citas/42", "{}"));
+		assertEquals(1, nodo("POST", "/api/v1/citas", "no es json"));
+		assertEquals(1, nodo("GET", "/api/v1/citas/metricas", null));
+		assertEquals(2, nodo("GET", "/api/v1/citas/agenda?shard=2", null));
+	}
+
+	@Test
+	void lasLecturasDeTodosLosShardsExigenShard() throws Exception {
+		// Sin ?shard, un solo nodo daría una agenda parcial con apariencia de completa
+		assertEquals(400, estado("/api/v1/citas/agenda"));
+		assertEquals(400, estado("/api/v1/citas/export"));
+		assertEquals(400, estado("/api/v1/citas/paciente/7/pagina"));
+
+		assertEquals(200, estado("/api/v1/citas/agenda?shard=2"));
+		assertEquals(200, estado("/api/v1/citas/paciente/7/pagina?shard=1"));
+		assertEquals(200, estado("/api/v1/citas/medico/3/pagina"));
+		assertEquals(200, estado("/api/v1/citas/metricas"));
+	}
+
+	@Test
+	void unLoteMixtoSeRepartePorNodoYVuelveEnSuOrden() {
+		// Con dos nodos: médico 3 -> nodo 1; médicos 1 y 2 -> nodo 2
+		RestClient.Builder builder = RestClient.builder();
+		MockRestServiceServer nodos = MockRestServiceServer.bindTo(builder).ignoreExpectOrder(true).build();
+		EnrutadorShards dosNodos = dosNodos(builder);
+
+		nodos.expect(requestTo("http://agendamiento-1:8080/api/v1/citas/batch"))
+				.andExpect(method(HttpMethod.POST))
+				.andExpect(content().json("{\"citas\":[{\"idMedico\":3,\"requestId\":\"a\"},{\"idMedico\":3,\"requestId\":\"c\"}]}", true))
+				.andRespond(withStatus(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON).body("""
+						{"success":true,"data":[
+						{"indice":0,"requestId":"a","success":true,"cita":{"id":1},"error":null},
+						{"indice":1,"requestId":"c","success":true,"cita":{"id":2},"error":null}]}"""));
+		nodos.expect(requestTo("http://agendamiento-2:8080/api/v1/citas/batch"))
+				.andExpect(content().json("{\"citas\":[{\"idMedico\":1,\"requestId\":\"b\"},{\"idMedico\":2,\"requestId\":\"d\"}]}", true))
+				.andRespond(withStatus(HttpStatus.MULTI_STATUS).contentType(MediaType.APPLICATION_JSON).body("""
+						{"success":false,"data":[
+						{"indice":0,"requestId":"b","success":true,"cita":{"id":3},"error":null},
+						{"indice":1,"requestId":"d","success":false,"cita":null,"error":"Horario ocupado"}]}"""));
+
+		ServerResponse respuesta = dosNodos.citasLote(solicitud("POST", "/api/v1/citas/batch", """
+				{"citas":[{"idMedico":3,"requestId":"a"},{"idMedico":1,"requestId":"b"},
+				{"idMedico":3,"requestId":"c"},{"idMedico":2,"requestId":"d"}]}"""));
+
+		nodos.verify();
+		assertEquals(207, respuesta.statusCode().value());
+		List<JsonNode> data = datos(respuesta);
+		assertEquals(List.of("a", "b", "c", "d"), data.stream().map(item -> item.path("requestId").asText()).toList());
+		assertEquals(List.of(0, 1, 2, 3), data.stream().map(item -> item.path("indice").asInt()).toList());
+		assertEquals(List.of(true, true, true, false), data.stream().map(item -> item.path("success").asBoolean()).toList());
+		assertEquals("Horario ocupado", data.get(3).path("error").asText());
+	}
+
+	@Test
+	void siUnNodoRechazaSuSubloteSoloFallanSusItems() {
+		RestClient.Builder builder = RestClient.builder();
+		MockRestServiceServer nodos = MockRestServiceServer.bindTo(builder).ignoreExpectOrder(true).build();
+		EnrutadorShards dosNodos = dosNodos(builder);
+
+		nodos.expect(requestTo("http://agendamiento-1:8080/api/v1/citas/batch"))
+				.andRespond(withStatus(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON).body("""
+						{"success":true,"data":[{"indice":0,"requestId":"a","success":true,"cita":{"id":1},"error":null}]}"""));
+		nodos.expect(requestTo("http://agendamiento-2:8080/api/v1/citas/batch"))
+				.andRespond(withStatus(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_JSON).body("""
+						{"success":false,"message":"Error al agendar lote de citas","error":"Fecha inválida"}"""));
+
+		ServerResponse respuesta = dosNodos.citasLote(solicitud("POST", "/api/v1/citas/batch", """
+				{"citas":[{"idMedico":3,"requestId":"a"},{"idMedico":1,"requestId":"b"}]}"""));
+
+		// Las citas del nodo 1 ya están agendadas: el lote no puede responder 400 entero
+		assertEquals(207, respuesta.statusCode().value());
+		List<JsonNode> data = datos(respuesta);
+		assertEquals(true, data.get(0).path("success").asBoolean());
+		assertEquals("b", data.get(1).path("requestId").asText());
+		assertEquals("El shard 2 rechazó el lote: Fecha inválida", data.get(1).path("error").asText());
+	}
+
+	private static EnrutadorShards dosNodos(RestClient.Builder builder) {
+		return new EnrutadorShards(new AnilloShards(AnilloShards.parsear(
+				new String[]{"1=http://agendamiento-1:8080", "2=http://agendamiento-2:8080"})), new ObjectMapper(), builder.build());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<JsonNode> datos(ServerResponse respuesta) {
+		return (List<JsonNode>) ((EntityResponse<Map<String, Object>>) respuesta).entity().get("data");
+	}
+
+	private int estado(String uri) throws Exception {
+		return enrutador.exigirShard(solicitud("GET", uri, null), request -> ServerResponse.ok().build())
+				.statusCode().value();
+	}
+
+	private int nodo(String metodo, String uri, String cuerpo) {
+		return enrutador.nodoDestino(solicitud(metodo, uri, cuerpo));
+	}
+
+	private static ServerRequest solicitud(String metodo, String uri, String cuerpo) {
+		int interrogacion = uri.indexOf('?');
+		MockHttpServletRequest servlet = new MockHttpServletRequest(metodo, interrogacion < 0 ? uri : uri.substring(0, interrogacion));
+		if (interrogacion >= 0) {
+			servlet.setQueryString(uri.substring(interrogacion + 1));
+			String[] parametro = uri.substring(interrogacion + 1).split("=");
+			servlet.addParameter(parametro[0], parametro[1]);
+		}
+		if (cuerpo != null) {
+			servlet.setContentType("application/json");
+			servlet.setContent(cuerpo.getBytes(StandardCharsets.UTF_8));
+		}
+		return ServerRequest.create(servlet, List.of(new StringHttpMessageConverter()));
+	}
+}
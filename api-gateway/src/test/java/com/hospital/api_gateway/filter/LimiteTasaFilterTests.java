@@ -0,0 +1,52 @@
+package com.hospital.api_gateway.filter;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteTasaFilterTests {
+
+	private final AtomicInteger atendidas = new AtomicInteger();
+	private final FilterChain servicio = (req, res) -> atendidas.incrementAndGet();
+
+	// Ráfagas de 3 y un token cada 2 s: la recarga no interfiere durante la prueba
+	private final LimiteTasaFilter filtro = new LimiteTasaFilter(Jackson2ObjectMapperBuilder.json().build(), 3, 0.5, 1_000);
+
+	@Test
+	void superadaLaRafagaResponde429ConRetryAfter() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			assertEquals(200, ejecutar("10.0.0.1").getStatus());
+		}
+
+		MockHttpServletResponse rechazada = ejecutar("10.0.0.1");
+		assertEquals(429, rechazada.getStatus());
+		assertEquals("2", rechazada.getHeader(HttpHeaders.RETRY_AFTER));
+		assertTrue(rechazada.getContentAsString().contains("\"success\":false"));
+		assertEquals(3, atendidas.get());
+	}
+
+	@Test
+	void cadaClienteTieneSuPropiaCubeta() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			ejecutar("10.0.0.1");
+		}
+		assertEquals(429, ejecutar("10.0.0.1").getStatus());
+		assertEquals(200, ejecutar("10.0.0.2").getStatus());
+	}
+
+	private MockHttpServletResponse ejecutar(String ip) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/citas/7");
+		request.setRemoteAddr(ip);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filtro.doFilter(request, response, servicio);
+		return response;
+	}
+}
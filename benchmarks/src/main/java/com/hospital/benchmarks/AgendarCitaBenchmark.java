@@ -0,0 +1,74 @@
+package com.hospital.benchmarks;
+
+import com.hospital.agendamiento_service.AgendamientoServiceApplication;
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.service.CitaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CitaService.agendarCita de extremo a extremo sobre el contexto real de agendamiento-service con H2:
+ * idempotencia, validación, conflictos (índice en memoria + guardia en BD), guardado y evento en
+ * el outbox. El relay del outbox queda parado (no hay broker). Cada invocación agenda una cita
+ * nueva sin conflictos: médico y paciente rotan y las franjas avanzan día a día.
+ * <pre>
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main AgendarCitaBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AgendarCitaBenchmark {
+
+    private static final int MEDICOS = 2_000;
+    private static final int PACIENTES = 50_000;
+    private static final int FRANJAS_DIA = 20;
+
+    @Param({"true", "false"})
+    public String guardiaBd;
+
+    private ConfigurableApplicationContext contexto;
+    private CitaService citaService;
+    private final AtomicLong siguiente = new AtomicLong();
+    private LocalDate primerDia;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        contexto = new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench_agendar_" + guardiaBd,
+                        "agendamiento.indice.guardia-bd=" + guardiaBd,
+                        "agendamiento.outbox.intervalo-ms=3600000",
+                        "logging.level.root=WARN")
+                .run();
+        citaService = contexto.getBean(CitaService.class);
+        primerDia = LocalDate.now().plusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public CitaResponse agendarCita() {
+        long n = siguiente.getAndIncrement();
+        long franja = n / MEDICOS;
+        LocalDateTime inicio = primerDia.plusDays(franja / FRANJAS_DIA).atTime(8, 0).plusMinutes(30 * (franja % FRANJAS_DIA));
+        return citaService.agendarCita(new AgendarCitaRequest(n % PACIENTES, n % MEDICOS, inicio, inicio.plusMinutes(30),
+                "Control general", "bench-" + guardiaBd + "-" + n));
+    }
+}
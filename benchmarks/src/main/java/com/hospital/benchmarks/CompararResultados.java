@@ -0,0 +1,89 @@
+package com.hospital.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dos ficheros de resultados JSON de JMH (base y nuevo) benchmark a benchmark y termina
+ * con código 1 si alguno empeora más del umbral (por defecto 10%). En modo thrpt mejor es más;
+ * en avgt/sample/ss mejor es menos. En modo sample también se compara el p99.
+ * <pre>
+ * java -cp target/classes:$(cat target/cp.txt) com.hospital.benchmarks.CompararResultados \
+ *      resultados/abc1234.json resultados/def5678.json 10
+ * </pre>
+ */
+public class CompararResultados {
+
+    private record Medida(String unidad, boolean masEsMejor, double puntuacion, double p99) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: CompararResultados <base.json> <nuevo.json> [umbral %]");
+            System.exit(2);
+        }
+        double umbral = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Medida> base = leer(new File(args[0]));
+        Map<String, Medida> nuevo = leer(new File(args[1]));
+
+        int regresiones = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "base", "nuevo", "cambio");
+        for (Map.Entry<String, Medida> entrada : nuevo.entrySet()) {
+            Medida anterior = base.get(entrada.getKey());
+            if (anterior == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", entrada.getKey(), "-", entrada.getValue().puntuacion(), "nuevo");
+                continue;
+            }
+            regresiones += comparar(entrada.getKey(), anterior.puntuacion(), entrada.getValue().puntuacion(),
+                    entrada.getValue(), umbral);
+            if (!Double.isNaN(anterior.p99()) && !Double.isNaN(entrada.getValue().p99())) {
+                regresiones += comparar(entrada.getKey() + " p99", anterior.p99(), entrada.getValue().p99(),
+                        entrada.getValue(), umbral);
+            }
+        }
+        System.out.printf("%n%d regresiones por encima del %.1f%%%n", regresiones, umbral);
+        System.exit(regresiones == 0 ? 0 : 1);
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private static int comparar(String nombre, double antes, double despues, Medida medida, double umbral) {
+        double cambio = (despues - antes) / antes * 100;
+        double empeora = medida.masEsMejor() ? -cambio : cambio;
+        boolean regresion = empeora > umbral;
+        System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", nombre, antes, despues, cambio, medida.unidad(),
+                regresion ? "  <-- REGRESIÓN" : "");
+        return regresion ? 1 : 0;
+    }
+
+    // Clave: benchmark + modo + parámetros, p. ej. "ConsultaConflictoBenchmark.conflictoMedico [sample] filas=10000 variante=antes"
+    private static Map<String, Medida> leer(File fichero) throws IOException {
+        Map<String, Medida> medidas = new LinkedHashMap<>();
+        for (JsonNode resultado : new ObjectMapper().readTree(fichero)) {
+            String benchmark = resultado.path("benchmark").asText();
+            String modo = resultado.path("mode").asText();
+            StringBuilder clave = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1))
+                    .append(" [").append(modo).append(']');
+            Map<String, String> parametros = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> it = resultado.path("params").fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> parametro = it.next();
+                parametros.put(parametro.getKey(), parametro.getValue().asText());
+            }
+            parametros.forEach((nombre, valor) -> clave.append(' ').append(nombre).append('=').append(valor));
+
+            JsonNode metrica = resultado.path("primaryMetric");
+            JsonNode p99 = metrica.path("scorePercentiles").path("99.0");
+            medidas.put(clave.toString(), new Medida(metrica.path("scoreUnit").asText(), "thrpt".equals(modo),
+                    metrica.path("score").asDouble(), "sample".equals(modo) && !p99.isMissingNode() ? p99.asDouble() : Double.NaN));
+        }
+        return medidas;
+    }
+}
@@ -0,0 +1,113 @@
+package com.hospital.benchmarks;
+
+import com.hospital.agendamiento_service.AgendamientoServiceApplication;
+import com.hospital.agendamiento_service.repository.CitaRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CitaRepository.existeConflictoMedico / existeConflictoPaciente (las sondas que usa CitaService)
+ * sobre una tabla citas de 10k, 100k y 1M filas. El esquema es el de las migraciones Flyway con la
+ * configuración del perfil 'persistente' (H2 en modo PostgreSQL), solo que en memoria.
+ * Las filas se siembran por JDBC antes de medir; lo medido son las consultas del repositorio.
+ *
+ * El modo SampleTime reporta p50/p99/p99.9. El calentamiento es largo porque se compila todo el
+ * camino de Spring Data e Hibernate, no solo la consulta.
+ * <pre>
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ConsultaConflictoBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 6, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ConsultaConflictoBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int filas;
+
+    private static final int MEDICOS = 2_000;
+    private static final int PACIENTES = 200_000;
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 7, 8, 0);
+
+    private ConfigurableApplicationContext contexto;
+    private CitaRepository citaRepository;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void sembrar() throws Exception {
+        contexto = new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=persistente",
+                        "--spring.datasource.url=jdbc:h2:mem:bench_conflicto_" + filas
+                                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+                        "--agendamiento.outbox.intervalo-ms=3600000",
+                        "--agendamiento.archivo.retraso-inicial-ms=3600000",
+                        "--logging.level.root=WARN");
+        citaRepository = contexto.getBean(CitaRepository.class);
+
+        // Cada médico tiene su agenda de días laborables en franjas de 30 min, sin solapamientos
+        String[] estados = {"AGENDADA", "AGENDADA", "CONFIRMADA", "MODIFICADA", "ANULADA"};
+        SplittableRandom semilla = new SplittableRandom(7);
+        try (Connection conexion = contexto.getBean(DataSource.class).getConnection();
+             PreparedStatement insert = conexion.prepareStatement(
+                     "INSERT INTO citas (id, id_paciente, id_medico, inicio, fin, estado) VALUES (?, ?, ?, ?, ?, ?)")) {
+            conexion.setAutoCommit(false);
+            for (int id = 0; id < filas; id++) {
+                LocalDateTime inicio = franja(id / MEDICOS);
+                insert.setLong(1, id + 1);
+                insert.setLong(2, semilla.nextInt(PACIENTES));
+                insert.setLong(3, id % MEDICOS);
+                insert.setTimestamp(4, Timestamp.valueOf(inicio));
+                insert.setTimestamp(5, Timestamp.valueOf(inicio.plusMinutes(30)));
+                insert.setString(6, estados[semilla.nextInt(estados.length)]);
+                insert.addBatch();
+                if (id % 10_000 == 9_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            conexion.commit();
+            try (Statement st = conexion.createStatement()) {
+                st.execute("ANALYZE");
+            }
+        }
+        random = new SplittableRandom(11);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public boolean conflictoMedico() {
+        LocalDateTime inicio = franja(random.nextInt(filas / MEDICOS)).plusMinutes(15);
+        return citaRepository.existeConflictoMedico((long) random.nextInt(MEDICOS), inicio, inicio.plusMinutes(30));
+    }
+
+    @Benchmark
+    public boolean conflictoPaciente() {
+        LocalDateTime inicio = franja(random.nextInt(filas / MEDICOS)).plusMinutes(15);
+        return citaRepository.existeConflictoPaciente((long) random.nextInt(PACIENTES), inicio, inicio.plusMinutes(30));
+    }
+
+    // Franja n-ésima: 20 franjas de 30 min por día (8:00 - 18:00)
+    private static LocalDateTime franja(int n) {
+        return BASE.plusDays(n / 20).plusMinutes(30L * (n % 20));
+    }
+}
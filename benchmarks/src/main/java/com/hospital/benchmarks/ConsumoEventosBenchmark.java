@@ -0,0 +1,157 @@
+package com.hospital.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.benchmarks.carga.BrokerLocal;
+import com.hospital.notificaciones_service.config.RabbitConfig;
+import com.hospital.notificaciones_service.dto.CitaEvent;
+import com.hospital.notificaciones_service.service.CitaEventConsumer;
+import com.hospital.notificaciones_service.service.CoalescedorNotificaciones;
+import com.hospital.notificaciones_service.service.DeduplicadorEventos;
+import com.hospital.notificaciones_service.service.PipelineNotificaciones;
+import com.hospital.notificaciones_service.service.PlanificadorRecordatorios;
+import com.hospital.notificaciones_service.service.StubNotificacionSender;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumo de eventos de citas de notificaciones-service a través del broker: el outbox publica en
+ * citas.exchange de un BrokerLocal y un SimpleMessageListenerContainer configurado como
+ * spring.rabbitmq.listener.simple.* (prefetch 250, 4 a 8 consumidores, lotes de 100, un ack
+ * multiple=true por lote) los entrega a CitaEventConsumer.
+ * El resultado (ops/s) son eventos por segundo de extremo a extremo: publicación, entrega, decodificación,
+ * deduplicación, coalescencia (ventana 0, vaciada tras cada lote), reparto en dos notificaciones,
+ * programación de recordatorios y ack. El hilo JMH publica y no se adelanta más de EN_VUELO lotes al consumo.
+ * <pre>
+ * (en agendamiento-service y notificaciones-service) ./mvnw -q install -DskipTests
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ConsumoEventosBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1)
+@Fork(1)
+@OperationsPerInvocation(ConsumoEventosBenchmark.TAMANO_LOTE)
+public class ConsumoEventosBenchmark {
+
+    static final int TAMANO_LOTE = 100;
+    private static final int LOTES = 4_000;
+
+    // Cola suficiente para llenar el prefetch de los 8 consumidores posibles (8 x 250)
+    private static final int EN_VUELO = 30;
+
+    // Otro puerto que el de la prueba de carga, por si hay un RabbitMQ o un BrokerLocal en el 5672
+    private static final int PUERTO = 5673;
+
+    // Porcentaje de reentregas (mismo requestId que un evento anterior del lote)
+    @Param({"0", "10"})
+    public int duplicados;
+
+    private BrokerLocal broker;
+    private CachingConnectionFactory conexiones;
+    private SimpleMessageListenerContainer contenedor;
+    private RabbitTemplate rabbitTemplate;
+    private PipelineNotificaciones pipeline;
+    private List<List<Message>> lotes;
+    private long publicados;
+
+    // Un permiso por mensaje procesado y confirmado
+    private final Semaphore procesados = new Semaphore(0);
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        broker = BrokerLocal.iniciar(PUERTO);
+        conexiones = new CachingConnectionFactory("localhost", PUERTO);
+        RabbitConfig rabbitConfig = new RabbitConfig();
+        RabbitAdmin admin = new RabbitAdmin(conexiones);
+        admin.declareExchange(rabbitConfig.citasExchange());
+        admin.declareQueue(rabbitConfig.notificacionesQueue());
+        admin.declareBinding(rabbitConfig.bindingNotificaciones());
+        rabbitTemplate = new RabbitTemplate(conexiones);
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // Ventana menor que el total de eventos: al volver a recorrer los lotes ya fueron expulsados
+        DeduplicadorEventos deduplicador = new DeduplicadorEventos(LOTES * TAMANO_LOTE / 2);
+        pipeline = new PipelineNotificaciones(new StubNotificacionSender(), 8, 2_000);
+        CoalescedorNotificaciones coalescedor = new CoalescedorNotificaciones(pipeline, 0, 0, 100_000);
+        PlanificadorRecordatorios recordatorios = new PlanificadorRecordatorios(pipeline, 1_000, 4_096, 86_400_000);
+        CitaEventConsumer consumer = new CitaEventConsumer(objectMapper, deduplicador, coalescedor, recordatorios);
+
+        MessageProperties propiedades = new MessageProperties();
+        propiedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        LocalDateTime inicio = LocalDateTime.of(2030, 1, 7, 9, 0);
+        lotes = new ArrayList<>(LOTES);
+        long secuencia = 0;
+        for (int l = 0; l < LOTES; l++) {
+            List<Message> lote = new ArrayList<>(TAMANO_LOTE);
+            for (int i = 0; i < TAMANO_LOTE; i++) {
+                boolean reentrega = duplicados > 0 && i > 0 && i % (100 / duplicados) == 0;
+                String requestId = "req-" + (reentrega ? secuencia - 1 : secuencia);
+                CitaEvent evento = new CitaEvent("CITA_AGENDADA", secuencia, 1_000 + secuencia % 5_000, secuencia % 300,
+                        inicio, inicio.plusMinutes(30), "AGENDADA", "Control", requestId, inicio);
+                lote.add(new Message(objectMapper.writeValueAsBytes(evento), propiedades));
+                secuencia++;
+            }
+            lotes.add(lote);
+        }
+
+        // Mismos valores que application.properties de notificaciones-service
+        contenedor = new SimpleMessageListenerContainer(conexiones);
+        contenedor.setQueueNames(RabbitConfig.NOTIFICACIONES_QUEUE);
+        contenedor.setPrefetchCount(250);
+        contenedor.setConcurrentConsumers(4);
+        contenedor.setMaxConcurrentConsumers(8);
+        contenedor.setConsumerBatchEnabled(true);
+        contenedor.setDeBatchingEnabled(true);
+        contenedor.setBatchSize(TAMANO_LOTE);
+        contenedor.setReceiveTimeout(50);
+        contenedor.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        contenedor.setMessageListener((BatchMessageListener) mensajes -> {
+            try {
+                consumer.recibir(mensajes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Consumidor interrumpido", e);
+            }
+            coalescedor.vaciar();
+            procesados.release(mensajes.size());
+        });
+        contenedor.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws InterruptedException {
+        contenedor.stop();
+        conexiones.destroy();
+        pipeline.detener();
+        broker.close();
+    }
+
+    @Benchmark
+    public void consumirLote() throws InterruptedException {
+        for (Message mensaje : lotes.get((int) (publicados % LOTES))) {
+            rabbitTemplate.send(RabbitConfig.CITAS_EXCHANGE, "citas.agendada", mensaje);
+        }
+        // Pasados EN_VUELO lotes, cada lote publicado espera a que se consuma uno anterior
+        if (++publicados > EN_VUELO) {
+            procesados.acquire(TAMANO_LOTE);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.hospital.benchmarks;
+
+import com.hospital.agendamiento_service.AgendamientoServiceApplication;
+import com.hospital.agendamiento_service.dto.AgendarCitaRequest;
+import com.hospital.agendamiento_service.dto.AnularCitaRequest;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.dto.ModificarCitaRequest;
+import com.hospital.agendamiento_service.service.CitaService;
+import com.hospital.benchmarks.carga.PerfilCarga;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CitaService.modificarCita / anularCita de extremo a extremo sobre el contexto real de agendamiento-service
+ * con H2, como AgendarCitaBenchmark: bloqueos de agenda, transacción, guardia en BD, índice, cachés y outbox.
+ * "optimista" es la configuración por defecto (versión y reintentos); "pesimista" activa
+ * agendamiento.concurrencia.bloqueo-fila (SELECT ... FOR UPDATE al leer la cita).
+ *
+ * Lazo abierto a la tasa de modificaciones y anulaciones de carga/lunes-manana.properties: 'tasaPorSegundo'
+ * es el total de operaciones del perfil (29 op/s es lo que sostuvo en 1 vCPU) y de ahí salen las de este
+ * benchmark según la mezcla (20 %). Cada hilo espera a su hora programada fuera de la medida.
+ * La puntuación de JMH es el tiempo de servicio; al final de cada iteración se imprime la latencia desde
+ * la hora programada (incluye la espera si el servicio se retrasa) y los conflictos de versión.
+ *
+ * Una cita anulada se repone en su franja (fuera de la medida) para que el conjunto no se agote.
+ * "1000" citas reparte los cambios como en producción; "10" concentra la contención en pocas filas.
+ * <pre>
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ContencionCitaBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Threads(ContencionCitaBenchmark.HILOS)
+@Fork(1)
+public class ContencionCitaBenchmark {
+
+    static final int HILOS = 4;
+
+    private static final int MEDICOS = 50;
+    private static final int FRANJAS_DIA = 10;
+    private static final long MAXIMO_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int CALENTAMIENTO = 4_000;
+
+    @Param({"1000", "10"})
+    public int citas;
+
+    @Param({"optimista", "pesimista"})
+    public String variante;
+
+    @Param({"29", "290"})
+    public double tasaPorSegundo;
+
+    private ConfigurableApplicationContext contexto;
+    private CitaService citaService;
+    private AtomicLongArray ids;
+    private LocalDate primerDia;
+    private double tasaCambios;
+    private double fraccionAnular;
+
+    private final AtomicLong siguiente = new AtomicLong();
+    private final Recorder latencias = new Recorder(1, MAXIMO_MICROS, 3);
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder agotadas = new LongAdder();
+    private long conflictosPrevios;
+
+    @Setup(Level.Trial)
+    public void arrancar() throws Exception {
+        PerfilCarga perfil = PerfilCarga.de(PerfilCarga.leer(PerfilCarga.PERFIL_POR_DEFECTO));
+        int total = perfil.pesoAgendar() + perfil.pesoModificar() + perfil.pesoAnular() + perfil.pesoConsultar();
+        tasaCambios = tasaPorSegundo * (perfil.pesoModificar() + perfil.pesoAnular()) / total;
+        fraccionAnular = (double) perfil.pesoAnular() / (perfil.pesoModificar() + perfil.pesoAnular());
+
+        contexto = new SpringApplicationBuilder(AgendamientoServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:bench_contencion_" + variante + "_" + citas + "_" + (int) tasaPorSegundo,
+                        "--agendamiento.concurrencia.bloqueo-fila=" + "pesimista".equals(variante),
+                        "--agendamiento.outbox.intervalo-ms=3600000",
+                        "--agendamiento.archivo.retraso-inicial-ms=3600000",
+                        "--logging.level.root=WARN");
+        citaService = contexto.getBean(CitaService.class);
+
+        primerDia = LocalDate.now().plusDays(2);
+        ids = new AtomicLongArray(citas);
+        for (int k = 0; k < citas; k++) {
+            ids.set(k, agendar(k).getId());
+        }
+
+        // En producción el resto del tráfico mantiene compilado este camino; a unos pocos cambios por
+        // segundo el JIT no llegaría a hacerlo durante la medida y se mediría código interpretado
+        for (int n = 0; n < CALENTAMIENTO; n++) {
+            int franja = n % citas;
+            if (n % 2 == 0) {
+                LocalDateTime inicio = inicioFranja(franja).plusMinutes(15L * (n / citas % 2));
+                citaService.modificarCita(new ModificarCitaRequest(ids.get(franja), inicio, inicio.plusMinutes(30),
+                        null, requestId()));
+            } else {
+                citaService.anularCita(new AnularCitaRequest(ids.get(franja), requestId(), "Calentamiento"));
+                reponer(franja);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() {
+        contexto.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void reiniciar() {
+        latencias.reset();
+        rechazadas.reset();
+        agotadas.reset();
+        conflictosPrevios = conflictosVersion();
+    }
+
+    @TearDown(Level.Iteration)
+    public void informar() {
+        Histogram histograma = latencias.getIntervalHistogram();
+        System.out.printf("%n  %s, %d citas, %.1f cambios/s: desde la hora programada p50=%d us p99=%d us max=%d us"
+                        + " (%d ops); conflictos de versión=%d, reintentos agotados=%d, rechazadas=%d%n",
+                variante, citas, tasaCambios, histograma.getValueAtPercentile(50), histograma.getValueAtPercentile(99),
+                histograma.getMaxValue(), histograma.getTotalCount(), conflictosVersion() - conflictosPrevios,
+                agotadas.sum(), rechazadas.sum());
+    }
+
+    /**
+     * Hora programada de cada hilo: los HILOS se reparten por turnos las llegadas a 'tasaCambios'
+     */
+    @State(Scope.Thread)
+    public static class Hilo {
+
+        private SplittableRandom random;
+        private long intervaloNanos;
+        private long inicio;
+        private long programada;
+        private long llegadas;
+
+        // Franja cuya cita se anuló en la última invocación; se repone antes de la siguiente
+        private int franjaAnulada = -1;
+
+        @Setup(Level.Trial)
+        public void sembrar(ThreadParams hilo) {
+            random = new SplittableRandom(17 + hilo.getThreadIndex());
+        }
+
+        // Cada iteración empieza a programar desde cero: la pausa entre iteraciones no cuenta como retraso
+        @Setup(Level.Iteration)
+        public void programar(ContencionCitaBenchmark benchmark, ThreadParams hilo) {
+            intervaloNanos = (long) (HILOS * 1e9 / benchmark.tasaCambios);
+            inicio = System.nanoTime() + hilo.getThreadIndex() * intervaloNanos / HILOS;
+            llegadas = 0;
+        }
+
+        @Setup(Level.Invocation)
+        public void esperarTurno() {
+            programada = inicio + llegadas++ * intervaloNanos;
+            long espera;
+            while ((espera = programada - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void reponer(ContencionCitaBenchmark benchmark) {
+            if (franjaAnulada >= 0) {
+                benchmark.reponer(franjaAnulada);
+                franjaAnulada = -1;
+            }
+        }
+    }
+
+    @Benchmark
+    public CitaResponse modificarOAnular(Hilo hilo) {
+        int franja = hilo.random.nextInt(citas);
+        long id = ids.get(franja);
+        try {
+            if (hilo.random.nextDouble() < fraccionAnular) {
+                CitaResponse anulada = citaService.anularCita(new AnularCitaRequest(id, requestId(), "Benchmark"));
+                hilo.franjaAnulada = franja;
+                return anulada;
+            }
+            // Se mueve dentro de su hueco de una hora: a veces se solapa con su propio horario, nunca con otra cita
+            LocalDateTime inicio = inicioFranja(franja).plusMinutes(15L * hilo.random.nextInt(2));
+            return citaService.modificarCita(new ModificarCitaRequest(id, inicio, inicio.plusMinutes(30), null, requestId()));
+        } catch (RuntimeException e) {
+            // Cita ya anulada por otro hilo (rechazo de negocio) o reintentos de versión agotados
+            (e.getMessage() != null && e.getMessage().contains("al mismo tiempo") ? agotadas : rechazadas).increment();
+            return null;
+        } finally {
+            latencias.recordValue(Math.min(Math.max(1, (System.nanoTime() - hilo.programada) / 1_000), MAXIMO_MICROS));
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    // Cita nueva en la franja anulada: solo la repone quien consiguió anularla
+    private void reponer(int franja) {
+        try {
+            ids.set(franja, agendar(franja).getId());
+        } catch (RuntimeException e) {
+            rechazadas.increment();
+        }
+    }
+
+    // Franja k: médico k % MEDICOS, un paciente por franja, huecos de una hora entre 8:00 y 18:00
+    private CitaResponse agendar(int franja) {
+        LocalDateTime inicio = inicioFranja(franja);
+        return citaService.agendarCita(new AgendarCitaRequest((long) franja + 1, (long) franja % MEDICOS,
+                inicio, inicio.plusMinutes(30), "Control general", requestId()));
+    }
+
+    private LocalDateTime inicioFranja(int franja) {
+        int turno = franja / MEDICOS;
+        return primerDia.plusDays(turno / FRANJAS_DIA).atTime(8 + turno % FRANJAS_DIA, 0);
+    }
+
+    private String requestId() {
+        return "contencion-" + variante + "-" + siguiente.getAndIncrement();
+    }
+
+    private long conflictosVersion() {
+        return ((Number) citaService.metricasLatencia().get("conflictosVersion")).longValue();
+    }
+}
@@ -0,0 +1,36 @@
+package com.hospital.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Ejecuta los benchmarks (las mismas opciones que org.openjdk.jmh.Main) y deja los resultados
+ * en JSON en resultados/&lt;etiqueta&gt;.json, para compararlos con CompararResultados.
+ * <pre>
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Detiqueta=$(git rev-parse --short HEAD) -cp target/classes:$(cat target/cp.txt) \
+ *      com.hospital.benchmarks.EjecutarBenchmarks [filtro] [opciones JMH]
+ * </pre>
+ */
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions lineaComandos = new CommandLineOptions(args);
+        Path destino = Path.of("resultados", System.getProperty("etiqueta", "local") + ".json");
+        Files.createDirectories(destino.getParent());
+
+        Options opciones = new OptionsBuilder()
+                .parent(lineaComandos)
+                .resultFormat(ResultFormatType.JSON)
+                .result(destino.toString())
+                .build();
+        new Runner(opciones).run();
+        System.out.println("Resultados en " + destino.toAbsolutePath());
+    }
+}
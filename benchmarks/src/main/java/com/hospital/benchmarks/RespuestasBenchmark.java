@@ -0,0 +1,83 @@
+package com.hospital.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.agendamiento_service.controller.CitaController;
+import com.hospital.agendamiento_service.dto.CitaResponse;
+import com.hospital.agendamiento_service.entity.Cita;
+import com.hospital.agendamiento_service.service.CitaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construcción de respuestas: CitaService.convertirACitaResponse (entidad -> DTO),
+ * CitaController.crearRespuestaExitosa (mapa envoltorio) y la respuesta completa serializada
+ * con el ObjectMapper que usa Spring MVC. Los métodos son privados y se invocan con MethodHandle
+ * (sin el coste de la reflexión en cada llamada).
+ * <pre>
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main RespuestasBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RespuestasBenchmark {
+
+    private MethodHandle convertirACitaResponse;
+    private MethodHandle crearRespuestaExitosa;
+    private ObjectMapper objectMapper;
+    private Cita cita;
+    private CitaResponse respuesta;
+
+    @Setup
+    public void setup() throws Throwable {
+        CitaService citaService = new CitaService();
+        CitaController citaController = new CitaController();
+        convertirACitaResponse = MethodHandles.privateLookupIn(CitaService.class, MethodHandles.lookup())
+                .findVirtual(CitaService.class, "convertirACitaResponse", MethodType.methodType(CitaResponse.class, Cita.class))
+                .bindTo(citaService);
+        crearRespuestaExitosa = MethodHandles.privateLookupIn(CitaController.class, MethodHandles.lookup())
+                .findVirtual(CitaController.class, "crearRespuestaExitosa", MethodType.methodType(Map.class, String.class, Object.class))
+                .bindTo(citaController);
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime inicio = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0);
+        cita = new Cita(1001L, 42L, inicio, inicio.plusMinutes(30), "Control general", "req-123456");
+        cita.setId(987654L);
+        respuesta = convertir(cita);
+    }
+
+    @Benchmark
+    public CitaResponse convertirACitaResponse() throws Throwable {
+        return convertir(cita);
+    }
+
+    @Benchmark
+    public Map<String, Object> crearRespuestaExitosa() throws Throwable {
+        return envolver(respuesta);
+    }
+
+    @Benchmark
+    public byte[] respuestaCompletaJson() throws Throwable {
+        return objectMapper.writeValueAsBytes(envolver(convertir(cita)));
+    }
+
+    private CitaResponse convertir(Cita cita) throws Throwable {
+        return (CitaResponse) convertirACitaResponse.invokeExact(cita);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> envolver(Object data) throws Throwable {
+        return (Map<String, Object>) crearRespuestaExitosa.invokeExact("Cita encontrada", data);
+    }
+}
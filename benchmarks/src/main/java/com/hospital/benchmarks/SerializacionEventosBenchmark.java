@@ -0,0 +1,79 @@
+package com.hospital.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hospital.agendamiento_service.dto.CitaEvent;
+import com.hospital.agendamiento_service.entity.Cita;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la serialización de eventos anterior (HashMap + toString + String JSON re-codificado
+ * por Jackson2JsonMessageConverter) con la actual (CitaEvent + ObjectWriter a bytes).
+ *
+ * Ejecutar con el perfilador de GC para ver la tasa de asignación (gc.alloc.rate.norm):
+ * <pre>
+ * ./mvnw -q package dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main SerializacionEventosBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionEventosBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter eventWriter;
+    private Jackson2JsonMessageConverter converter;
+    private Cita cita;
+
+    @Setup
+    public void setup() {
+        // Misma configuración de Jackson que aplica Spring Boot (JavaTimeModule, fechas ISO)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        eventWriter = objectMapper.writerFor(CitaEvent.class);
+        converter = new Jackson2JsonMessageConverter(objectMapper);
+
+        LocalDateTime inicio = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0);
+        cita = new Cita(1001L, 42L, inicio, inicio.plusMinutes(30), "Control general", "req-123456");
+        cita.setId(987654L);
+    }
+
+    @Benchmark
+    public Message mapaYStringReCodificado() throws Exception {
+        Map<String, Object> evento = new HashMap<>();
+        evento.put("citaId", cita.getId());
+        evento.put("idPaciente", cita.getIdPaciente());
+        evento.put("idMedico", cita.getIdMedico());
+        evento.put("inicio", cita.getInicio().toString());
+        evento.put("fin", cita.getFin().toString());
+        evento.put("estado", cita.getEstado().toString());
+        evento.put("motivo", cita.getMotivo());
+        evento.put("requestId", cita.getRequestId());
+        evento.put("tipo", "CITA_AGENDADA");
+        evento.put("timestamp", LocalDateTime.now().toString());
+
+        String mensaje = objectMapper.writeValueAsString(evento);
+        return converter.toMessage(mensaje, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message registroYObjectWriter() throws Exception {
+        byte[] payload = eventWriter.writeValueAsBytes(CitaEvent.de(cita, "CITA_AGENDADA"));
+        MessageProperties propiedades = new MessageProperties();
+        propiedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        propiedades.setContentEncoding("UTF-8");
+        return new Message(payload, propiedades);
+    }
+}
@@ -0,0 +1,58 @@
+package com.hospital.benchmarks.carga;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Broker AMQP 0-9-1 en memoria (Qpid Broker-J) que sustituye a RabbitMQ para ejecutar la
+ * prueba de carga sin Docker ni red: los servicios se conectan a localhost:5672 con guest/guest
+ * y declaran sus colas y exchanges como lo harían en RabbitMQ. No persiste nada.
+ * <pre>
+ * java -cp target/classes:$(cat target/cp.txt) com.hospital.benchmarks.carga.BrokerLocal [puerto]
+ * </pre>
+ */
+public final class BrokerLocal implements AutoCloseable {
+
+    private final SystemLauncher lanzador = new SystemLauncher();
+
+    private BrokerLocal() {
+    }
+
+    public static BrokerLocal iniciar(int puerto) throws Exception {
+        // Qpid registra cada conexión, cola y enlace a nivel INFO
+        ((Logger) LoggerFactory.getLogger("qpid")).setLevel(Level.WARN);
+        ((Logger) LoggerFactory.getLogger("org.apache.qpid")).setLevel(Level.WARN);
+
+        BrokerLocal broker = new BrokerLocal();
+        Map<String, Object> atributos = new HashMap<>();
+        atributos.put(SystemConfig.TYPE, "Memory");
+        atributos.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+                BrokerLocal.class.getClassLoader().getResource("broker-local.json").toExternalForm());
+        atributos.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        atributos.put(SystemConfig.CONTEXT, Map.of(
+                "qpid.amqp_port", puerto,
+                "qpid.work_dir", Files.createTempDirectory("broker-local").toString()));
+        broker.lanzador.startup(atributos);
+        return broker;
+    }
+
+    @Override
+    public void close() {
+        lanzador.shutdown();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : 5672;
+        BrokerLocal broker = iniciar(puerto);
+        Runtime.getRuntime().addShutdownHook(new Thread(broker::close));
+        System.out.println("Broker local escuchando en el puerto " + puerto + " (Ctrl+C para terminar)");
+        Thread.currentThread().join();
+    }
+}
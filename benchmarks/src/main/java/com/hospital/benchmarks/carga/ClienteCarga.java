@@ -0,0 +1,103 @@
+package com.hospital.benchmarks.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Cliente HTTP de la prueba: reintenta 429, 503, 5xx y fallos de red reenviando la misma
+ * solicitud (mismo requestId), con espera exponencial o la indicada en Retry-After.
+ */
+final class ClienteCarga {
+
+    private static final long ESPERA_MAXIMA_MS = 5000;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String citas;
+    private final int reintentosMaximos;
+    private final long esperaReintentoMs;
+
+    /**
+     * Respuesta recibida; estado 0 si no hubo respuesta (fallo de red o timeout)
+     */
+    record Respuesta(int estado, JsonNode cuerpo, int reintentos) {
+
+        boolean exitosa() {
+            return estado >= 200 && estado < 300;
+        }
+
+        long idCita() {
+            return cuerpo.path("data").path("id").asLong(0);
+        }
+
+        String error() {
+            return cuerpo.path("error").asText("");
+        }
+    }
+
+    ClienteCarga(String base, int reintentosMaximos, long esperaReintentoMs) {
+        this.citas = base + "/api/v1/citas";
+        this.reintentosMaximos = reintentosMaximos;
+        this.esperaReintentoMs = esperaReintentoMs;
+    }
+
+    HttpRequest get(String ruta) {
+        return HttpRequest.newBuilder(URI.create(citas + ruta))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+    }
+
+    HttpRequest conCuerpo(String metodo, String ruta, String json) {
+        return HttpRequest.newBuilder(URI.create(citas + ruta))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .method(metodo, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    Respuesta enviar(HttpRequest solicitud) throws InterruptedException {
+        for (int intento = 0; ; intento++) {
+            int estado;
+            JsonNode cuerpo;
+            long esperaMs = esperaReintentoMs << Math.min(intento, 10);
+            try {
+                HttpResponse<byte[]> respuesta = http.send(solicitud, HttpResponse.BodyHandlers.ofByteArray());
+                estado = respuesta.statusCode();
+                cuerpo = leer(respuesta.body());
+                esperaMs = respuesta.headers().firstValueAsLong("Retry-After")
+                        .stream().map(segundos -> segundos * 1000).findFirst().orElse(esperaMs);
+            } catch (IOException e) {
+                estado = 0;
+                cuerpo = objectMapper.createObjectNode().put("error", e.toString());
+            }
+            if (!transitorio(estado) || intento == reintentosMaximos) {
+                return new Respuesta(estado, cuerpo, intento);
+            }
+            Thread.sleep(Math.min(esperaMs, ESPERA_MAXIMA_MS));
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private static boolean transitorio(int estado) {
+        return estado == 0 || estado == 429 || estado >= 500;
+    }
+
+    private JsonNode leer(byte[] cuerpo) {
+        try {
+            return cuerpo.length == 0 ? objectMapper.createObjectNode() : objectMapper.readTree(cuerpo);
+        } catch (IOException e) {
+            return objectMapper.createObjectNode().put("error", new String(cuerpo));
+        }
+    }
+}
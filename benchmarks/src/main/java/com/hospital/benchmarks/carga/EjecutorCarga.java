@@ -0,0 +1,151 @@
+package com.hospital.benchmarks.carga;
+
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduce las operaciones contra /api/v1/citas con N clientes.
+ * - Lazo cerrado (tasa 0): cada cliente toma la siguiente operación al terminar la anterior.
+ * - Lazo abierto: la operación i se programa en inicio + i/tasa y su latencia se mide desde
+ *   esa hora, de modo que el tiempo en cola cuando el sistema no da abasto también cuenta.
+ */
+public final class EjecutorCarga {
+
+    private final ClienteCarga cliente;
+    private final PerfilCarga perfil;
+    private final List<Operacion> operaciones;
+    // Prefijo de los requestId: una reproducción no reutiliza los de otra anterior
+    private final String ejecucion;
+    private final LocalDate hoy = LocalDate.now();
+
+    // Id de la cita creada por cada operación AGENDAR (0 mientras no exista)
+    private final AtomicLongArray citaIds;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final ResultadoCarga resultado = new ResultadoCarga();
+
+    public EjecutorCarga(String base, PerfilCarga perfil, List<Operacion> operaciones, String ejecucion) {
+        this.cliente = new ClienteCarga(base, perfil.reintentosMaximos(), perfil.esperaReintentoMs());
+        this.perfil = perfil;
+        this.operaciones = operaciones;
+        this.ejecucion = ejecucion;
+        this.citaIds = new AtomicLongArray(operaciones.size());
+    }
+
+    public ResultadoCarga ejecutar() throws InterruptedException {
+        long inicio = System.nanoTime();
+        long intervaloNanos = perfil.tasaPorSegundo() > 0 ? (long) (1e9 / perfil.tasaPorSegundo()) : 0;
+        Thread[] hilos = new Thread[perfil.clientes()];
+        for (int c = 0; c < hilos.length; c++) {
+            hilos[c] = new Thread(() -> cliente(inicio, intervaloNanos), "carga-" + c);
+            hilos[c].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        resultado.finalizar(System.nanoTime() - inicio);
+        return resultado;
+    }
+
+    /**
+     * Médicos con alguna cita agendada en esta ejecución (los que hay que verificar)
+     */
+    public long[] medicosConCitas() {
+        return operaciones.stream()
+                .filter(operacion -> operacion.tipo() == Operacion.Tipo.AGENDAR && citaIds.get(operacion.ref()) != 0)
+                .mapToLong(Operacion::idMedico)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private void cliente(long inicio, long intervaloNanos) {
+        try {
+            int i;
+            while ((i = siguiente.getAndIncrement()) < operaciones.size()) {
+                long programada = System.nanoTime();
+                if (intervaloNanos > 0) {
+                    programada = inicio + i * intervaloNanos;
+                    long espera;
+                    while ((espera = programada - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(espera);
+                    }
+                }
+                procesar(operaciones.get(i), programada);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void procesar(Operacion operacion, long programada) throws InterruptedException {
+        HttpRequest solicitud = solicitud(operacion);
+        if (solicitud == null) {
+            resultado.registrar(operacion.tipo(), ResultadoCarga.Desenlace.OMITIDA, 0, 0);
+            return;
+        }
+
+        // 1. Envío con reintentos (mismo requestId)
+        ClienteCarga.Respuesta respuesta = cliente.enviar(solicitud);
+        long latencia = System.nanoTime() - programada;
+        ResultadoCarga.Desenlace desenlace = clasificar(respuesta);
+        resultado.registrar(operacion.tipo(), desenlace, latencia, respuesta.reintentos());
+        if (desenlace != ResultadoCarga.Desenlace.OK) {
+            return;
+        }
+        if (operacion.tipo() == Operacion.Tipo.AGENDAR) {
+            citaIds.set(operacion.ref(), respuesta.idCita());
+        }
+
+        // 2. Cliente que no vio la respuesta y reenvía: debe recibir la misma cita
+        if (operacion.duplicar()) {
+            ClienteCarga.Respuesta repetida = cliente.enviar(solicitud);
+            resultado.registrarDuplicado(repetida.exitosa() && repetida.idCita() == respuesta.idCita());
+        }
+    }
+
+    private HttpRequest solicitud(Operacion operacion) {
+        String requestId = ejecucion + "-" + operacion.requestId();
+        if (operacion.tipo() == Operacion.Tipo.AGENDAR) {
+            return cliente.conCuerpo("POST", "", String.format(
+                    "{\"idPaciente\":%d,\"idMedico\":%d,\"inicio\":\"%s\",\"fin\":\"%s\",\"motivo\":\"Carga\",\"requestId\":\"%s\"}",
+                    operacion.idPaciente(), operacion.idMedico(), operacion.inicio(hoy), operacion.fin(hoy), requestId));
+        }
+
+        long idCita = citaIds.get(operacion.ref());
+        if (idCita == 0) {
+            return null;
+        }
+        return switch (operacion.tipo()) {
+            case MODIFICAR -> cliente.conCuerpo("PUT", "/" + idCita, String.format(
+                    "{\"idCita\":%d,\"inicio\":\"%s\",\"fin\":\"%s\",\"requestId\":\"%s\"}",
+                    idCita, operacion.inicio(hoy), operacion.fin(hoy), requestId));
+            case ANULAR -> cliente.conCuerpo("DELETE", "/" + idCita, String.format(
+                    "{\"idCita\":%d,\"motivo\":\"Carga\",\"requestId\":\"%s\"}", idCita, requestId));
+            default -> cliente.get("/" + idCita);
+        };
+    }
+
+    private static ResultadoCarga.Desenlace clasificar(ClienteCarga.Respuesta respuesta) {
+        int estado = respuesta.estado();
+        if (respuesta.exitosa()) {
+            return ResultadoCarga.Desenlace.OK;
+        }
+        if (estado == 429 || estado == 503 || respuesta.error().contains("ocupada")) {
+            return ResultadoCarga.Desenlace.RECHAZO;
+        }
+        if (estado == 0 || estado >= 500) {
+            return ResultadoCarga.Desenlace.ERROR;
+        }
+        String error = respuesta.error();
+        if (error.contains("no está disponible") || error.contains("ya tiene una cita")) {
+            return ResultadoCarga.Desenlace.CONFLICTO;
+        }
+        return ResultadoCarga.Desenlace.INVALIDA;
+    }
+}
@@ -0,0 +1,131 @@
+package com.hospital.benchmarks.carga;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Genera la secuencia de operaciones de un perfil (determinista por semilla) y la graba o lee
+ * como CSV, para repetir exactamente la misma carga entre commits.
+ */
+public final class GeneradorCarga {
+
+    private static final int APERTURA_MINUTOS = 8 * 60;
+    private static final int CIERRE_MINUTOS = 18 * 60;
+
+    private GeneradorCarga() {
+    }
+
+    public static List<Operacion> generar(PerfilCarga perfil) {
+        SplittableRandom random = new SplittableRandom(perfil.semilla());
+        Zipf medicos = new Zipf(perfil.medicos(), perfil.zipfExponente());
+        int franjas = (CIERRE_MINUTOS - APERTURA_MINUTOS - perfil.duracionMinutos()) / perfil.franjaMinutos() + 1;
+        int pesoTotal = perfil.pesoAgendar() + perfil.pesoModificar() + perfil.pesoAnular() + perfil.pesoConsultar();
+
+        List<Operacion> operaciones = new ArrayList<>(perfil.operaciones());
+        int[] agendadas = new int[perfil.operaciones()];
+        int totalAgendadas = 0;
+        for (int i = 0; i < perfil.operaciones(); i++) {
+            Operacion.Tipo tipo = totalAgendadas == 0
+                    ? Operacion.Tipo.AGENDAR
+                    : elegir(random.nextInt(pesoTotal), perfil);
+            int dia = 1 + random.nextInt(perfil.dias());
+            int minuto = APERTURA_MINUTOS + perfil.franjaMinutos() * random.nextInt(franjas);
+            boolean duplicar = tipo != Operacion.Tipo.CONSULTAR && random.nextDouble() < perfil.probabilidadDuplicado();
+            String requestId = "op" + i;
+
+            Operacion operacion;
+            if (tipo == Operacion.Tipo.AGENDAR) {
+                operacion = new Operacion(tipo, i, medicos.siguiente(random), 1 + random.nextInt(perfil.pacientes()),
+                        dia, minuto, perfil.duracionMinutos(), requestId, duplicar);
+                agendadas[totalAgendadas++] = i;
+            } else {
+                // Modificar/anular/consultar una cita agendada antes (mismo médico y paciente)
+                Operacion original = operaciones.get(agendadas[random.nextInt(totalAgendadas)]);
+                operacion = new Operacion(tipo, original.ref(), original.idMedico(), original.idPaciente(),
+                        dia, minuto, perfil.duracionMinutos(), requestId, duplicar);
+            }
+            operaciones.add(operacion);
+        }
+        return operaciones;
+    }
+
+    public static void grabar(List<Operacion> operaciones, Path fichero) throws IOException {
+        if (fichero.getParent() != null) {
+            Files.createDirectories(fichero.getParent());
+        }
+        try (BufferedWriter salida = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8)) {
+            salida.write(Operacion.CABECERA_CSV);
+            salida.newLine();
+            for (Operacion operacion : operaciones) {
+                salida.write(operacion.aCsv());
+                salida.newLine();
+            }
+        }
+    }
+
+    public static List<Operacion> leer(Path fichero) throws IOException {
+        List<Operacion> operaciones = new ArrayList<>();
+        try (BufferedReader entrada = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            String linea = entrada.readLine();
+            if (!Operacion.CABECERA_CSV.equals(linea)) {
+                throw new IOException("El fichero no es una carga grabada: " + fichero);
+            }
+            while ((linea = entrada.readLine()) != null) {
+                if (!linea.isBlank()) {
+                    operaciones.add(Operacion.deCsv(linea));
+                }
+            }
+        }
+        return operaciones;
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private static Operacion.Tipo elegir(int valor, PerfilCarga perfil) {
+        if ((valor -= perfil.pesoAgendar()) < 0) {
+            return Operacion.Tipo.AGENDAR;
+        }
+        if ((valor -= perfil.pesoModificar()) < 0) {
+            return Operacion.Tipo.MODIFICAR;
+        }
+        if ((valor -= perfil.pesoAnular()) < 0) {
+            return Operacion.Tipo.ANULAR;
+        }
+        return Operacion.Tipo.CONSULTAR;
+    }
+
+    /**
+     * Rango k (1..n) con probabilidad proporcional a 1/k^s: función de distribución acumulada
+     * precalculada y búsqueda binaria. El médico k es el k-ésimo más solicitado.
+     */
+    private static final class Zipf {
+
+        private final double[] acumulada;
+
+        Zipf(int n, double exponente) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int k = 1; k <= n; k++) {
+                suma += 1 / Math.pow(k, exponente);
+                acumulada[k - 1] = suma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= suma;
+            }
+        }
+
+        long siguiente(SplittableRandom random) {
+            int posicion = Arrays.binarySearch(acumulada, random.nextDouble());
+            int indice = posicion >= 0 ? posicion : -posicion - 1;
+            return Math.min(indice, acumulada.length - 1) + 1;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.hospital.benchmarks.carga;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Una operación de la carga grabada. Las fechas son relativas (día desde hoy, minuto del día)
+ * para que una grabación se pueda reproducir cualquier otro día; 'ref' es el índice de la
+ * operación AGENDAR cuya cita se modifica, anula o consulta.
+ */
+public record Operacion(
+        Tipo tipo,
+        int ref,
+        long idMedico,
+        long idPaciente,
+        int dia,
+        int minuto,
+        int duracion,
+        String requestId,
+        boolean duplicar
+) {
+
+    public enum Tipo {
+        AGENDAR, MODIFICAR, ANULAR, CONSULTAR
+    }
+
+    public static final String CABECERA_CSV = "tipo,ref,idMedico,idPaciente,dia,minuto,duracion,requestId,duplicar";
+
+    public LocalDateTime inicio(LocalDate hoy) {
+        return hoy.plusDays(dia).atStartOfDay().plusMinutes(minuto);
+    }
+
+    public LocalDateTime fin(LocalDate hoy) {
+        return inicio(hoy).plusMinutes(duracion);
+    }
+
+    public String aCsv() {
+        return tipo + "," + ref + "," + idMedico + "," + idPaciente + "," + dia + "," + minuto + ","
+                + duracion + "," + requestId + "," + duplicar;
+    }
+
+    public static Operacion deCsv(String linea) {
+        String[] campos = linea.split(",", -1);
+        if (campos.length != 9) {
+            throw new IllegalArgumentException("Línea de carga inválida: " + linea);
+        }
+        return new Operacion(Tipo.valueOf(campos[0]), Integer.parseInt(campos[1]), Long.parseLong(campos[2]),
+                Long.parseLong(campos[3]), Integer.parseInt(campos[4]), Integer.parseInt(campos[5]),
+                Integer.parseInt(campos[6]), campos[7], Boolean.parseBoolean(campos[8]));
+    }
+}
@@ -0,0 +1,94 @@
+package com.hospital.benchmarks.carga;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Parámetros de la carga (ver carga/lunes-manana.properties)
+ */
+public record PerfilCarga(
+        int clientes,
+        int operaciones,
+        double tasaPorSegundo,
+        int pesoAgendar,
+        int pesoModificar,
+        int pesoAnular,
+        int pesoConsultar,
+        int medicos,
+        double zipfExponente,
+        int pacientes,
+        int dias,
+        int duracionMinutos,
+        int franjaMinutos,
+        int reintentosMaximos,
+        long esperaReintentoMs,
+        double probabilidadDuplicado,
+        long semilla
+) {
+
+    public static final String PERFIL_POR_DEFECTO = "carga/lunes-manana.properties";
+
+    /**
+     * Lee el perfil de un fichero o, si no existe, del classpath
+     */
+    public static Properties leer(String ubicacion) throws IOException {
+        Properties propiedades = new Properties();
+        Path fichero = Path.of(ubicacion);
+        try (InputStream entrada = Files.exists(fichero)
+                ? Files.newInputStream(fichero)
+                : PerfilCarga.class.getClassLoader().getResourceAsStream(ubicacion)) {
+            if (entrada == null) {
+                throw new IOException("No se encontró el perfil de carga " + ubicacion);
+            }
+            propiedades.load(entrada);
+        }
+        return propiedades;
+    }
+
+    public static PerfilCarga de(Properties p) {
+        PerfilCarga perfil = new PerfilCarga(
+                entero(p, "clientes"),
+                entero(p, "operaciones"),
+                decimal(p, "tasa-por-segundo"),
+                entero(p, "mezcla.agendar"),
+                entero(p, "mezcla.modificar"),
+                entero(p, "mezcla.anular"),
+                entero(p, "mezcla.consultar"),
+                entero(p, "medicos"),
+                decimal(p, "zipf-exponente"),
+                entero(p, "pacientes"),
+                entero(p, "dias"),
+                entero(p, "duracion-minutos"),
+                entero(p, "franja-minutos"),
+                entero(p, "reintentos-maximos"),
+                Long.parseLong(obligatoria(p, "espera-reintento-ms")),
+                decimal(p, "probabilidad-duplicado"),
+                Long.parseLong(obligatoria(p, "semilla")));
+        if (perfil.pesoAgendar() <= 0) {
+            throw new IllegalArgumentException("mezcla.agendar debe ser positivo: el resto de operaciones usa citas agendadas");
+        }
+        if (perfil.duracionMinutos() > 600 || perfil.franjaMinutos() <= 0) {
+            throw new IllegalArgumentException("Las citas deben caber en el horario laboral (8:00 - 18:00)");
+        }
+        return perfil;
+    }
+
+    private static String obligatoria(Properties p, String clave) {
+        String valor = p.getProperty(clave);
+        if (valor == null || valor.isBlank()) {
+            throw new IllegalArgumentException("Falta la propiedad de carga " + clave);
+        }
+        return valor.trim();
+    }
+
+    private static int entero(Properties p, String clave) {
+        return Integer.parseInt(obligatoria(p, clave));
+    }
+
+    private static double decimal(Properties p, String clave) {
+        return Double.parseDouble(obligatoria(p, clave));
+    }
+}
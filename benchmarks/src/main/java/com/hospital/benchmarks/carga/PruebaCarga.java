@@ -0,0 +1,104 @@
+package com.hospital.benchmarks.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Prueba de carga de extremo a extremo contra /api/v1/citas a través del gateway: reproduce una
+ * mezcla agendar/modificar/anular/consultar con médicos Zipf y reintentos con el mismo requestId,
+ * informa de throughput, p50/p99/p99.9 y tasas de conflicto/rechazo, y verifica después que
+ * ningún médico tiene citas activas solapadas. Termina con código 1 si se incumple algo.
+ *
+ * Sin conexión (el broker local sustituye a RabbitMQ; el gateway limita a 50 solicitudes/s por
+ * cliente, así que para medir los servicios hay que subir ese límite):
+ * <pre>
+ * java -cp target/classes:$(cat target/cp.txt) com.hospital.benchmarks.carga.BrokerLocal
+ * (cd agendamiento-service && ./mvnw spring-boot:run)
+ * (cd api-gateway && ./mvnw spring-boot:run -Dspring-boot.run.arguments=--gateway.limite.tokens-por-segundo=100000)
+ * java -cp target/classes:$(cat target/cp.txt) com.hospital.benchmarks.carga.PruebaCarga \
+ *      --url=http://localhost:8088 --grabar=cargas/lunes.csv --etiqueta=$(git rev-parse --short HEAD)
+ * </pre>
+ * Opciones: --perfil=fichero.properties, --reproducir=fichero.csv (misma carga que una grabación),
+ * --broker-local[=puerto] (arranca el broker dentro de este proceso), --verificar-url=URL,
+ * --sin-verificar, y cualquier clave del perfil, p. ej. --clientes=128 --tasa-por-segundo=500.
+ * El resumen se guarda también en resultados/carga-&lt;etiqueta&gt;.json.
+ */
+public class PruebaCarga {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento no reconocido: " + arg);
+            }
+            int igual = arg.indexOf('=');
+            opciones.put(igual < 0 ? arg.substring(2) : arg.substring(2, igual), igual < 0 ? "" : arg.substring(igual + 1));
+        }
+        String url = opciones.remove("url");
+        url = url != null ? url : "http://localhost:8088";
+        String verificarUrl = opciones.remove("verificar-url");
+        boolean verificar = opciones.remove("sin-verificar") == null;
+        String grabar = opciones.remove("grabar");
+        String reproducir = opciones.remove("reproducir");
+        String brokerLocal = opciones.remove("broker-local");
+        String etiqueta = opciones.remove("etiqueta");
+        String ubicacionPerfil = opciones.remove("perfil");
+
+        // 1. Perfil con las claves de la línea de comandos por encima
+        Properties propiedades = PerfilCarga.leer(ubicacionPerfil != null ? ubicacionPerfil : PerfilCarga.PERFIL_POR_DEFECTO);
+        opciones.forEach(propiedades::setProperty);
+        PerfilCarga perfil = PerfilCarga.de(propiedades);
+
+        // 2. Operaciones: generadas desde el perfil o leídas de una grabación
+        List<Operacion> operaciones = reproducir != null
+                ? GeneradorCarga.leer(Path.of(reproducir))
+                : GeneradorCarga.generar(perfil);
+        if (grabar != null) {
+            GeneradorCarga.grabar(operaciones, Path.of(grabar));
+        }
+
+        BrokerLocal broker = brokerLocal != null
+                ? BrokerLocal.iniciar(brokerLocal.isEmpty() ? 5672 : Integer.parseInt(brokerLocal))
+                : null;
+        boolean invariantesCumplidos;
+        try {
+            // 3. Carga
+            System.out.printf("%d operaciones contra %s con %d clientes (%s)%n", operaciones.size(), url, perfil.clientes(),
+                    perfil.tasaPorSegundo() > 0 ? perfil.tasaPorSegundo() + " op/s programadas" : "lazo cerrado");
+            EjecutorCarga ejecutor = new EjecutorCarga(url, perfil, operaciones, Long.toString(System.currentTimeMillis(), 36));
+            ResultadoCarga resultado = ejecutor.ejecutar();
+
+            // 4. Invariantes
+            if (verificar) {
+                long[] medicos = ejecutor.medicosConCitas();
+                System.out.printf("Verificando la agenda de %d médicos...%n", medicos.length);
+                resultado.registrarViolaciones(new VerificadorInvariantes(verificarUrl != null ? verificarUrl : url)
+                        .verificar(medicos));
+            }
+            resultado.imprimir(System.out);
+
+            Path destino = Path.of("resultados", "carga-" + (etiqueta != null ? etiqueta : "local") + ".json");
+            Files.createDirectories(destino.getParent());
+            Map<String, Object> informe = new LinkedHashMap<>();
+            informe.put("url", url);
+            informe.put("perfil", perfil);
+            informe.put("resultado", resultado.resumen());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(destino.toFile(), informe);
+            System.out.println("Resultados en " + destino.toAbsolutePath());
+
+            invariantesCumplidos = resultado.invariantesCumplidos();
+        } finally {
+            if (broker != null) {
+                broker.close();
+            }
+        }
+        System.exit(invariantesCumplidos ? 0 : 1);
+    }
+}
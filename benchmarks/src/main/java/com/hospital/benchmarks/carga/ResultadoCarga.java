@@ -0,0 +1,174 @@
+package com.hospital.benchmarks.carga;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias (histogramas HDR en microsegundos) y desenlaces por tipo de operación
+ */
+public final class ResultadoCarga {
+
+    /**
+     * CONFLICTO: el médico o el paciente ya tenía la franja. RECHAZO: el sistema no la atendió
+     * (429, 503, agenda ocupada). INVALIDA: otro 4xx (p. ej. anular una cita ya anulada).
+     * OMITIDA: la cita de referencia no llegó a agendarse, no se envió nada.
+     */
+    public enum Desenlace {
+        OK, CONFLICTO, RECHAZO, INVALIDA, ERROR, OMITIDA
+    }
+
+    private static final long MAXIMO_US = TimeUnit.MINUTES.toMicros(1);
+    private static final Operacion.Tipo[] TIPOS = Operacion.Tipo.values();
+
+    private final Histogram[] latencias = new Histogram[TIPOS.length];
+    private final LongAdder[][] desenlaces = new LongAdder[TIPOS.length][Desenlace.values().length];
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder duplicados = new LongAdder();
+    private final LongAdder duplicadosInconsistentes = new LongAdder();
+    private final List<String> violaciones = new ArrayList<>();
+    private long duracionNanos;
+
+    ResultadoCarga() {
+        for (int t = 0; t < TIPOS.length; t++) {
+            latencias[t] = new ConcurrentHistogram(MAXIMO_US, 3);
+            for (int d = 0; d < Desenlace.values().length; d++) {
+                desenlaces[t][d] = new LongAdder();
+            }
+        }
+    }
+
+    void registrar(Operacion.Tipo tipo, Desenlace desenlace, long latenciaNanos, int reintentosOperacion) {
+        desenlaces[tipo.ordinal()][desenlace.ordinal()].increment();
+        reintentos.add(reintentosOperacion);
+        if (desenlace != Desenlace.OMITIDA) {
+            latencias[tipo.ordinal()].recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latenciaNanos), MAXIMO_US));
+        }
+    }
+
+    void registrarDuplicado(boolean consistente) {
+        duplicados.increment();
+        if (!consistente) {
+            duplicadosInconsistentes.increment();
+        }
+    }
+
+    void finalizar(long duracionNanos) {
+        this.duracionNanos = duracionNanos;
+    }
+
+    /**
+     * Resultado de VerificadorInvariantes
+     */
+    public void registrarViolaciones(List<String> violaciones) {
+        this.violaciones.addAll(violaciones);
+    }
+
+    /**
+     * Sin duplicados inconsistentes ni solapamientos
+     */
+    public boolean invariantesCumplidos() {
+        return duplicadosInconsistentes.sum() == 0 && violaciones.isEmpty();
+    }
+
+    public Map<String, Object> resumen() {
+        Histogram total = new Histogram(MAXIMO_US, 3);
+        long enviadas = 0;
+        long[] porDesenlace = new long[Desenlace.values().length];
+        Map<String, Object> operaciones = new LinkedHashMap<>();
+        for (Operacion.Tipo tipo : TIPOS) {
+            Histogram histograma = latencias[tipo.ordinal()];
+            total.add(histograma);
+            enviadas += histograma.getTotalCount();
+            Map<String, Object> datos = describir(histograma);
+            for (Desenlace desenlace : Desenlace.values()) {
+                long cuenta = desenlaces[tipo.ordinal()][desenlace.ordinal()].sum();
+                porDesenlace[desenlace.ordinal()] += cuenta;
+                datos.put(desenlace.name().toLowerCase(), cuenta);
+            }
+            operaciones.put(tipo.name(), datos);
+        }
+
+        double segundos = duracionNanos / 1e9;
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("duracionSegundos", redondear(segundos));
+        resumen.put("enviadas", enviadas);
+        resumen.put("operacionesPorSegundo", redondear(segundos > 0 ? enviadas / segundos : 0));
+        resumen.put("tasaConflicto", proporcion(porDesenlace[Desenlace.CONFLICTO.ordinal()], enviadas));
+        resumen.put("tasaRechazo", proporcion(porDesenlace[Desenlace.RECHAZO.ordinal()], enviadas));
+        resumen.put("tasaError", proporcion(porDesenlace[Desenlace.ERROR.ordinal()], enviadas));
+        resumen.put("omitidas", porDesenlace[Desenlace.OMITIDA.ordinal()]);
+        resumen.put("reintentos", reintentos.sum());
+        resumen.put("duplicados", duplicados.sum());
+        resumen.put("duplicadosInconsistentes", duplicadosInconsistentes.sum());
+        resumen.put("total", describir(total));
+        resumen.put("operaciones", operaciones);
+        resumen.put("violaciones", violaciones);
+        return resumen;
+    }
+
+    public void imprimir(PrintStream salida) {
+        Map<String, Object> resumen = resumen();
+        salida.printf("%nDuración %.1f s, %d solicitudes, %.1f op/s%n", resumen.get("duracionSegundos"),
+                resumen.get("enviadas"), resumen.get("operacionesPorSegundo"));
+        salida.printf("Conflictos %.2f%%, rechazos %.2f%%, errores %.2f%%, omitidas %d, reintentos %d%n",
+                100 * (double) resumen.get("tasaConflicto"), 100 * (double) resumen.get("tasaRechazo"),
+                100 * (double) resumen.get("tasaError"), resumen.get("omitidas"), resumen.get("reintentos"));
+        salida.printf("Duplicados reenviados %d, con respuesta distinta %d%n%n",
+                resumen.get("duplicados"), resumen.get("duplicadosInconsistentes"));
+
+        salida.printf("%-10s %8s %9s %9s %9s %9s %8s %8s %8s %8s %8s%n", "operacion", "n", "p50_ms", "p99_ms",
+                "p999_ms", "max_ms", "ok", "confl", "rechazo", "invalida", "error");
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> operaciones = (Map<String, Map<String, Object>>) resumen.get("operaciones");
+        operaciones.put("TOTAL", castear(resumen.get("total")));
+        operaciones.forEach((nombre, datos) -> salida.printf("%-10s %8d %9.2f %9.2f %9.2f %9.2f %8s %8s %8s %8s %8s%n",
+                nombre, datos.get("muestras"), ms(datos, "p50Us"), ms(datos, "p99Us"), ms(datos, "p999Us"), ms(datos, "maxUs"),
+                datos.getOrDefault("ok", ""), datos.getOrDefault("conflicto", ""), datos.getOrDefault("rechazo", ""),
+                datos.getOrDefault("invalida", ""), datos.getOrDefault("error", "")));
+
+        salida.println();
+        if (violaciones.isEmpty()) {
+            salida.println("Invariantes: sin solapamientos entre citas activas de un mismo médico");
+        } else {
+            salida.println("Invariantes: " + violaciones.size() + " solapamientos");
+            violaciones.stream().limit(20).forEach(violacion -> salida.println("  " + violacion));
+        }
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private static Map<String, Object> describir(Histogram histograma) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+        valores.put("muestras", histograma.getTotalCount());
+        valores.put("p50Us", histograma.getValueAtPercentile(50));
+        valores.put("p99Us", histograma.getValueAtPercentile(99));
+        valores.put("p999Us", histograma.getValueAtPercentile(99.9));
+        valores.put("maxUs", histograma.getMaxValue());
+        return valores;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castear(Object valor) {
+        return (Map<String, Object>) valor;
+    }
+
+    private static double ms(Map<String, Object> datos, String clave) {
+        return ((Number) datos.get(clave)).longValue() / 1000.0;
+    }
+
+    private static double proporcion(long parte, long total) {
+        return total == 0 ? 0 : Math.round(parte * 1e6 / total) / 1e6;
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.hospital.benchmarks.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comprueba tras la carga que ningún médico tiene dos citas activas solapadas, recorriendo su
+ * agenda paginada (ordenada por inicio: basta comparar cada cita con el fin más tardío anterior).
+ */
+public final class VerificadorInvariantes {
+
+    private static final int LIMITE_PAGINA = 500;
+
+    private final ClienteCarga cliente;
+
+    public VerificadorInvariantes(String base) {
+        // Más reintentos que la carga: el limitador del gateway no debe dejar médicos sin verificar
+        this.cliente = new ClienteCarga(base, 10, 100);
+    }
+
+    public List<String> verificar(long[] medicos) throws InterruptedException {
+        List<String> violaciones = new ArrayList<>();
+        for (long idMedico : medicos) {
+            verificarMedico(idMedico, violaciones);
+        }
+        return violaciones;
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private void verificarMedico(long idMedico, List<String> violaciones) throws InterruptedException {
+        String cursor = null;
+        long idFinMaximo = 0;
+        LocalDateTime finMaximo = null;
+        do {
+            String ruta = "/medico/" + idMedico + "/pagina?limite=" + LIMITE_PAGINA
+                    + (cursor != null ? "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8) : "");
+            ClienteCarga.Respuesta respuesta = cliente.enviar(cliente.get(ruta));
+            if (!respuesta.exitosa()) {
+                violaciones.add("Médico " + idMedico + ": no se pudo leer la agenda (" + respuesta.estado() + ")");
+                return;
+            }
+            JsonNode pagina = respuesta.cuerpo().path("data");
+            for (JsonNode cita : pagina.path("citas")) {
+                LocalDateTime inicio = LocalDateTime.parse(cita.path("inicio").asText());
+                LocalDateTime fin = LocalDateTime.parse(cita.path("fin").asText());
+                if (finMaximo != null && inicio.isBefore(finMaximo)) {
+                    violaciones.add("Médico " + idMedico + ": la cita " + cita.path("id").asLong()
+                            + " (" + inicio + ") se solapa con la " + idFinMaximo + " (hasta " + finMaximo + ")");
+                }
+                if (finMaximo == null || fin.isAfter(finMaximo)) {
+                    finMaximo = fin;
+                    idFinMaximo = cita.path("id").asLong();
+                }
+            }
+            cursor = pagina.path("hayMas").asBoolean() ? pagina.path("siguienteCursor").asText() : null;
+        } while (cursor != null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hospital.medicos_service.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfig {
+
+    // Mismos nombres que declara agendamiento-service (las declaraciones son idempotentes)
+    public static final String CITAS_EXCHANGE = "citas.exchange";
+    public static final String MEDICOS_QUEUE = "medicos.queue";
+
+    @Bean
+    public TopicExchange citasExchange() {
+        return new TopicExchange(CITAS_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue medicosQueue() {
+        return QueueBuilder.durable(MEDICOS_QUEUE).build();
+    }
+
+    /**
+     * La proyección de agenda necesita agendadas, modificadas y anuladas
+     */
+    @Bean
+    public Binding bindingMedicos() {
+        return BindingBuilder
+                .bind(medicosQueue())
+                .to(citasExchange())
+                .with("citas.*");
+    }
+}
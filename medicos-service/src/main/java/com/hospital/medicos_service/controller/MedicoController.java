@@ -0,0 +1,59 @@
+package com.hospital.medicos_service.controller;
+
+import com.hospital.medicos_service.dto.AgendaDiaResponse;
+import com.hospital.medicos_service.service.AgendaMedicosProyeccion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/medicos")
+@CrossOrigin(origins = "*")
+public class MedicoController {
+
+    @Autowired
+    private AgendaMedicosProyeccion agendaProyeccion;
+
+    /**
+     * Agenda del médico para un día (por defecto hoy), servida desde la proyección en memoria
+     * GET /api/v1/medicos/{idMedico}/agenda?fecha=2030-01-07
+     */
+    @GetMapping("/{idMedico}/agenda")
+    public ResponseEntity<?> agendaDelDia(@PathVariable Long idMedico,
+                                          @RequestParam(required = false)
+                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        LocalDate dia = fecha != null ? fecha : LocalDate.now();
+        AgendaDiaResponse agenda = new AgendaDiaResponse(idMedico, dia, agendaProyeccion.agendaDelDia(idMedico, dia));
+        return ResponseEntity.ok(crearRespuestaExitosa("Agenda obtenida exitosamente", agenda));
+    }
+
+    /**
+     * Health check
+     * GET /api/v1/medicos/health
+     */
+    @GetMapping("/health")
+    public ResponseEntity<?> healthCheck() {
+        Map<String, Object> health = new HashMap<>();
+        health.put("status", "UP");
+        health.put("service", "medicos-service");
+        health.put("citasProyectadas", agendaProyeccion.tamano());
+        health.put("timestamp", java.time.LocalDateTime.now());
+        return ResponseEntity.ok(health);
+    }
+
+    // ================== MÉTODOS AUXILIARES ==================
+
+    private Map<String, Object> crearRespuestaExitosa(String mensaje, Object data) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("success", true);
+        respuesta.put("message", mensaje);
+        respuesta.put("data", data);
+        respuesta.put("timestamp", java.time.LocalDateTime.now());
+        return respuesta;
+    }
+}
@@ -0,0 +1,10 @@
+package com.hospital.medicos_service.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Agenda de un médico para un día, ordenada por hora de inicio
+ */
+public record AgendaDiaResponse(Long idMedico, LocalDate fecha, List<CitaAgenda> citas) {
+}
@@ -0,0 +1,31 @@
+package com.hospital.medicos_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita tal como aparece en la agenda del médico. 'version' es el timestamp del evento que la
+ * produjo y permite ignorar eventos que llegan desordenados.
+ */
+public record CitaAgenda(
+        Long citaId,
+        Long idMedico,
+        Long idPaciente,
+        LocalDateTime inicio,
+        LocalDateTime fin,
+        String estado,
+        String motivo,
+        LocalDateTime version
+) {
+
+    public static CitaAgenda de(CitaEvent evento) {
+        return new CitaAgenda(evento.citaId(), evento.idMedico(), evento.idPaciente(), evento.inicio(), evento.fin(),
+                evento.estado(), evento.motivo(), evento.timestamp());
+    }
+
+    @JsonIgnore
+    public boolean activa() {
+        return !"ANULADA".equals(estado) && inicio != null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.hospital.medicos_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de cita publicado por agendamiento-service en citas.exchange.
+ * El estado se recibe como texto para no acoplarse al enum del productor.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CitaEvent(
+        String tipo,
+        Long citaId,
+        Long idPaciente,
+        Long idMedico,
+        LocalDateTime inicio,
+        LocalDateTime fin,
+        String estado,
+        String motivo,
+        String requestId,
+        LocalDateTime timestamp
+) {
+}
@@ -0,0 +1,127 @@
+package com.hospital.medicos_service.service;
+
+import com.hospital.medicos_service.dto.CitaAgenda;
+import com.hospital.medicos_service.dto.CitaEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Proyección en memoria de la agenda diaria de cada médico a partir de los eventos de citas.
+ * Cada día se guarda como una lista inmutable ya ordenada que se reemplaza en cada cambio,
+ * así una consulta es una búsqueda en un mapa sin bloqueos ni copias.
+ */
+@Component
+public class AgendaMedicosProyeccion {
+
+    private static final Comparator<CitaAgenda> POR_INICIO =
+            Comparator.comparing(CitaAgenda::inicio).thenComparing(CitaAgenda::citaId);
+
+    // Último estado conocido de cada cita (también las anuladas, para descartar eventos atrasados)
+    private final ConcurrentHashMap<Long, CitaAgenda> porCita = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ClaveDia, List<CitaAgenda>> porDia = new ConcurrentHashMap<>();
+
+    private record ClaveDia(Long idMedico, LocalDate fecha) {
+
+        static ClaveDia de(CitaAgenda cita) {
+            return new ClaveDia(cita.idMedico(), cita.inicio().toLocalDate());
+        }
+    }
+
+    /**
+     * Aplica un evento de cita; los eventos más antiguos que el estado conocido se ignoran
+     */
+    public void aplicar(CitaEvent evento) {
+        aplicar(CitaAgenda.de(evento));
+    }
+
+    /**
+     * Citas activas del médico en la fecha
+     */
+    public List<CitaAgenda> agendaDelDia(Long idMedico, LocalDate fecha) {
+        return porDia.getOrDefault(new ClaveDia(idMedico, fecha), List.of());
+    }
+
+    /**
+     * Estado completo para el snapshot
+     */
+    public Collection<CitaAgenda> citas() {
+        return porCita.values();
+    }
+
+    /**
+     * Carga un snapshot previo
+     */
+    public void restaurar(Collection<CitaAgenda> citas) {
+        citas.forEach(this::aplicar);
+    }
+
+    /**
+     * Descarta las citas terminadas antes de 'limite'
+     */
+    public void podar(LocalDateTime limite) {
+        for (CitaAgenda cita : porCita.values()) {
+            if (cita.fin() != null && cita.fin().isBefore(limite)) {
+                porCita.computeIfPresent(cita.citaId(), (id, actual) -> {
+                    if (actual.activa()) {
+                        quitar(actual);
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    public int tamano() {
+        return porCita.size();
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private void aplicar(CitaAgenda nueva) {
+        porCita.compute(nueva.citaId(), (id, anterior) -> {
+            if (anterior != null && esAnterior(nueva, anterior)) {
+                return anterior;
+            }
+            // La modificación puede mover la cita de día: se quita de donde estaba
+            if (anterior != null && anterior.activa()) {
+                quitar(anterior);
+            }
+            if (nueva.activa()) {
+                poner(nueva);
+            }
+            return nueva;
+        });
+    }
+
+    private static boolean esAnterior(CitaAgenda nueva, CitaAgenda actual) {
+        return nueva.version() != null && actual.version() != null && nueva.version().isBefore(actual.version());
+    }
+
+    private void poner(CitaAgenda cita) {
+        porDia.compute(ClaveDia.de(cita), (clave, dia) -> {
+            List<CitaAgenda> copia = dia == null ? new ArrayList<>(1) : new ArrayList<>(dia);
+            copia.add(cita);
+            copia.sort(POR_INICIO);
+            return List.copyOf(copia);
+        });
+    }
+
+    private void quitar(CitaAgenda cita) {
+        porDia.computeIfPresent(ClaveDia.de(cita), (clave, dia) -> {
+            List<CitaAgenda> copia = new ArrayList<>(dia.size());
+            for (CitaAgenda existente : dia) {
+                if (!existente.citaId().equals(cita.citaId())) {
+                    copia.add(existente);
+                }
+            }
+            return copia.isEmpty() ? null : List.copyOf(copia);
+        });
+    }
+}
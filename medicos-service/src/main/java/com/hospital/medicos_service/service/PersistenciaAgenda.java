@@ -0,0 +1,172 @@
+package com.hospital.medicos_service.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hospital.medicos_service.dto.CitaAgenda;
+import com.hospital.medicos_service.dto.CitaEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Durabilidad de la proyección: diario de eventos + snapshot periódico.
+ * - Cada lote recibido se añade al diario (una línea JSON por evento) y se sincroniza a disco
+ *   antes de aplicarlo; el ack a RabbitMQ llega después, así que no se pierde nada confirmado.
+ * - El snapshot escribe el estado completo y vacía el diario. Al arrancar se carga el snapshot
+ *   y se reaplica el diario; reaplicar un evento ya incluido no cambia nada (versionado).
+ */
+@Component
+public class PersistenciaAgenda {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistenciaAgenda.class);
+
+    private final AgendaMedicosProyeccion proyeccion;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader eventReader;
+    private final Path snapshot;
+    private final Path diario;
+    private final int retencionDias;
+
+    // Lectura: consumidores (añadir + aplicar). Escritura: snapshot (estado y diario coherentes)
+    private final ReentrantReadWriteLock coherencia = new ReentrantReadWriteLock();
+    private final ReentrantLock escrituraDiario = new ReentrantLock();
+    private final AtomicLong cambiosSinSnapshot = new AtomicLong();
+    private FileChannel canalDiario;
+
+    public PersistenciaAgenda(AgendaMedicosProyeccion proyeccion, ObjectMapper objectMapper,
+                              @Value("${medicos.proyeccion.directorio:./data}") String directorio,
+                              @Value("${medicos.proyeccion.retencion-dias:30}") int retencionDias) {
+        this.proyeccion = proyeccion;
+        this.objectMapper = objectMapper;
+        this.eventReader = objectMapper.readerFor(CitaEvent.class);
+        this.snapshot = Path.of(directorio, "agenda-medicos.snapshot.json");
+        this.diario = Path.of(directorio, "agenda-medicos.diario");
+        this.retencionDias = retencionDias;
+    }
+
+    /**
+     * Reconstruye la proyección antes de que arranquen los consumidores
+     */
+    @PostConstruct
+    public void restaurar() throws IOException {
+        Files.createDirectories(diario.getParent());
+        long inicio = System.nanoTime();
+        if (Files.exists(snapshot)) {
+            List<CitaAgenda> citas = objectMapper.readValue(snapshot.toFile(), new TypeReference<List<CitaAgenda>>() {
+            });
+            proyeccion.restaurar(citas);
+        }
+        long reaplicados = 0;
+        if (Files.exists(diario)) {
+            try (BufferedReader lector = Files.newBufferedReader(diario, StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = lector.readLine()) != null) {
+                    // Una última línea cortada por una caída a mitad de escritura se descarta
+                    try {
+                        proyeccion.aplicar(eventReader.readValue(linea));
+                        reaplicados++;
+                    } catch (IOException e) {
+                        log.warn("Línea del diario ilegible descartada: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+        canalDiario = FileChannel.open(diario, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("Agenda de médicos restaurada: {} citas, {} eventos del diario en {} ms",
+                proyeccion.tamano(), reaplicados, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Registra el lote en el diario (sincronizado a disco) y lo aplica a la proyección
+     */
+    public void registrarYAplicar(List<byte[]> cuerpos, List<CitaEvent> eventos) {
+        coherencia.readLock().lock();
+        try {
+            escrituraDiario.lock();
+            try {
+                ByteBuffer[] buffers = new ByteBuffer[cuerpos.size() * 2];
+                for (int i = 0; i < cuerpos.size(); i++) {
+                    buffers[2 * i] = ByteBuffer.wrap(cuerpos.get(i));
+                    buffers[2 * i + 1] = ByteBuffer.wrap(new byte[]{'\n'});
+                }
+                while (quedan(buffers)) {
+                    canalDiario.write(buffers);
+                }
+                canalDiario.force(false);
+            } catch (IOException e) {
+                // Sin diario no hay durabilidad: el lote vuelve a la cola
+                throw new UncheckedIOException("No se pudo escribir el diario de eventos", e);
+            } finally {
+                escrituraDiario.unlock();
+            }
+            eventos.forEach(proyeccion::aplicar);
+            cambiosSinSnapshot.addAndGet(eventos.size());
+        } finally {
+            coherencia.readLock().unlock();
+        }
+    }
+
+    /**
+     * Escribe el snapshot si hubo cambios y vacía el diario
+     */
+    @Scheduled(fixedDelayString = "${medicos.proyeccion.snapshot-intervalo-ms:30000}")
+    public void guardarSnapshot() {
+        if (cambiosSinSnapshot.get() == 0) {
+            return;
+        }
+        coherencia.writeLock().lock();
+        try {
+            proyeccion.podar(LocalDateTime.now().minusDays(retencionDias));
+            Path temporal = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            byte[] contenido = objectMapper.writeValueAsBytes(proyeccion.citas());
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(contenido);
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                canal.force(true);
+            }
+            Files.move(temporal, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Solo con el snapshot ya en su sitio se puede vaciar el diario
+            canalDiario.truncate(0);
+            canalDiario.force(true);
+            cambiosSinSnapshot.set(0);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar el snapshot de agendas: {}", e.getMessage());
+        } finally {
+            coherencia.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        guardarSnapshot();
+        canalDiario.close();
+    }
+
+    private static boolean quedan(ByteBuffer[] buffers) {
+        return buffers[buffers.length - 1].hasRemaining();
+    }
+}
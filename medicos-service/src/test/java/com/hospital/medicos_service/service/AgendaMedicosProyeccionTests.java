@@ -0,0 +1,66 @@
+package com.hospital.medicos_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.medicos_service.dto.CitaAgenda;
+import com.hospital.medicos_service.dto.CitaEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgendaMedicosProyeccionTests {
+
+	private static final LocalDateTime LUNES = LocalDate.now().plusDays(7).atTime(9, 0);
+	private static final LocalDateTime T0 = LocalDateTime.now();
+
+	@Test
+	void modificacionMueveLaCitaYLosEventosAtrasadosSeIgnoran() {
+		AgendaMedicosProyeccion proyeccion = new AgendaMedicosProyeccion();
+		proyeccion.aplicar(evento("CITA_AGENDADA", 1L, LUNES, "AGENDADA", T0));
+		proyeccion.aplicar(evento("CITA_MODIFICADA", 1L, LUNES.plusDays(1), "MODIFICADA", T0.plusSeconds(2)));
+		// Reentrega atrasada de la creación: no debe devolver la cita al lunes
+		proyeccion.aplicar(evento("CITA_AGENDADA", 1L, LUNES, "AGENDADA", T0));
+
+		assertTrue(proyeccion.agendaDelDia(7L, LUNES.toLocalDate()).isEmpty());
+		assertEquals(List.of(1L), ids(proyeccion.agendaDelDia(7L, LUNES.toLocalDate().plusDays(1))));
+
+		proyeccion.aplicar(evento("CITA_ANULADA", 1L, LUNES.plusDays(1), "ANULADA", T0.plusSeconds(3)));
+		assertTrue(proyeccion.agendaDelDia(7L, LUNES.toLocalDate().plusDays(1)).isEmpty());
+	}
+
+	@Test
+	void restauraDesdeSnapshotYDiario(@TempDir Path directorio) throws Exception {
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		AgendaMedicosProyeccion proyeccion = new AgendaMedicosProyeccion();
+		PersistenciaAgenda persistencia = new PersistenciaAgenda(proyeccion, objectMapper, directorio.toString(), 30);
+		persistencia.restaurar();
+
+		CitaEvent primera = evento("CITA_AGENDADA", 1L, LUNES.withHour(11), "AGENDADA", T0);
+		persistencia.registrarYAplicar(List.of(objectMapper.writeValueAsBytes(primera)), List.of(primera));
+		persistencia.guardarSnapshot();
+		// Esta solo queda en el diario
+		CitaEvent segunda = evento("CITA_AGENDADA", 2L, LUNES, "AGENDADA", T0);
+		persistencia.registrarYAplicar(List.of(objectMapper.writeValueAsBytes(segunda)), List.of(segunda));
+
+		AgendaMedicosProyeccion reiniciada = new AgendaMedicosProyeccion();
+		new PersistenciaAgenda(reiniciada, objectMapper, directorio.toString(), 30).restaurar();
+
+		assertEquals(List.of(2L, 1L), ids(reiniciada.agendaDelDia(7L, LUNES.toLocalDate())));
+	}
+
+	private static CitaEvent evento(String tipo, Long citaId, LocalDateTime inicio, String estado, LocalDateTime version) {
+		return new CitaEvent(tipo, citaId, 100L + citaId, 7L, inicio, inicio.plusMinutes(30), estado, "Control",
+				"req-" + tipo + "-" + citaId, version);
+	}
+
+	private static List<Long> ids(List<CitaAgenda> citas) {
+		return citas.stream().map(CitaAgenda::citaId).toList();
+	}
+}
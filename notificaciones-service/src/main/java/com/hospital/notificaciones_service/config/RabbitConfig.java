@@ -0,0 +1,34 @@
+package com.hospital.notificaciones_service.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfig {
+
+    // Mismos nombres que declara agendamiento-service (las declaraciones son idempotentes)
+    public static final String CITAS_EXCHANGE = "citas.exchange";
+    public static final String NOTIFICACIONES_QUEUE = "notificaciones.queue";
+
+    @Bean
+    public TopicExchange citasExchange() {
+        return new TopicExchange(CITAS_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue notificacionesQueue() {
+        return QueueBuilder.durable(NOTIFICACIONES_QUEUE).build();
+    }
+
+    /**
+     * Todas las operaciones sobre citas generan notificación
+     */
+    @Bean
+    public Binding bindingNotificaciones() {
+        return BindingBuilder
+                .bind(notificacionesQueue())
+                .to(citasExchange())
+                .with("citas.*");
+    }
+}
@@ -0,0 +1,50 @@
+package com.hospital.notificaciones_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificación individual a un destinatario, derivada de un evento de cita
+ */
+public record Notificacion(
+        Destinatario destinatario,
+        Long idDestinatario,
+        Long citaId,
+        String tipo,
+        String mensaje,
+        String requestId
+) {
+
+    public enum Destinatario {
+        PACIENTE, MEDICO
+    }
+
+    /**
+     * Un evento se reparte en una notificación para el paciente y otra para el médico
+     */
+    public static Notificacion[] de(CitaEvent evento) {
+        String detalle = describir(evento);
+        return new Notificacion[]{
+                new Notificacion(Destinatario.PACIENTE, evento.idPaciente(), evento.citaId(), evento.tipo(), detalle, evento.requestId()),
+                new Notificacion(Destinatario.MEDICO, evento.idMedico(), evento.citaId(), evento.tipo(), detalle, evento.requestId())
+        };
+    }
+
+    /**
+     * Recordatorio para el paciente antes del inicio de la cita
+     */
+    public static Notificacion recordatorio(Recordatorio recordatorio, LocalDateTime inicio) {
+        String tipo = "RECORDATORIO_" + recordatorio.anticipacion().name();
+        return new Notificacion(Destinatario.PACIENTE, recordatorio.idPaciente(), recordatorio.citaId(), tipo,
+                "Recordatorio: cita #" + recordatorio.citaId() + " el " + inicio, null);
+    }
+
+    private static String describir(CitaEvent evento) {
+        String accion = switch (evento.tipo() == null ? "" : evento.tipo()) {
+            case "CITA_AGENDADA" -> "Cita agendada";
+            case "CITA_MODIFICADA" -> "Cita modificada";
+            case "CITA_ANULADA" -> "Cita anulada";
+            default -> "Actualización de cita";
+        };
+        return accion + " #" + evento.citaId() + " para " + evento.inicio();
+    }
+}
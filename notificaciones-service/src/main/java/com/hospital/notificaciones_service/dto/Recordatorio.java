@@ -0,0 +1,27 @@
+package com.hospital.notificaciones_service.dto;
+
+import java.time.Duration;
+
+/**
+ * Recordatorio pendiente de una cita. Campos primitivos: puede haber millones en memoria.
+ */
+public record Recordatorio(long citaId, long idPaciente, long inicioEpochMs, Anticipacion anticipacion) {
+
+    public enum Anticipacion {
+        HORAS_24(Duration.ofHours(24)), HORA_1(Duration.ofHours(1));
+
+        private final Duration antes;
+
+        Anticipacion(Duration antes) {
+            this.antes = antes;
+        }
+
+        public Duration antes() {
+            return antes;
+        }
+    }
+
+    public long vencimientoEpochMs() {
+        return inicioEpochMs - anticipacion.antes().toMillis();
+    }
+}
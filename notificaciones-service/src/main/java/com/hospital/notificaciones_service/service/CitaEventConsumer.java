@@ -0,0 +1,73 @@
+package com.hospital.notificaciones_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hospital.notificaciones_service.config.RabbitConfig;
+import com.hospital.notificaciones_service.dto.CitaEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Consume los eventos de citas por lotes (ver spring.rabbitmq.listener.simple.*) con un único ack
+ * por lote. Cada evento nuevo pasa al coalescedor, que envía solo el estado final de la cita,
+ * y al planificador de recordatorios. Las reentregas se descartan por requestId.
+ */
+@Component
+public class CitaEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(CitaEventConsumer.class);
+
+    private final ObjectReader eventReader;
+    private final DeduplicadorEventos deduplicador;
+    private final CoalescedorNotificaciones coalescedor;
+    private final PlanificadorRecordatorios recordatorios;
+
+    public CitaEventConsumer(ObjectMapper objectMapper, DeduplicadorEventos deduplicador,
+                             CoalescedorNotificaciones coalescedor, PlanificadorRecordatorios recordatorios) {
+        // Reader resuelto una sola vez: los payload llegan como bytes JSON sin cabeceras de tipo
+        this.eventReader = objectMapper.readerFor(CitaEvent.class);
+        this.deduplicador = deduplicador;
+        this.coalescedor = coalescedor;
+        this.recordatorios = recordatorios;
+    }
+
+    /**
+     * Procesa un lote de mensajes de notificaciones.queue
+     */
+    @RabbitListener(queues = RabbitConfig.NOTIFICACIONES_QUEUE)
+    public void recibir(List<Message> mensajes) throws InterruptedException {
+        for (Message mensaje : mensajes) {
+            // 1. Decodificar y descartar reentregas
+            CitaEvent evento = decodificar(mensaje);
+            if (evento == null || deduplicador.yaNotificado(evento.requestId())) {
+                continue;
+            }
+
+            // 2. Notificación diferida (coalescida) y recordatorios
+            coalescedor.recibir(evento);
+            recordatorios.aplicar(evento);
+            deduplicador.marcar(evento.requestId());
+        }
+    }
+
+    // Un mensaje ilegible no se puede reintentar con éxito: se registra y se confirma igualmente
+    private CitaEvent decodificar(Message mensaje) {
+        try {
+            CitaEvent evento = eventReader.readValue(mensaje.getBody());
+            if (evento.requestId() == null || evento.citaId() == null) {
+                log.warn("Evento de cita incompleto descartado: {}", evento);
+                return null;
+            }
+            return evento;
+        } catch (IOException e) {
+            log.warn("Evento de cita ilegible descartado: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.hospital.notificaciones_service.service;
+
+import com.hospital.notificaciones_service.dto.CitaEvent;
+import com.hospital.notificaciones_service.dto.Notificacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Agrupa los eventos de una misma cita dentro de una ventana corta y notifica solo el estado final.
+ * La ventana se reinicia con cada evento (hasta un máximo desde el primero), así una serie de
+ * reprogramaciones seguidas produce un único mensaje.
+ */
+@Component
+public class CoalescedorNotificaciones {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescedorNotificaciones.class);
+
+    private final PipelineNotificaciones pipeline;
+    private final long ventanaNanos;
+    private final long ventanaMaximaNanos;
+
+    private final ConcurrentHashMap<Long, Pendiente> pendientes = new ConcurrentHashMap<>();
+
+    // Cota de citas en espera: sin permisos el consumidor se bloquea y RabbitMQ retiene los mensajes
+    private final Semaphore capacidad;
+
+    // Primer tipo recibido en la ventana, último evento por timestamp y llegadas (nanoTime)
+    private record Pendiente(String primerTipo, CitaEvent ultimo, long primeraLlegada, long ultimaLlegada) {
+    }
+
+    public CoalescedorNotificaciones(PipelineNotificaciones pipeline,
+                                     @Value("${notificaciones.coalescencia.ventana-ms:2000}") long ventanaMs,
+                                     @Value("${notificaciones.coalescencia.ventana-maxima-ms:10000}") long ventanaMaximaMs,
+                                     @Value("${notificaciones.coalescencia.maximo-pendientes:100000}") int maximoPendientes) {
+        this.pipeline = pipeline;
+        this.ventanaNanos = ventanaMs * 1_000_000L;
+        this.ventanaMaximaNanos = ventanaMaximaMs * 1_000_000L;
+        this.capacidad = new Semaphore(maximoPendientes);
+    }
+
+    /**
+     * Incorpora el evento a la ventana de su cita
+     */
+    public void recibir(CitaEvent evento) throws InterruptedException {
+        long ahora = System.nanoTime();
+        Pendiente nuevo = new Pendiente(evento.tipo(), evento, ahora, ahora);
+        while (true) {
+            Pendiente actual = pendientes.get(evento.citaId());
+            if (actual == null) {
+                capacidad.acquire();
+                if (pendientes.putIfAbsent(evento.citaId(), nuevo) == null) {
+                    return;
+                }
+                capacidad.release();
+            } else if (pendientes.replace(evento.citaId(), actual, combinar(actual, evento, ahora))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Envía las citas cuya ventana terminó
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.coalescencia.intervalo-ms:100}")
+    public void vaciar() {
+        long ahora = System.nanoTime();
+        for (Map.Entry<Long, Pendiente> entrada : pendientes.entrySet()) {
+            Pendiente pendiente = entrada.getValue();
+            boolean cerrada = ahora - pendiente.ultimaLlegada() >= ventanaNanos
+                    || ahora - pendiente.primeraLlegada() >= ventanaMaximaNanos;
+            if (cerrada && pendientes.remove(entrada.getKey(), pendiente)) {
+                capacidad.release();
+                enviar(pendiente);
+            }
+        }
+    }
+
+    public int pendientes() {
+        return pendientes.size();
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private static Pendiente combinar(Pendiente actual, CitaEvent evento, long ahora) {
+        // Con varios consumidores el orden de llegada no es el de emisión: manda el timestamp del evento
+        boolean masReciente = actual.ultimo().timestamp() == null || evento.timestamp() == null
+                || !evento.timestamp().isBefore(actual.ultimo().timestamp());
+        // La creación es siempre el primer estado de una cita, aunque su evento llegue tarde
+        String primerTipo = "CITA_AGENDADA".equals(evento.tipo()) ? evento.tipo() : actual.primerTipo();
+        return new Pendiente(primerTipo, masReciente ? evento : actual.ultimo(), actual.primeraLlegada(), ahora);
+    }
+
+    private void enviar(Pendiente pendiente) {
+        CitaEvent evento = estadoFinal(pendiente);
+        if (evento == null) {
+            return;
+        }
+        for (Notificacion notificacion : Notificacion.de(evento)) {
+            pipeline.despachar(notificacion).exceptionally(e -> {
+                log.warn("No se pudo notificar la cita {}: {}", evento.citaId(), e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    // Agendada y luego modificada se notifica como agendada con los datos finales;
+    // agendada y anulada dentro de la ventana no se notifica
+    private static CitaEvent estadoFinal(Pendiente pendiente) {
+        CitaEvent ultimo = pendiente.ultimo();
+        if (!"CITA_AGENDADA".equals(pendiente.primerTipo()) || "CITA_AGENDADA".equals(ultimo.tipo())) {
+            return ultimo;
+        }
+        if ("CITA_ANULADA".equals(ultimo.tipo())) {
+            return null;
+        }
+        return new CitaEvent("CITA_AGENDADA", ultimo.citaId(), ultimo.idPaciente(), ultimo.idMedico(), ultimo.inicio(),
+                ultimo.fin(), ultimo.estado(), ultimo.motivo(), ultimo.requestId(), ultimo.timestamp());
+    }
+}
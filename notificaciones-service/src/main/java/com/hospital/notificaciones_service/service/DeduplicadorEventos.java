@@ -0,0 +1,44 @@
+package com.hospital.notificaciones_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * requestId de los eventos ya notificados, acotado por tamaño (se expulsan los más antiguos).
+ * El outbox del productor entrega al menos una vez: las reentregas dentro de la ventana se descartan.
+ */
+@Component
+public class DeduplicadorEventos {
+
+    private final Map<String, Boolean> notificados;
+
+    public DeduplicadorEventos(@Value("${notificaciones.dedupe.maximo-entradas:200000}") int maximoEntradas) {
+        this.notificados = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> mayor) {
+                return size() > maximoEntradas;
+            }
+        };
+    }
+
+    /**
+     * Indica si el evento ya se notificó
+     */
+    public boolean yaNotificado(String requestId) {
+        synchronized (notificados) {
+            return notificados.containsKey(requestId);
+        }
+    }
+
+    /**
+     * Marca el evento como notificado (todas sus notificaciones se enviaron)
+     */
+    public void marcar(String requestId) {
+        synchronized (notificados) {
+            notificados.put(requestId, Boolean.TRUE);
+        }
+    }
+}
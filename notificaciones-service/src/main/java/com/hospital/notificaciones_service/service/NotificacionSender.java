@@ -0,0 +1,12 @@
+package com.hospital.notificaciones_service.service;
+
+import com.hospital.notificaciones_service.dto.Notificacion;
+
+/**
+ * Canal de envío de notificaciones (correo, SMS, push...). Debe lanzar una
+ * excepción si el envío falla, para que el evento se reintente.
+ */
+public interface NotificacionSender {
+
+    void enviar(Notificacion notificacion);
+}
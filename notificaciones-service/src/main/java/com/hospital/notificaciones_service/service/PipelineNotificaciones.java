@@ -0,0 +1,52 @@
+package com.hospital.notificaciones_service.service;
+
+import com.hospital.notificaciones_service.dto.Notificacion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reparte las notificaciones entre un número fijo de hilos de envío a través de una cola acotada.
+ * Con la cola llena el consumidor que despacha envía él mismo (CallerRuns): deja de leer de
+ * RabbitMQ, el prefetch se agota y el broker retiene los mensajes. Esa es la contrapresión.
+ */
+@Component
+public class PipelineNotificaciones {
+
+    private final NotificacionSender sender;
+    private final ThreadPoolExecutor envios;
+
+    public PipelineNotificaciones(NotificacionSender sender,
+                                  @Value("${notificaciones.pipeline.hilos:8}") int hilos,
+                                  @Value("${notificaciones.pipeline.capacidad:2000}") int capacidad) {
+        this.sender = sender;
+        AtomicInteger contador = new AtomicInteger();
+        this.envios = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidad),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "notificaciones-envio-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Encola el envío; el futuro se completa cuando el canal aceptó la notificación
+     */
+    public CompletableFuture<Void> despachar(Notificacion notificacion) {
+        return CompletableFuture.runAsync(() -> sender.enviar(notificacion), envios);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        envios.shutdown();
+        envios.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
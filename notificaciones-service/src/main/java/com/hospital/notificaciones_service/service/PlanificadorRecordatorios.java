@@ -0,0 +1,155 @@
+package com.hospital.notificaciones_service.service;
+
+import com.hospital.notificaciones_service.dto.CitaEvent;
+import com.hospital.notificaciones_service.dto.Notificacion;
+import com.hospital.notificaciones_service.dto.Recordatorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recordatorios 24 h y 1 h antes del inicio de cada cita, mantenidos en una rueda de temporizadores.
+ * Los eventos CITA_* los programan, reprograman o cancelan; un tick periódico entrega los vencidos.
+ * Una cita anulada deja una lápida con su versión, para descartar eventos anteriores que lleguen tarde.
+ */
+@Component
+public class PlanificadorRecordatorios {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanificadorRecordatorios.class);
+
+    private final PipelineNotificaciones pipeline;
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    // Rueda y mapa solo se tocan con el bloqueo: cada operación es O(1) y sin E/S
+    private final ReentrantLock bloqueo = new ReentrantLock();
+    private final RuedaTemporizadora<Recordatorio> rueda;
+    // Vencimiento de las lápidas de citas anuladas (valor: citaId)
+    private final RuedaTemporizadora<Long> lapidas;
+    private final Map<Long, RecordatoriosCita> porCita = new HashMap<>();
+    private final long retencionAnuladasMs;
+
+    // Versión de la cita (timestamp del último evento aplicado) y sus recordatorios pendientes;
+    // en una cita anulada no hay pendientes y 'lapida' es el temporizador que la borra
+    private record RecordatoriosCita(LocalDateTime version, List<RuedaTemporizadora.Temporizador<Recordatorio>> pendientes,
+                                     RuedaTemporizadora.Temporizador<Long> lapida) {
+    }
+
+    public PlanificadorRecordatorios(PipelineNotificaciones pipeline,
+                                     @Value("${notificaciones.recordatorios.tick-ms:1000}") long tickMs,
+                                     @Value("${notificaciones.recordatorios.ranuras:4096}") int ranuras,
+                                     @Value("${notificaciones.recordatorios.retencion-anuladas-ms:86400000}") long retencionAnuladasMs) {
+        this.pipeline = pipeline;
+        long ahora = System.currentTimeMillis();
+        this.rueda = new RuedaTemporizadora<>(tickMs, ranuras, ahora);
+        this.lapidas = new RuedaTemporizadora<>(tickMs, ranuras, ahora);
+        this.retencionAnuladasMs = retencionAnuladasMs;
+    }
+
+    /**
+     * Aplica un evento de cita: anulada cancela sus recordatorios, agendada/modificada los reprograma
+     */
+    public void aplicar(CitaEvent evento) {
+        long ahora = System.currentTimeMillis();
+        bloqueo.lock();
+        try {
+            RecordatoriosCita actuales = porCita.get(evento.citaId());
+            // Con varios consumidores un evento antiguo puede llegar después de uno más reciente
+            if (actuales != null && evento.timestamp() != null && evento.timestamp().isBefore(actuales.version())) {
+                return;
+            }
+            if (actuales != null) {
+                actuales.pendientes().forEach(rueda::cancelar);
+                if (actuales.lapida() != null) {
+                    lapidas.cancelar(actuales.lapida());
+                }
+                porCita.remove(evento.citaId());
+            }
+            LocalDateTime version = evento.timestamp() != null ? evento.timestamp() : LocalDateTime.MIN;
+            if ("CITA_ANULADA".equals(evento.tipo())) {
+                // La lápida dura hasta pasado el inicio: después ningún evento tardío tiene recordatorios por programar
+                long inicio = evento.inicio() != null ? evento.inicio().atZone(zona).toInstant().toEpochMilli() : ahora;
+                porCita.put(evento.citaId(), new RecordatoriosCita(version, List.of(),
+                        lapidas.programar(evento.citaId(), Math.max(inicio, ahora) + retencionAnuladasMs)));
+                return;
+            }
+            if (evento.inicio() == null) {
+                return;
+            }
+
+            long inicio = evento.inicio().atZone(zona).toInstant().toEpochMilli();
+            List<RuedaTemporizadora.Temporizador<Recordatorio>> pendientes = new ArrayList<>(2);
+            for (Recordatorio.Anticipacion anticipacion : Recordatorio.Anticipacion.values()) {
+                Recordatorio recordatorio = new Recordatorio(evento.citaId(), evento.idPaciente(), inicio, anticipacion);
+                // Un recordatorio cuyo momento ya pasó no se envía (la cita está más cerca que su anticipación)
+                if (recordatorio.vencimientoEpochMs() > ahora) {
+                    pendientes.add(rueda.programar(recordatorio, recordatorio.vencimientoEpochMs()));
+                }
+            }
+            if (!pendientes.isEmpty()) {
+                porCita.put(evento.citaId(), new RecordatoriosCita(version, pendientes, null));
+            }
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    /**
+     * Entrega los recordatorios vencidos desde el último tick
+     */
+    @Scheduled(fixedRateString = "${notificaciones.recordatorios.tick-ms:1000}")
+    public void avanzar() {
+        List<Recordatorio> vencidos = new ArrayList<>();
+        long ahora = System.currentTimeMillis();
+        bloqueo.lock();
+        try {
+            rueda.avanzar(ahora, vencidos::add);
+            // Una lápida vencida solo se borra si sigue siendo la entrada vigente de su cita
+            lapidas.avanzar(ahora, citaId -> {
+                RecordatoriosCita cita = porCita.get(citaId);
+                if (cita != null && cita.lapida() != null && !cita.lapida().activo()) {
+                    porCita.remove(citaId);
+                }
+            });
+            for (Recordatorio recordatorio : vencidos) {
+                RecordatoriosCita cita = porCita.get(recordatorio.citaId());
+                if (cita != null && cita.pendientes().stream().noneMatch(RuedaTemporizadora.Temporizador::activo)) {
+                    porCita.remove(recordatorio.citaId());
+                }
+            }
+        } finally {
+            bloqueo.unlock();
+        }
+
+        // El envío se hace fuera del bloqueo para no frenar a los consumidores
+        for (Recordatorio recordatorio : vencidos) {
+            LocalDateTime inicio = LocalDateTime.ofInstant(Instant.ofEpochMilli(recordatorio.inicioEpochMs()), zona);
+            pipeline.despachar(Notificacion.recordatorio(recordatorio, inicio)).exceptionally(e -> {
+                log.warn("No se pudo enviar el recordatorio de la cita {}: {}", recordatorio.citaId(), e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Recordatorios pendientes en la rueda
+     */
+    public int pendientes() {
+        bloqueo.lock();
+        try {
+            return rueda.tamano();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+}
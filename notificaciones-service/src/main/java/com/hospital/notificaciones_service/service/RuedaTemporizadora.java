@@ -0,0 +1,124 @@
+package com.hospital.notificaciones_service.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Rueda de temporizadores (hashed timing wheel): cada ranura es una lista doblemente enlazada
+ * de los temporizadores cuyo tick de vencimiento cae en ella módulo el número de ranuras.
+ * Programar y cancelar son O(1); avanzar un tick recorre solo su ranura.
+ *
+ * No es segura entre hilos: quien la use debe serializar el acceso.
+ */
+public class RuedaTemporizadora<T> {
+
+    /**
+     * Entrada programada; sirve como referencia para cancelarla
+     */
+    public static final class Temporizador<T> {
+
+        private final T valor;
+        private final long tickVencimiento;
+        private Temporizador<T> anterior;
+        private Temporizador<T> siguiente;
+        private int ranura = -1;
+
+        private Temporizador(T valor, long tickVencimiento) {
+            this.valor = valor;
+            this.tickVencimiento = tickVencimiento;
+        }
+
+        public T valor() {
+            return valor;
+        }
+
+        /**
+         * Sigue en la rueda (ni vencido ni cancelado)
+         */
+        public boolean activo() {
+            return ranura >= 0;
+        }
+    }
+
+    private final long tickMs;
+    private final int mascara;
+    private final Temporizador<T>[] ranuras;
+    private long tickActual;
+    private int tamano;
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadora(long tickMs, int numeroRanuras, long ahoraMs) {
+        if (Integer.bitCount(numeroRanuras) != 1) {
+            throw new IllegalArgumentException("El número de ranuras debe ser potencia de dos");
+        }
+        this.tickMs = tickMs;
+        this.mascara = numeroRanuras - 1;
+        this.ranuras = new Temporizador[numeroRanuras];
+        this.tickActual = ahoraMs / tickMs;
+    }
+
+    /**
+     * Programa 'valor' para 'vencimientoMs'; si ya pasó, vence en el próximo avance
+     */
+    public Temporizador<T> programar(T valor, long vencimientoMs) {
+        long tick = Math.max(Math.floorDiv(vencimientoMs + tickMs - 1, tickMs), tickActual);
+        Temporizador<T> temporizador = new Temporizador<>(valor, tick);
+        int ranura = (int) (tick & mascara);
+        temporizador.ranura = ranura;
+        temporizador.siguiente = ranuras[ranura];
+        if (ranuras[ranura] != null) {
+            ranuras[ranura].anterior = temporizador;
+        }
+        ranuras[ranura] = temporizador;
+        tamano++;
+        return temporizador;
+    }
+
+    /**
+     * Quita el temporizador si sigue programado
+     */
+    public boolean cancelar(Temporizador<T> temporizador) {
+        if (!temporizador.activo()) {
+            return false;
+        }
+        desenlazar(temporizador);
+        return true;
+    }
+
+    /**
+     * Procesa todos los ticks hasta 'ahoraMs' y entrega los valores vencidos
+     */
+    public void avanzar(long ahoraMs, Consumer<T> vencidos) {
+        long ultimoTick = ahoraMs / tickMs;
+        for (; tickActual <= ultimoTick; tickActual++) {
+            Temporizador<T> actual = ranuras[(int) (tickActual & mascara)];
+            while (actual != null) {
+                Temporizador<T> siguiente = actual.siguiente;
+                // Los de vueltas posteriores comparten ranura pero aún no vencen
+                if (actual.tickVencimiento <= tickActual) {
+                    desenlazar(actual);
+                    vencidos.accept(actual.valor);
+                }
+                actual = siguiente;
+            }
+        }
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    private void desenlazar(Temporizador<T> temporizador) {
+        if (temporizador.anterior != null) {
+            temporizador.anterior.siguiente = temporizador.siguiente;
+        } else {
+            ranuras[temporizador.ranura] = temporizador.siguiente;
+        }
+        if (temporizador.siguiente != null) {
+            temporizador.siguiente.anterior = temporizador.anterior;
+        }
+        temporizador.anterior = null;
+        temporizador.siguiente = null;
+        temporizador.ranura = -1;
+        tamano--;
+    }
+}
@@ -0,0 +1,31 @@
+package com.hospital.notificaciones_service.service;
+
+import com.hospital.notificaciones_service.dto.Notificacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envío simulado para desarrollo: solo registra y cuenta. Un canal real se conecta
+ * declarando otro bean de NotificacionSender marcado como @Primary.
+ */
+@Component
+public class StubNotificacionSender implements NotificacionSender {
+
+    private static final Logger log = LoggerFactory.getLogger(StubNotificacionSender.class);
+
+    private final LongAdder enviadas = new LongAdder();
+
+    @Override
+    public void enviar(Notificacion notificacion) {
+        enviadas.increment();
+        log.debug("Notificación {} a {} {}: {}", notificacion.tipo(), notificacion.destinatario(),
+                notificacion.idDestinatario(), notificacion.mensaje());
+    }
+
+    public long getEnviadas() {
+        return enviadas.sum();
+    }
+}
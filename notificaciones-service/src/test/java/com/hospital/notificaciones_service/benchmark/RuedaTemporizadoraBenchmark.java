@@ -0,0 +1,55 @@
+package com.hospital.notificaciones_service.benchmark;
+
+import com.hospital.notificaciones_service.dto.Recordatorio;
+import com.hospital.notificaciones_service.service.RuedaTemporizadora;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programar y cancelar un recordatorio con la rueda ya cargada con millones de pendientes
+ * repartidos en los próximos 30 días. El coste no debe depender de 'pendientes'.
+ * <pre>
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -Xmx2g -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main RuedaTemporizadoraBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RuedaTemporizadoraBenchmark {
+
+    private static final long TREINTA_DIAS_MS = TimeUnit.DAYS.toMillis(30);
+
+    @Param({"100000", "2000000"})
+    public int pendientes;
+
+    private RuedaTemporizadora<Recordatorio> rueda;
+    private SplittableRandom random;
+    private long ahora;
+
+    @Setup(Level.Trial)
+    public void cargar() {
+        ahora = System.currentTimeMillis();
+        rueda = new RuedaTemporizadora<>(1_000, 4_096, ahora);
+        random = new SplittableRandom(7);
+        for (int i = 0; i < pendientes; i++) {
+            rueda.programar(recordatorio(i), ahora + random.nextLong(TREINTA_DIAS_MS));
+        }
+    }
+
+    @Benchmark
+    public boolean programarYCancelar() {
+        RuedaTemporizadora.Temporizador<Recordatorio> temporizador =
+                rueda.programar(recordatorio(-1), ahora + random.nextLong(TREINTA_DIAS_MS));
+        return rueda.cancelar(temporizador);
+    }
+
+    private Recordatorio recordatorio(long citaId) {
+        return new Recordatorio(citaId, 1_000 + citaId, ahora + TREINTA_DIAS_MS, Recordatorio.Anticipacion.HORAS_24);
+    }
+}
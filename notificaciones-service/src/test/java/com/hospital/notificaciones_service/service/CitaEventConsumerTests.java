@@ -0,0 +1,115 @@
+package com.hospital.notificaciones_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.notificaciones_service.dto.CitaEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CitaEventConsumerTests {
+
+	private static final LocalDateTime INICIO = LocalDateTime.now().plusDays(3).withNano(0);
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final DeduplicadorEventos deduplicador = new DeduplicadorEventos(1_000);
+	private final CoalescedorNotificaciones coalescedor = mock(CoalescedorNotificaciones.class);
+	private final PlanificadorRecordatorios recordatorios = mock(PlanificadorRecordatorios.class);
+	private final CitaEventConsumer consumer = new CitaEventConsumer(objectMapper, deduplicador, coalescedor, recordatorios);
+
+	@Test
+	void unaReentregaEnOtroLoteSeDescarta() throws Exception {
+		consumer.recibir(List.of(mensaje(1L, "req-1"), mensaje(2L, "req-2")));
+		consumer.recibir(List.of(mensaje(1L, "req-1"), mensaje(3L, "req-3")));
+
+		assertEquals(List.of("req-1", "req-2", "req-3"), recibidos(3));
+		verify(recordatorios, times(3)).aplicar(any());
+	}
+
+	@Test
+	void unRequestIdRepetidoDentroDelLoteSeProcesaUnaVez() throws Exception {
+		consumer.recibir(List.of(mensaje(1L, "req-1"), mensaje(1L, "req-1"), mensaje(2L, "req-2")));
+
+		assertEquals(List.of("req-1", "req-2"), recibidos(2));
+	}
+
+	@Test
+	void losMensajesIlegiblesOIncompletosSeDescartanSinFallarElLote() throws Exception {
+		Message ilegible = new Message("no es json".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+		Message sinRequestId = mensaje(4L, null);
+		Message sinCita = mensaje(null, "req-5");
+
+		// Sin excepción el contenedor confirma el lote entero: reintentarlos no los haría legibles
+		consumer.recibir(List.of(ilegible, mensaje(1L, "req-1"), sinRequestId, sinCita, mensaje(2L, "req-2")));
+
+		assertEquals(List.of("req-1", "req-2"), recibidos(2));
+		assertFalse(deduplicador.yaNotificado("req-5"));
+	}
+
+	@Test
+	void siElLoteFallaSuReentregaSoloProcesaLoQueNoSeNotifico() throws Exception {
+		// El ack del lote es uno solo: si falla un evento, RabbitMQ vuelve a entregar el lote completo
+		doNothing().doThrow(new IllegalStateException("Pipeline detenido")).doNothing()
+				.when(coalescedor).recibir(any());
+		List<Message> lote = List.of(mensaje(1L, "req-1"), mensaje(2L, "req-2"), mensaje(3L, "req-3"));
+
+		assertThrows(IllegalStateException.class, () -> consumer.recibir(lote));
+		assertTrue(deduplicador.yaNotificado("req-1"));
+		assertFalse(deduplicador.yaNotificado("req-2"));
+
+		consumer.recibir(lote);
+
+		assertEquals(List.of("req-1", "req-2", "req-2", "req-3"), recibidos(4));
+		verify(recordatorios, times(3)).aplicar(any());
+	}
+
+	@Test
+	void elDeduplicadorExpulsaLosRequestIdMasAntiguos() {
+		DeduplicadorEventos pequeno = new DeduplicadorEventos(2);
+		pequeno.marcar("req-1");
+		pequeno.marcar("req-2");
+		pequeno.marcar("req-3");
+
+		assertFalse(pequeno.yaNotificado("req-1"));
+		assertTrue(pequeno.yaNotificado("req-2"));
+		assertTrue(pequeno.yaNotificado("req-3"));
+	}
+
+	@Test
+	void unaInterrupcionNoMarcaElEvento() throws Exception {
+		doThrow(new InterruptedException()).when(coalescedor).recibir(any());
+
+		assertThrows(InterruptedException.class, () -> consumer.recibir(List.of(mensaje(1L, "req-1"))));
+		assertFalse(deduplicador.yaNotificado("req-1"));
+	}
+
+	private List<String> recibidos(int veces) throws Exception {
+		ArgumentCaptor<CitaEvent> eventos = ArgumentCaptor.forClass(CitaEvent.class);
+		verify(coalescedor, times(veces)).recibir(eventos.capture());
+		return eventos.getAllValues().stream().map(CitaEvent::requestId).toList();
+	}
+
+	private Message mensaje(Long citaId, String requestId) throws Exception {
+		CitaEvent evento = new CitaEvent("CITA_AGENDADA", citaId, 10L, 20L, INICIO, INICIO.plusMinutes(30),
+				"AGENDADA", "Control", requestId, LocalDateTime.now());
+		MessageProperties propiedades = new MessageProperties();
+		propiedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+		return new Message(objectMapper.writeValueAsBytes(evento), propiedades);
+	}
+}
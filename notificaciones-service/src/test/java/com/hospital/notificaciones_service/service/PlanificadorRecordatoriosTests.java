@@ -0,0 +1,38 @@
+package com.hospital.notificaciones_service.service;
+
+import com.hospital.notificaciones_service.dto.CitaEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlanificadorRecordatoriosTests {
+
+	private static final LocalDateTime INICIO = LocalDateTime.now().plusDays(3).withNano(0);
+	private static final LocalDateTime T0 = LocalDateTime.now();
+
+	private final PlanificadorRecordatorios planificador = new PlanificadorRecordatorios(
+			new PipelineNotificaciones(new StubNotificacionSender(), 1, 10), 1_000, 4_096, 86_400_000);
+
+	@Test
+	void unEventoAnteriorQueLlegaTrasLaAnulacionNoReprogramaRecordatorios() {
+		planificador.aplicar(evento("CITA_AGENDADA", T0));
+		assertEquals(2, planificador.pendientes());
+
+		planificador.aplicar(evento("CITA_ANULADA", T0.plusSeconds(2)));
+		assertEquals(0, planificador.pendientes());
+
+		// Modificación anterior a la anulación, entregada tarde (reentrega o consumidor lento)
+		planificador.aplicar(evento("CITA_MODIFICADA", T0.plusSeconds(1)));
+		assertEquals(0, planificador.pendientes());
+
+		// Un evento posterior a la anulación sí se aplica
+		planificador.aplicar(evento("CITA_AGENDADA", T0.plusSeconds(3)));
+		assertEquals(2, planificador.pendientes());
+	}
+
+	private static CitaEvent evento(String tipo, LocalDateTime timestamp) {
+		return new CitaEvent(tipo, 1L, 10L, 20L, INICIO, INICIO.plusMinutes(30), null, "Control", tipo + "-1", timestamp);
+	}
+}
@@ -0,0 +1,55 @@
+package com.hospital.notificaciones_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuedaTemporizadoraTests {
+
+	private static final long TICK = 1_000;
+
+	@Test
+	void entregaCadaValorEnSuTickAunqueDeVariasVueltas() {
+		RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(TICK, 8, 0);
+		// Misma ranura (tick 3 y tick 11 con 8 ranuras), distinta vuelta
+		rueda.programar("pronto", 3 * TICK);
+		rueda.programar("tarde", 11 * TICK);
+		rueda.programar("vencido", -5 * TICK);
+
+		List<String> vencidos = new ArrayList<>();
+		rueda.avanzar(0, vencidos::add);
+		assertEquals(List.of("vencido"), vencidos);
+
+		rueda.avanzar(3 * TICK, vencidos::add);
+		assertEquals(List.of("vencido", "pronto"), vencidos);
+
+		rueda.avanzar(10 * TICK, vencidos::add);
+		assertEquals(1, rueda.tamano());
+
+		rueda.avanzar(11 * TICK, vencidos::add);
+		assertEquals(List.of("vencido", "pronto", "tarde"), vencidos);
+		assertEquals(0, rueda.tamano());
+	}
+
+	@Test
+	void cancelarQuitaElTemporizadorUnaSolaVez() {
+		RuedaTemporizadora<String> rueda = new RuedaTemporizadora<>(TICK, 8, 0);
+		RuedaTemporizadora.Temporizador<String> primero = rueda.programar("a", 2 * TICK);
+		RuedaTemporizadora.Temporizador<String> segundo = rueda.programar("b", 2 * TICK);
+
+		assertTrue(rueda.cancelar(segundo));
+		assertFalse(rueda.cancelar(segundo));
+		assertFalse(segundo.activo());
+
+		List<String> vencidos = new ArrayList<>();
+		rueda.avanzar(2 * TICK, vencidos::add);
+		assertEquals(List.of("a"), vencidos);
+		assertFalse(primero.activo());
+		assertFalse(rueda.cancelar(primero));
+	}
+}
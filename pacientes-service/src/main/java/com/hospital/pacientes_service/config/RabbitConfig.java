@@ -0,0 +1,31 @@
+package com.hospital.pacientes_service.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfig {
+
+    // Mismos nombres que declara agendamiento-service (las declaraciones son idempotentes)
+    public static final String CITAS_EXCHANGE = "citas.exchange";
+    public static final String PACIENTES_QUEUE = "pacientes.queue";
+
+    @Bean
+    public TopicExchange citasExchange() {
+        return new TopicExchange(CITAS_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue pacientesQueue() {
+        return QueueBuilder.durable(PACIENTES_QUEUE).build();
+    }
+
+    @Bean
+    public Binding bindingPacientes() {
+        return BindingBuilder
+                .bind(pacientesQueue())
+                .to(citasExchange())
+                .with("citas.*");
+    }
+}
@@ -0,0 +1,77 @@
+package com.hospital.pacientes_service.controller;
+
+import com.hospital.pacientes_service.dto.CitaPaciente;
+import com.hospital.pacientes_service.dto.FiltroHistorial;
+import com.hospital.pacientes_service.service.HistorialPacientes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/pacientes")
+@CrossOrigin(origins = "*")
+public class PacienteController {
+
+    private static final int LIMITE_MAXIMO = 500;
+
+    @Autowired
+    private HistorialPacientes historialPacientes;
+
+    /**
+     * Historial de citas del paciente: proximas, pasadas o anuladas
+     * GET /api/v1/pacientes/{idPaciente}/citas?filtro=proximas&limite=50
+     */
+    @GetMapping("/{idPaciente}/citas")
+    public ResponseEntity<?> consultarHistorial(@PathVariable Long idPaciente,
+                                                @RequestParam(defaultValue = "proximas") String filtro,
+                                                @RequestParam(defaultValue = "50") int limite) {
+        try {
+            FiltroHistorial vista = FiltroHistorial.valueOf(filtro.toUpperCase());
+            List<CitaPaciente> citas = historialPacientes.consultar(idPaciente, vista,
+                    Math.max(1, Math.min(limite, LIMITE_MAXIMO)));
+            return ResponseEntity.ok(crearRespuestaExitosa("Citas del paciente", citas));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(crearRespuestaError("Filtro no válido", "Use proximas, pasadas o anuladas"));
+        }
+    }
+
+    /**
+     * Health check
+     * GET /api/v1/pacientes/health
+     */
+    @GetMapping("/health")
+    public ResponseEntity<?> healthCheck() {
+        Map<String, Object> health = new HashMap<>();
+        health.put("status", "UP");
+        health.put("service", "pacientes-service");
+        health.put("pacientes", historialPacientes.pacientes());
+        health.put("timestamp", java.time.LocalDateTime.now());
+        return ResponseEntity.ok(health);
+    }
+
+    // ================== MÉTODOS AUXILIARES ==================
+
+    private Map<String, Object> crearRespuestaExitosa(String mensaje, Object data) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("success", true);
+        respuesta.put("message", mensaje);
+        respuesta.put("data", data);
+        respuesta.put("timestamp", java.time.LocalDateTime.now());
+        return respuesta;
+    }
+
+    private Map<String, Object> crearRespuestaError(String mensaje, String detalle) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("success", false);
+        respuesta.put("message", mensaje);
+        respuesta.put("error", detalle);
+        respuesta.put("timestamp", java.time.LocalDateTime.now());
+        return respuesta;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hospital.pacientes_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cita del historial de un paciente; se materializa solo al responder una consulta
+ */
+public record CitaPaciente(
+        Long citaId,
+        Long idMedico,
+        LocalDateTime inicio,
+        LocalDateTime fin,
+        EstadoCita estado,
+        String motivo
+) {
+}
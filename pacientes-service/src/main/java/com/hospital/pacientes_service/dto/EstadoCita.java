@@ -0,0 +1,12 @@
+package com.hospital.pacientes_service.dto;
+
+/**
+ * Estados de cita publicados por agendamiento-service. El ordinal se guarda como byte
+ * en el historial, así que solo se pueden añadir valores al final.
+ */
+public enum EstadoCita {
+    AGENDADA,
+    CONFIRMADA,
+    MODIFICADA,
+    ANULADA
+}
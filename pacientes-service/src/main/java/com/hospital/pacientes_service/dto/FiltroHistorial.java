@@ -0,0 +1,13 @@
+package com.hospital.pacientes_service.dto;
+
+/**
+ * Vistas del historial de un paciente
+ */
+public enum FiltroHistorial {
+    /** Citas activas desde ahora, de la más cercana a la más lejana */
+    PROXIMAS,
+    /** Citas activas ya iniciadas, de la más reciente a la más antigua */
+    PASADAS,
+    /** Citas anuladas, de la más reciente a la más antigua */
+    ANULADAS
+}
@@ -0,0 +1,82 @@
+package com.hospital.pacientes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hospital.pacientes_service.config.RabbitConfig;
+import com.hospital.pacientes_service.dto.CitaEvent;
+import com.hospital.pacientes_service.dto.EstadoCita;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consume por lotes los eventos de citas y los lleva al historial de cada paciente.
+ * El lote se escribe en el diario antes de aplicarse y el ack llega al volver del método;
+ * las reentregas no cambian nada porque el historial es idempotente por versión.
+ */
+@Component
+public class CitaEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(CitaEventConsumer.class);
+
+    private final ObjectReader eventReader;
+    private final PersistenciaHistorial persistencia;
+
+    public CitaEventConsumer(ObjectMapper objectMapper, PersistenciaHistorial persistencia) {
+        this.eventReader = objectMapper.readerFor(CitaEvent.class);
+        this.persistencia = persistencia;
+    }
+
+    /**
+     * Procesa un lote de mensajes de pacientes.queue
+     */
+    @RabbitListener(queues = RabbitConfig.PACIENTES_QUEUE)
+    public void recibir(List<Message> mensajes) {
+        // 1. Decodificar, descartando lo ilegible
+        List<byte[]> cuerpos = new ArrayList<>(mensajes.size());
+        List<CitaEvent> eventos = new ArrayList<>(mensajes.size());
+        for (Message mensaje : mensajes) {
+            CitaEvent evento = decodificar(mensaje);
+            if (evento != null) {
+                cuerpos.add(mensaje.getBody());
+                eventos.add(evento);
+            }
+        }
+
+        // 2. Diario + historial
+        if (!eventos.isEmpty()) {
+            persistencia.registrarYAplicar(cuerpos, eventos);
+        }
+    }
+
+    // Un mensaje ilegible no se puede reintentar con éxito: se registra y se confirma igualmente
+    private CitaEvent decodificar(Message mensaje) {
+        try {
+            CitaEvent evento = eventReader.readValue(mensaje.getBody());
+            if (evento.citaId() == null || evento.idPaciente() == null || evento.idMedico() == null
+                    || evento.inicio() == null || evento.fin() == null || !estadoConocido(evento.estado())) {
+                log.warn("Evento de cita incompleto descartado: {}", evento);
+                return null;
+            }
+            return evento;
+        } catch (IOException e) {
+            log.warn("Evento de cita ilegible descartado: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean estadoConocido(String estado) {
+        for (EstadoCita conocido : EstadoCita.values()) {
+            if (conocido.name().equals(estado)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,219 @@
+package com.hospital.pacientes_service.service;
+
+import com.hospital.pacientes_service.dto.CitaPaciente;
+import com.hospital.pacientes_service.dto.EstadoCita;
+import com.hospital.pacientes_service.dto.FiltroHistorial;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Historial de citas de un paciente en columnas de tipos primitivos: una fila por cita
+ * (su último estado conocido), ordenadas por inicio. Un paciente tiene decenas de citas,
+ * así que insertar desplazando los arrays es más barato que mantener un objeto por cita.
+ * Las fechas se guardan como segundos "de reloj" (LocalDateTime codificado en UTC).
+ */
+final class HistorialPaciente {
+
+    private static final int CAPACIDAD_INICIAL = 4;
+    private static final EstadoCita[] ESTADOS = EstadoCita.values();
+    private static final byte ANULADA = (byte) EstadoCita.ANULADA.ordinal();
+
+    private long[] citaIds;
+    private long[] idMedicos;
+    private long[] inicios;
+    private int[] duraciones;
+    private byte[] estados;
+    // Timestamp (ms) del evento que produjo la fila, para descartar eventos atrasados
+    private long[] versiones;
+    private String[] motivos;
+    private int tamano;
+
+    HistorialPaciente() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    private HistorialPaciente(int capacidad) {
+        citaIds = new long[capacidad];
+        idMedicos = new long[capacidad];
+        inicios = new long[capacidad];
+        duraciones = new int[capacidad];
+        estados = new byte[capacidad];
+        versiones = new long[capacidad];
+        motivos = new String[capacidad];
+    }
+
+    /**
+     * Inserta o reemplaza la fila de la cita; devuelve false si el evento es más antiguo que la fila.
+     * Un evento sin timestamp no se puede ordenar: se aplica siempre y no bloquea a los siguientes
+     * (igual que AgendaMedicosProyeccion en medicos-service).
+     */
+    synchronized boolean aplicar(long citaId, long idMedico, LocalDateTime inicio, LocalDateTime fin,
+                                 EstadoCita estado, LocalDateTime version, String motivo) {
+        long versionMs = version != null ? version.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
+        int fila = filaDeCita(citaId);
+        if (fila >= 0) {
+            if (version != null && versionMs < versiones[fila]) {
+                return false;
+            }
+            quitar(fila);
+        }
+        long inicioSeg = segundos(inicio);
+        int destino = primeraDesde(inicioSeg);
+        abrirHueco(destino);
+        citaIds[destino] = citaId;
+        idMedicos[destino] = idMedico;
+        inicios[destino] = inicioSeg;
+        duraciones[destino] = (int) (segundos(fin) - inicioSeg);
+        estados[destino] = (byte) estado.ordinal();
+        versiones[destino] = versionMs;
+        motivos[destino] = motivo;
+        return true;
+    }
+
+    /**
+     * Hasta 'limite' citas de la vista pedida respecto a 'ahora'
+     */
+    synchronized List<CitaPaciente> consultar(FiltroHistorial filtro, LocalDateTime ahora, int limite) {
+        List<CitaPaciente> resultado = new ArrayList<>(Math.min(limite, tamano));
+        int corte = primeraDesde(segundos(ahora));
+        switch (filtro) {
+            case PROXIMAS -> {
+                for (int i = corte; i < tamano && resultado.size() < limite; i++) {
+                    if (estados[i] != ANULADA) {
+                        resultado.add(fila(i));
+                    }
+                }
+            }
+            case PASADAS -> {
+                for (int i = corte - 1; i >= 0 && resultado.size() < limite; i--) {
+                    if (estados[i] != ANULADA) {
+                        resultado.add(fila(i));
+                    }
+                }
+            }
+            case ANULADAS -> {
+                for (int i = tamano - 1; i >= 0 && resultado.size() < limite; i--) {
+                    if (estados[i] == ANULADA) {
+                        resultado.add(fila(i));
+                    }
+                }
+            }
+        }
+        return resultado;
+    }
+
+    synchronized int tamano() {
+        return tamano;
+    }
+
+    // ================== SNAPSHOT ==================
+
+    /**
+     * Escribe las columnas una tras otra (formato del snapshot)
+     */
+    synchronized void escribir(DataOutputStream salida) throws IOException {
+        salida.writeInt(tamano);
+        for (int i = 0; i < tamano; i++) salida.writeLong(citaIds[i]);
+        for (int i = 0; i < tamano; i++) salida.writeLong(idMedicos[i]);
+        for (int i = 0; i < tamano; i++) salida.writeLong(inicios[i]);
+        for (int i = 0; i < tamano; i++) salida.writeInt(duraciones[i]);
+        salida.write(estados, 0, tamano);
+        for (int i = 0; i < tamano; i++) salida.writeLong(versiones[i]);
+        for (int i = 0; i < tamano; i++) {
+            salida.writeBoolean(motivos[i] != null);
+            if (motivos[i] != null) {
+                salida.writeUTF(motivos[i]);
+            }
+        }
+    }
+
+    static HistorialPaciente leer(DataInputStream entrada) throws IOException {
+        int filas = entrada.readInt();
+        HistorialPaciente historial = new HistorialPaciente(Math.max(filas, CAPACIDAD_INICIAL));
+        for (int i = 0; i < filas; i++) historial.citaIds[i] = entrada.readLong();
+        for (int i = 0; i < filas; i++) historial.idMedicos[i] = entrada.readLong();
+        for (int i = 0; i < filas; i++) historial.inicios[i] = entrada.readLong();
+        for (int i = 0; i < filas; i++) historial.duraciones[i] = entrada.readInt();
+        entrada.readFully(historial.estados, 0, filas);
+        for (int i = 0; i < filas; i++) historial.versiones[i] = entrada.readLong();
+        for (int i = 0; i < filas; i++) {
+            historial.motivos[i] = entrada.readBoolean() ? entrada.readUTF() : null;
+        }
+        historial.tamano = filas;
+        return historial;
+    }
+
+    // ================== MÉTODOS PRIVADOS ==================
+
+    private CitaPaciente fila(int i) {
+        LocalDateTime inicio = LocalDateTime.ofEpochSecond(inicios[i], 0, ZoneOffset.UTC);
+        return new CitaPaciente(citaIds[i], idMedicos[i], inicio, inicio.plusSeconds(duraciones[i]),
+                ESTADOS[estados[i]], motivos[i]);
+    }
+
+    private int filaDeCita(long citaId) {
+        for (int i = 0; i < tamano; i++) {
+            if (citaIds[i] == citaId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Primera fila con inicio >= 'segundos' (búsqueda binaria sobre la columna ordenada)
+    private int primeraDesde(long segundos) {
+        int bajo = 0;
+        int alto = tamano;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (inicios[medio] < segundos) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private void abrirHueco(int posicion) {
+        if (tamano == citaIds.length) {
+            int capacidad = tamano * 2;
+            citaIds = Arrays.copyOf(citaIds, capacidad);
+            idMedicos = Arrays.copyOf(idMedicos, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            duraciones = Arrays.copyOf(duraciones, capacidad);
+            estados = Arrays.copyOf(estados, capacidad);
+            versiones = Arrays.copyOf(versiones, capacidad);
+            motivos = Arrays.copyOf(motivos, capacidad);
+        }
+        desplazar(posicion, posicion + 1, tamano - posicion);
+        tamano++;
+    }
+
+    private void quitar(int fila) {
+        desplazar(fila + 1, fila, tamano - fila - 1);
+        tamano--;
+        motivos[tamano] = null;
+    }
+
+    private void desplazar(int desde, int hasta, int filas) {
+        System.arraycopy(citaIds, desde, citaIds, hasta, filas);
+        System.arraycopy(idMedicos, desde, idMedicos, hasta, filas);
+        System.arraycopy(inicios, desde, inicios, hasta, filas);
+        System.arraycopy(duraciones, desde, duraciones, hasta, filas);
+        System.arraycopy(estados, desde, estados, hasta, filas);
+        System.arraycopy(versiones, desde, versiones, hasta, filas);
+        System.arraycopy(motivos, desde, motivos, hasta, filas);
+    }
+
+    private static long segundos(LocalDateTime momento) {
+        return momento.toEpochSecond(ZoneOffset.UTC);
+    }
+}
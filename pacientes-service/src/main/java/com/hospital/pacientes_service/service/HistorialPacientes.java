@@ -0,0 +1,83 @@
+package com.hospital.pacientes_service.service;
+
+import com.hospital.pacientes_service.dto.CitaEvent;
+import com.hospital.pacientes_service.dto.CitaPaciente;
+import com.hospital.pacientes_service.dto.EstadoCita;
+import com.hospital.pacientes_service.dto.FiltroHistorial;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historial de citas de todos los pacientes, alimentado por los eventos de agendamiento-service.
+ * Cada paciente es un HistorialPaciente columnar con su propio monitor (sin E/S dentro).
+ */
+@Component
+public class HistorialPacientes {
+
+    private static final int FORMATO_MAGICO = 0x48495354; // "HIST"
+    private static final int FORMATO_VERSION = 1;
+
+    private final ConcurrentHashMap<Long, HistorialPaciente> porPaciente = new ConcurrentHashMap<>();
+
+    /**
+     * Aplica un evento; devuelve false si era más antiguo que el estado conocido de la cita
+     */
+    public boolean aplicar(CitaEvent evento) {
+        HistorialPaciente historial = porPaciente.computeIfAbsent(evento.idPaciente(), id -> new HistorialPaciente());
+        return historial.aplicar(evento.citaId(), evento.idMedico(), evento.inicio(), evento.fin(),
+                EstadoCita.valueOf(evento.estado()), evento.timestamp(), evento.motivo());
+    }
+
+    /**
+     * Citas del paciente en la vista pedida, como mucho 'limite'
+     */
+    public List<CitaPaciente> consultar(Long idPaciente, FiltroHistorial filtro, int limite) {
+        HistorialPaciente historial = porPaciente.get(idPaciente);
+        return historial == null ? List.of() : historial.consultar(filtro, LocalDateTime.now(), limite);
+    }
+
+    public int pacientes() {
+        return porPaciente.size();
+    }
+
+    public long citas() {
+        return porPaciente.values().stream().mapToLong(HistorialPaciente::tamano).sum();
+    }
+
+    // ================== SNAPSHOT ==================
+
+    /**
+     * Escribe todos los historiales; quien llama garantiza que no se aplican eventos a la vez
+     */
+    public void escribirSnapshot(DataOutputStream salida) throws IOException {
+        salida.writeInt(FORMATO_MAGICO);
+        salida.writeInt(FORMATO_VERSION);
+        salida.writeInt(porPaciente.size());
+        for (Map.Entry<Long, HistorialPaciente> entrada : porPaciente.entrySet()) {
+            salida.writeLong(entrada.getKey());
+            entrada.getValue().escribir(salida);
+        }
+    }
+
+    /**
+     * Reemplaza el estado por el de un snapshot
+     */
+    public void leerSnapshot(DataInputStream entrada) throws IOException {
+        if (entrada.readInt() != FORMATO_MAGICO || entrada.readInt() != FORMATO_VERSION) {
+            throw new IOException("Formato de snapshot de historial desconocido");
+        }
+        int pacientes = entrada.readInt();
+        porPaciente.clear();
+        for (int i = 0; i < pacientes; i++) {
+            long idPaciente = entrada.readLong();
+            porPaciente.put(idPaciente, HistorialPaciente.leer(entrada));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.hospital.pacientes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hospital.pacientes_service.dto.CitaEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Durabilidad del historial: diario de eventos + snapshot binario periódico.
+ * - Cada lote recibido se añade al diario (una línea JSON por evento) y se sincroniza a disco
+ *   antes de aplicarlo; el ack a RabbitMQ llega después, así que no se pierde nada confirmado.
+ * - El snapshot vuelca las columnas de cada paciente tal cual (sin un objeto por cita), de modo
+ *   que el arranque es una lectura secuencial; después se reaplica el diario (idempotente por versión).
+ */
+@Component
+public class PersistenciaHistorial {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistenciaHistorial.class);
+
+    private final HistorialPacientes historial;
+    private final ObjectReader eventReader;
+    private final Path snapshot;
+    private final Path diario;
+
+    // Lectura: consumidores (añadir + aplicar). Escritura: snapshot (estado y diario coherentes)
+    private final ReentrantReadWriteLock coherencia = new ReentrantReadWriteLock();
+    private final ReentrantLock escrituraDiario = new ReentrantLock();
+    private final AtomicLong cambiosSinSnapshot = new AtomicLong();
+    private FileChannel canalDiario;
+
+    public PersistenciaHistorial(HistorialPacientes historial, ObjectMapper objectMapper,
+                                 @Value("${pacientes.historial.directorio:./data}") String directorio) {
+        this.historial = historial;
+        this.eventReader = objectMapper.readerFor(CitaEvent.class);
+        this.snapshot = Path.of(directorio, "historial-pacientes.snapshot");
+        this.diario = Path.of(directorio, "historial-pacientes.diario");
+    }
+
+    /**
+     * Reconstruye el historial antes de que arranquen los consumidores
+     */
+    @PostConstruct
+    public void restaurar() throws IOException {
+        Files.createDirectories(diario.getParent());
+        long inicio = System.nanoTime();
+        if (Files.exists(snapshot)) {
+            try (DataInputStream entrada = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+                historial.leerSnapshot(entrada);
+            }
+        }
+        long reaplicados = 0;
+        if (Files.exists(diario)) {
+            try (BufferedReader lector = Files.newBufferedReader(diario, StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = lector.readLine()) != null) {
+                    // Una última línea cortada por una caída a mitad de escritura se descarta
+                    try {
+                        historial.aplicar(eventReader.readValue(linea));
+                        reaplicados++;
+                    } catch (IOException e) {
+                        log.warn("Línea del diario ilegible descartada: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+        canalDiario = FileChannel.open(diario, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("Historial de pacientes restaurado: {} pacientes, {} citas, {} eventos del diario en {} ms",
+                historial.pacientes(), historial.citas(), reaplicados, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Registra el lote en el diario (sincronizado a disco) y lo aplica al historial
+     */
+    public void registrarYAplicar(List<byte[]> cuerpos, List<CitaEvent> eventos) {
+        coherencia.readLock().lock();
+        try {
+            escrituraDiario.lock();
+            try {
+                ByteBuffer[] buffers = new ByteBuffer[cuerpos.size() * 2];
+                for (int i = 0; i < cuerpos.size(); i++) {
+                    buffers[2 * i] = ByteBuffer.wrap(cuerpos.get(i));
+                    buffers[2 * i + 1] = ByteBuffer.wrap(new byte[]{'\n'});
+                }
+                while (buffers[buffers.length - 1].hasRemaining()) {
+                    canalDiario.write(buffers);
+                }
+                canalDiario.force(false);
+            } catch (IOException e) {
+                // Sin diario no hay durabilidad: el lote vuelve a la cola
+                throw new UncheckedIOException("No se pudo escribir el diario de eventos", e);
+            } finally {
+                escrituraDiario.unlock();
+            }
+            eventos.forEach(historial::aplicar);
+            cambiosSinSnapshot.addAndGet(eventos.size());
+        } finally {
+            coherencia.readLock().unlock();
+        }
+    }
+
+    /**
+     * Escribe el snapshot si hubo cambios y vacía el diario
+     */
+    @Scheduled(fixedDelayString = "${pacientes.historial.snapshot-intervalo-ms:30000}")
+    public void guardarSnapshot() {
+        if (cambiosSinSnapshot.get() == 0) {
+            return;
+        }
+        coherencia.writeLock().lock();
+        try {
+            Path temporal = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream salida = new DataOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16))) {
+                historial.escribirSnapshot(salida);
+                salida.flush();
+                canal.force(true);
+            }
+            Files.move(temporal, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Solo con el snapshot ya en su sitio se puede vaciar el diario
+            canalDiario.truncate(0);
+            canalDiario.force(true);
+            cambiosSinSnapshot.set(0);
+        } catch (IOException e) {
+            log.warn("No se pudo guardar el snapshot del historial: {}", e.getMessage());
+        } finally {
+            coherencia.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        guardarSnapshot();
+        canalDiario.close();
+    }
+}
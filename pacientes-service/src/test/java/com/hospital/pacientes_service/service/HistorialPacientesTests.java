@@ -0,0 +1,87 @@
+package com.hospital.pacientes_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.pacientes_service.dto.CitaEvent;
+import com.hospital.pacientes_service.dto.CitaPaciente;
+import com.hospital.pacientes_service.dto.FiltroHistorial;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistorialPacientesTests {
+
+	private static final LocalDateTime AHORA = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+
+	@Test
+	void separaProximasPasadasYAnuladas() {
+		HistorialPacientes historial = new HistorialPacientes();
+		historial.aplicar(evento(1L, AHORA.plusDays(3), "AGENDADA", AHORA));
+		historial.aplicar(evento(2L, AHORA.minusDays(2), "AGENDADA", AHORA));
+		historial.aplicar(evento(3L, AHORA.plusDays(1), "AGENDADA", AHORA));
+		historial.aplicar(evento(4L, AHORA.minusDays(5), "AGENDADA", AHORA));
+		historial.aplicar(evento(5L, AHORA.plusDays(2), "AGENDADA", AHORA));
+		historial.aplicar(evento(5L, AHORA.plusDays(2), "ANULADA", AHORA.plusSeconds(1)));
+		// La modificación mueve la cita 3 y una reentrega atrasada no la devuelve a su sitio
+		historial.aplicar(evento(3L, AHORA.plusDays(4), "MODIFICADA", AHORA.plusSeconds(2)));
+		historial.aplicar(evento(3L, AHORA.plusDays(1), "AGENDADA", AHORA));
+
+		assertEquals(List.of(1L, 3L), ids(historial.consultar(7L, FiltroHistorial.PROXIMAS, 10)));
+		assertEquals(List.of(2L, 4L), ids(historial.consultar(7L, FiltroHistorial.PASADAS, 10)));
+		assertEquals(List.of(5L), ids(historial.consultar(7L, FiltroHistorial.ANULADAS, 10)));
+		assertEquals(List.of(1L), ids(historial.consultar(7L, FiltroHistorial.PROXIMAS, 1)));
+		assertEquals(AHORA.plusDays(4).plusMinutes(30),
+				historial.consultar(7L, FiltroHistorial.PROXIMAS, 10).get(1).fin());
+	}
+
+	@Test
+	void unEventoSinTimestampNoCongelaLaCita() {
+		HistorialPacientes historial = new HistorialPacientes();
+		historial.aplicar(evento(1L, AHORA.plusDays(1), "AGENDADA", null));
+
+		// Con la versión tomada como la máxima, la cita ya no aceptaba ningún evento posterior
+		historial.aplicar(evento(1L, AHORA.plusDays(2), "MODIFICADA", AHORA));
+		assertEquals(AHORA.plusDays(2), historial.consultar(7L, FiltroHistorial.PROXIMAS, 10).get(0).inicio());
+
+		// Y uno sin timestamp sobre una fila versionada se aplica, como en medicos-service
+		historial.aplicar(evento(1L, AHORA.plusDays(2), "ANULADA", null));
+		assertEquals(List.of(1L), ids(historial.consultar(7L, FiltroHistorial.ANULADAS, 10)));
+	}
+
+	@Test
+	void restauraDesdeSnapshotYDiario(@TempDir Path directorio) throws Exception {
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		HistorialPacientes historial = new HistorialPacientes();
+		PersistenciaHistorial persistencia = new PersistenciaHistorial(historial, objectMapper, directorio.toString());
+		persistencia.restaurar();
+
+		CitaEvent primera = evento(1L, AHORA.plusDays(1), "AGENDADA", AHORA);
+		persistencia.registrarYAplicar(List.of(objectMapper.writeValueAsBytes(primera)), List.of(primera));
+		persistencia.guardarSnapshot();
+		// Esta solo queda en el diario
+		CitaEvent segunda = evento(2L, AHORA.plusHours(2), "AGENDADA", AHORA);
+		persistencia.registrarYAplicar(List.of(objectMapper.writeValueAsBytes(segunda)), List.of(segunda));
+
+		HistorialPacientes reiniciado = new HistorialPacientes();
+		new PersistenciaHistorial(reiniciado, objectMapper, directorio.toString()).restaurar();
+
+		List<CitaPaciente> proximas = reiniciado.consultar(7L, FiltroHistorial.PROXIMAS, 10);
+		assertEquals(List.of(2L, 1L), ids(proximas));
+		assertEquals("Control", proximas.get(1).motivo());
+	}
+
+	private static CitaEvent evento(Long citaId, LocalDateTime inicio, String estado, LocalDateTime version) {
+		return new CitaEvent("CITA_" + estado, citaId, 7L, 40L + citaId, inicio, inicio.plusMinutes(30), estado,
+				"Control", "req-" + estado + "-" + citaId, version);
+	}
+
+	private static List<Long> ids(List<CitaPaciente> citas) {
+		return citas.stream().map(CitaPaciente::citaId).toList();
+	}
+}